@@ -0,0 +1,269 @@
+package com.innohive.backendjava.archive;
+
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.ArchivedParticipantRepository;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.repository.LeaderboardRow;
+import com.innohive.backendjava.repository.ParticipantRepository;
+import com.innohive.backendjava.scheduler.CompetitionStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keeps {@code participants} down to competitions that can still change. Once a competition has been finished
+ * for {@code participants.archive.grace-ms} (long enough for queued score writes to land), its participants
+ * move to {@code participants_archive} in one transaction, and participant reads are routed to whichever
+ * table holds the competition. The archived competitions and their participant counts are held in memory,
+ * so routing and counts never query the archive.
+ * <p>
+ * Needs {@code db/participants_archive.sql}; without those tables the archive switches itself off and every
+ * read goes to {@code participants} as before.
+ */
+@Component
+public class ParticipantArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticipantArchive.class);
+    // Competitions moved per transaction
+    private static final int BATCH_SIZE = 50;
+
+    private final ParticipantRepository participantRepository;
+    private final ArchivedParticipantRepository archivedParticipantRepository;
+    private final CompetitionRepository competitionRepository;
+    private final TransactionTemplate writeTx;
+    private final long graceMs;
+    private volatile boolean enabled;
+    private final Timer moveTime;
+    private final Counter moved;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("participant-archive").daemon().factory());
+
+    // Archived competition id -> participant count
+    private final Map<Long, Long> archived = new ConcurrentHashMap<>();
+    // Competitions whose move is running; their rows may be in either table until it commits
+    private final Set<Long> moving = ConcurrentHashMap.newKeySet();
+
+    public ParticipantArchive(ParticipantRepository participantRepository,
+                              ArchivedParticipantRepository archivedParticipantRepository,
+                              CompetitionRepository competitionRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${participants.archive.enabled:true}") boolean enabled,
+                              @Value("${participants.archive.grace-ms:300000}") long graceMs) {
+        this.participantRepository = participantRepository;
+        this.archivedParticipantRepository = archivedParticipantRepository;
+        this.competitionRepository = competitionRepository;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.graceMs = Math.max(0, graceMs);
+        this.moveTime = Timer.builder("participants.archive.duration")
+                .description("Time to move one batch of finished competitions to the archive").register(meterRegistry);
+        this.moved = Counter.builder("participants.archive.moved")
+                .description("Participants moved to the archive").register(meterRegistry);
+        Gauge.builder("participants.archive.competitions", archived, Map::size)
+                .description("Competitions whose participants are archived").register(meterRegistry);
+    }
+
+    // Before the leaderboards load, so finished boards are read from the right table
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reloadCounts();
+            log.info("Participants of {} finished competitions are archived", archived.size());
+        } catch (DataAccessException e) {
+            enabled = false;
+            log.warn("Participant archive disabled; apply db/participants_archive.sql to enable it", e);
+        }
+    }
+
+    /**
+     * Re-reads the archived competitions and their counts; called after an import wrote into the archive.
+     */
+    public void reloadCounts() {
+        if (!enabled) {
+            return;
+        }
+        for (Object[] row : archivedParticipantRepository.findArchivedCounts()) {
+            archived.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Catches up on competitions missed while down, and on rows imported into archived competitions
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSweeping() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::sweep, 0, Math.max(60_000, graceMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onCompetitionStatusChanged(CompetitionStatusChangedEvent event) {
+        if (enabled && !event.getFinishedIds().isEmpty()) {
+            List<Long> finished = event.getFinishedIds();
+            executor.schedule(() -> archive(finished), graceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * False when switched off or when {@code db/participants_archive.sql} has not been applied.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isArchived(Long competitionId) {
+        return archived.containsKey(competitionId);
+    }
+
+    /**
+     * Leaderboard rows of a competition, best ROI first, from whichever table holds it.
+     */
+    public List<LeaderboardRow> rows(Long competitionId) {
+        if (archived.containsKey(competitionId)) {
+            return archivedParticipantRepository.findRowsByCompetitionId(competitionId);
+        }
+        List<LeaderboardRow> rows = participantRepository.findRowsByCompetitionId(competitionId);
+        // Checked after the read: an empty result may mean the rows moved while it ran
+        if (rows.isEmpty() && movingOrArchived(competitionId)) {
+            return archivedParticipantRepository.findRowsByCompetitionId(competitionId);
+        }
+        return rows;
+    }
+
+    /**
+     * Cursor variant of {@link #rows(Long)}; must be consumed inside a transaction.
+     */
+    public Stream<LeaderboardRow> streamRows(Long competitionId) {
+        if (archived.containsKey(competitionId)) {
+            return archivedParticipantRepository.streamRowsByCompetitionId(competitionId);
+        }
+        Stream<LeaderboardRow> live = participantRepository.streamRowsByCompetitionId(competitionId);
+        Iterator<LeaderboardRow> rows = live.iterator();
+        if (!rows.hasNext() && movingOrArchived(competitionId)) {
+            live.close();
+            return archivedParticipantRepository.streamRowsByCompetitionId(competitionId);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)
+                .onClose(live::close);
+    }
+
+    /**
+     * Ids of every competition a user has joined, live ones first.
+     */
+    public List<Long> competitionIdsOf(String username) {
+        Set<Long> ids = new LinkedHashSet<>(participantRepository.findCompetitionIdsByUsername(username));
+        if (enabled && !(archived.isEmpty() && moving.isEmpty())) {
+            ids.addAll(archivedParticipantRepository.findCompetitionIdsByUsername(username));
+        }
+        return List.copyOf(ids);
+    }
+
+    /**
+     * Participant count of every competition that has any.
+     */
+    public Map<Long, Long> countAll() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : participantRepository.countAllByCompetition()) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        archived.forEach((id, count) -> counts.merge(id, count, Long::sum));
+        return counts;
+    }
+
+    /**
+     * Participant counts of the given competitions; only the live ones are counted in the database.
+     */
+    public Map<Long, Long> countIn(List<Competition> competitions) {
+        List<Competition> live = competitions.stream().filter(c -> !archived.containsKey(c.getId())).toList();
+        Map<Long, Long> counts = new HashMap<>();
+        if (!live.isEmpty()) {
+            for (Object[] row : participantRepository.countByCompetitionIn(live)) {
+                counts.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        for (Competition c : competitions) {
+            Long count = archived.get(c.getId());
+            if (count != null) {
+                counts.put(c.getId(), count);
+            }
+        }
+        return counts;
+    }
+
+    private boolean movingOrArchived(Long competitionId) {
+        return moving.contains(competitionId) || archived.containsKey(competitionId);
+    }
+
+    private void sweep() {
+        try {
+            archive(competitionRepository.findFinishedWithParticipants(
+                    LocalDateTime.now().minusNanos(graceMs * 1_000_000)));
+        } catch (RuntimeException e) {
+            log.warn("Participant archive sweep failed", e);
+        }
+    }
+
+    private void archive(List<Long> competitionIds) {
+        for (int from = 0; from < competitionIds.size(); from += BATCH_SIZE) {
+            List<Long> batch = competitionIds.subList(from, Math.min(competitionIds.size(), from + BATCH_SIZE));
+            moving.addAll(batch);
+            try {
+                long started = System.nanoTime();
+                Map<Long, Long> counts = new HashMap<>();
+                int rows = writeTx.execute(status -> {
+                    int n = archivedParticipantRepository.moveFromParticipants(batch);
+                    for (Object[] row : archivedParticipantRepository.recordArchived(batch)) {
+                        counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+                    }
+                    return n;
+                });
+                // Published only after the commit, and before the ids leave moving, so readers never miss the rows
+                archived.putAll(counts);
+                moveTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                moved.increment(rows);
+                log.info("Archived {} participants of {} finished competitions", rows, batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Archiving participants of competitions {} failed; the next sweep retries", batch, e);
+            } finally {
+                moving.removeAll(batch);
+            }
+        }
+    }
+}
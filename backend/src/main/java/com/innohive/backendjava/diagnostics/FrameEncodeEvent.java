@@ -0,0 +1,54 @@
+package com.innohive.backendjava.diagnostics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Map;
+
+/**
+ * JSON encoding of one WebSocket frame.
+ */
+@Name("com.innohive.trademini.FrameEncode")
+@Label("Frame Encode")
+@Category({"TradeMini", "WebSocket"})
+@Description("JSON encoding of one WebSocket frame")
+@StackTrace(false)
+public class FrameEncodeEvent extends Event {
+
+    @Label("Frame Type")
+    public String frameType;
+
+    @Label("Competition Id")
+    @Description("0 for frames that are not about one competition")
+    public long competitionId;
+
+    @Label("Size")
+    @Description("Length in characters, which is the size in bytes for ASCII frames")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Encodes a frame map, recording its {@code type} and {@code competitionId} when the event is enabled.
+     */
+    public static String encode(ObjectMapper objectMapper, Map<String, Object> frame) throws JsonProcessingException {
+        FrameEncodeEvent event = new FrameEncodeEvent();
+        event.begin();
+        String json = objectMapper.writeValueAsString(frame);
+        if (event.shouldCommit()) {
+            event.frameType = String.valueOf(frame.get("type"));
+            if (frame.get("competitionId") instanceof String id) {
+                event.competitionId = Long.parseLong(id);
+            }
+            event.bytes = json.length();
+            event.commit();
+        }
+        return json;
+    }
+}
@@ -0,0 +1,22 @@
+package com.innohive.backendjava.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Signature check and parse of one JWT, on HTTP requests and WebSocket handshakes alike.
+ */
+@Name("com.innohive.trademini.JwtValidation")
+@Label("JWT Validation")
+@Category({"TradeMini", "Security"})
+@Description("Signature check and parse of one JWT")
+@StackTrace(false)
+public class JwtValidationEvent extends Event {
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,119 @@
+package com.innohive.backendjava.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One on-demand Flight Recorder recording at a time, with the JDK's {@code default} or {@code profile} settings
+ * plus the application's events. Bounded in time and size, so a forgotten recording stops by itself and never
+ * fills the disk; it stays available for download until it is fetched or a new one starts.
+ */
+@Component
+public class ProfilingRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilingRecorder.class);
+    private static final List<Class<? extends Event>> EVENTS = List.of(TickEvent.class, FrameEncodeEvent.class,
+            SessionSendEvent.class, SnapshotBuildEvent.class, JwtValidationEvent.class);
+
+    public record Status(String state, String settings, String startedAt, long durationMs, long maxSizeBytes) {
+    }
+
+    private final long maxDurationMs;
+    private final long maxSizeBytes;
+    // Guarded by this
+    private Recording recording;
+    private String settings;
+
+    public ProfilingRecorder(@Value("${diagnostics.jfr.max-duration-ms:300000}") long maxDurationMs,
+                             @Value("${diagnostics.jfr.max-size-mb:100}") long maxSizeMb) {
+        this.maxDurationMs = Math.max(1000, maxDurationMs);
+        this.maxSizeBytes = Math.max(1, maxSizeMb) * 1024 * 1024;
+    }
+
+    /**
+     * Starts a recording that stops by itself after {@code durationMs}, capped at
+     * {@code diagnostics.jfr.max-duration-ms}. Throws {@link IllegalStateException} while another one runs.
+     */
+    public synchronized Status start(String settings, long durationMs) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("a recording is already running");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("settings must be default or profile");
+        }
+        discard();
+
+        Recording next = new Recording(configuration);
+        next.setName("trademini-admin");
+        next.setToDisk(true);
+        next.setMaxSize(maxSizeBytes);
+        next.setDuration(Duration.ofMillis(Math.min(Math.max(1000, durationMs), maxDurationMs)));
+        for (Class<? extends Event> event : EVENTS) {
+            next.enable(event).withThreshold(Duration.ZERO);
+        }
+        next.start();
+        recording = next;
+        this.settings = settings;
+        log.info("Started {} Flight Recorder recording for {} ms", settings, next.getDuration().toMillis());
+        return status();
+    }
+
+    /**
+     * Stops the recording if it still runs and writes it to a temporary file, which the caller deletes.
+     * Throws {@link IllegalStateException} when there is nothing to fetch.
+     */
+    public synchronized Path stop() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("no recording to stop");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("trademini-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        } finally {
+            discard();
+        }
+        return file;
+    }
+
+    public synchronized Status status() {
+        if (recording == null) {
+            return new Status("none", null, null, 0, maxSizeBytes);
+        }
+        Instant started = recording.getStartTime();
+        return new Status(recording.getState().name().toLowerCase(), settings,
+                started != null ? started.toString() : null, recording.getDuration().toMillis(), maxSizeBytes);
+    }
+
+    @PreDestroy
+    public synchronized void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            settings = null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.innohive.backendjava.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * Hand-off of one frame to a session; the duration is how long the sending thread was held.
+ */
+@Name("com.innohive.trademini.SessionSend")
+@Label("Session Send")
+@Category({"TradeMini", "WebSocket"})
+@Description("Hand-off of one frame to a WebSocket session")
+@StackTrace(false)
+public class SessionSendEvent extends Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Size")
+    @Description("Length in characters, which is the size in bytes for ASCII frames")
+    @DataAmount
+    public long bytes;
+
+    @Label("Buffered")
+    @Description("Bytes queued for the session after the hand-off")
+    @DataAmount
+    public long bufferedBytes;
+
+    /**
+     * Sends the message, recording the hand-off when the event is enabled.
+     */
+    public static void send(WebSocketSession session, TextMessage message) throws IOException {
+        SessionSendEvent event = new SessionSendEvent();
+        event.begin();
+        session.sendMessage(message);
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.bytes = message.getPayload().length();
+            if (session instanceof ConcurrentWebSocketSessionDecorator decorator) {
+                event.bufferedBytes = decorator.getBufferSize();
+            }
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.innohive.backendjava.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Build of a competition's snapshot frame, done once per board version.
+ */
+@Name("com.innohive.trademini.SnapshotBuild")
+@Label("Snapshot Build")
+@Category({"TradeMini", "Leaderboard"})
+@Description("Build of a competition's leaderboard snapshot frame")
+@StackTrace(false)
+public class SnapshotBuildEvent extends Event {
+
+    @Label("Competition Id")
+    public long competitionId;
+
+    @Label("Participants")
+    public int participants;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
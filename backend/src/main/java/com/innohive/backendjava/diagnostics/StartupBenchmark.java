@@ -0,0 +1,159 @@
+package com.innohive.backendjava.diagnostics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures how long a new node takes to serve WebSocket clients: starts the server command given after
+ * {@code --} several times and reports, from process launch, when the {@code /ws} handshake first succeeds, when
+ * the first frame arrives and when the first leaderboard snapshot arrives. Compare the plain jar with the
+ * {@code fast-startup} build:
+ * <pre>
+ * java -cp backend.jar -Dloader.main=com.innohive.backendjava.diagnostics.StartupBenchmark \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher [--runs 5] [--port 4000] [--timeout-ms 120000] \
+ *      -- java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar backend-java-0.0.1-SNAPSHOT.jar
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    // Answered straight from the handler, so a frame arrives even when there are no competitions to snapshot
+    private static final String PROBE = "{\"type\":\"delivery\",\"mode\":\"stream\"}";
+    private static final long SNAPSHOT_WAIT_MS = 10_000;
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Milliseconds from process launch; {@code firstSnapshotMs} is -1 when none arrived.
+     */
+    public record Run(long handshakeMs, long firstFrameMs, long firstSnapshotMs) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        if (separator < 0 || separator == args.length - 1) {
+            System.err.println("usage: StartupBenchmark [--runs n] [--port p] [--timeout-ms t] -- <server command>");
+            System.exit(2);
+        }
+        int runs = 5;
+        int port = 4000;
+        long timeoutMs = 120_000;
+        for (int i = 0; i + 1 < separator; i += 2) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--timeout-ms" -> timeoutMs = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        List<String> command = List.of(args).subList(separator + 1, args.length);
+
+        List<Run> results = new ArrayList<>(runs);
+        for (int i = 1; i <= runs; i++) {
+            Run run = measure(command, URI.create("ws://localhost:" + port + "/ws"), timeoutMs);
+            results.add(run);
+            System.out.printf("run %d: handshake %d ms, first frame %d ms, first snapshot %s%n", i,
+                    run.handshakeMs(), run.firstFrameMs(),
+                    run.firstSnapshotMs() >= 0 ? run.firstSnapshotMs() + " ms" : "none");
+        }
+        System.out.printf("median of %d: handshake %d ms, first frame %d ms, first snapshot %s%n", runs,
+                median(results, Run::handshakeMs), median(results, Run::firstFrameMs),
+                results.stream().allMatch(r -> r.firstSnapshotMs() >= 0)
+                        ? median(results, Run::firstSnapshotMs) + " ms" : "none");
+    }
+
+    public static Run measure(List<String> command, URI uri, long timeoutMs) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        long launched = System.nanoTime();
+        long deadline = launched + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Process server = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            FrameListener listener = new FrameListener();
+            WebSocket webSocket = null;
+            while (webSocket == null) {
+                if (!server.isAlive()) {
+                    throw new IllegalStateException("server exited with status " + server.exitValue());
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new TimeoutException("no WebSocket handshake within " + timeoutMs + " ms");
+                }
+                try {
+                    webSocket = client.newWebSocketBuilder()
+                            .connectTimeout(Duration.ofSeconds(1))
+                            .buildAsync(uri, listener)
+                            .get(2, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    // Not listening yet
+                    Thread.sleep(20);
+                }
+            }
+            long handshake = System.nanoTime();
+            webSocket.sendText(PROBE, true);
+
+            long remaining = Math.max(1, deadline - System.nanoTime());
+            long firstFrame = listener.firstFrame.get(remaining, TimeUnit.NANOSECONDS);
+            long firstSnapshot;
+            try {
+                firstSnapshot = listener.firstSnapshot.get(SNAPSHOT_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                firstSnapshot = -1;
+            }
+            webSocket.abort();
+            return new Run(millisSince(launched, handshake), millisSince(launched, firstFrame),
+                    firstSnapshot >= 0 ? millisSince(launched, firstSnapshot) : -1);
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long millisSince(long from, long to) {
+        return TimeUnit.NANOSECONDS.toMillis(to - from);
+    }
+
+    private static long median(List<Run> runs, ToLongFunction<Run> metric) {
+        long[] values = runs.stream().mapToLong(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    /**
+     * Records the arrival time of the first complete frame and of the first snapshot frame.
+     */
+    private static final class FrameListener implements WebSocket.Listener {
+
+        private final CompletableFuture<Long> firstFrame = new CompletableFuture<>();
+        private final CompletableFuture<Long> firstSnapshot = new CompletableFuture<>();
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                long now = System.nanoTime();
+                firstFrame.complete(now);
+                if (partial.indexOf("\"type\":\"snapshot\"") >= 0) {
+                    firstSnapshot.complete(now);
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+}
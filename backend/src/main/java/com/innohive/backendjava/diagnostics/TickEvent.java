@@ -0,0 +1,36 @@
+package com.innohive.backendjava.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One score tick of a competition on its shard thread, from picking the changes to handing off the frames.
+ */
+@Name("com.innohive.trademini.Tick")
+@Label("Leaderboard Tick")
+@Category({"TradeMini", "Leaderboard"})
+@Description("Score tick of one competition on its shard thread")
+@StackTrace(false)
+public class TickEvent extends Event {
+
+    @Label("Competition Id")
+    public long competitionId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("Updates")
+    @Description("Participants whose score changed in the tick")
+    public int updates;
+
+    @Label("Subscribers")
+    public int subscribers;
+
+    @Label("Backlog")
+    @Description("Share of streaming subscribers whose previous frames were still queued")
+    public double backlog;
+}
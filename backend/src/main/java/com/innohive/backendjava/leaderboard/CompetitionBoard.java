@@ -0,0 +1,398 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * In-memory leaderboard of a single competition. Every mutation bumps {@link #version()}, and the ranked view
+ * is rebuilt lazily at most once per version however many readers ask for it.
+ * <p>
+ * In {@link RankingMode#EXACT} mode every entry is also kept in a {@link RankTree}, updated per change, so a
+ * rank or the score at a rank costs O(log n) and the ranked view is read off in order rather than sorted.
+ * In {@link RankingMode#APPROXIMATE} mode the board no longer orders everyone: it keeps the top K in a sorted
+ * set, updated per change, and all scores in a {@link ScoreHistogram}. Ranks inside the top K stay exact;
+ * below it they are estimated from the histogram.
+ * <p>
+ * In either mode the board also keeps the sum of all scores, the number in profit and a coarse fixed-width
+ * histogram, updated per change, so {@link #stats()} never scans or sorts the entries.
+ * <p>
+ * Not thread-safe: a board is owned by its {@link LeaderboardShard} and only touched on that shard's thread.
+ * {@link #version()} alone may be read from anywhere.
+ */
+public class CompetitionBoard {
+
+    // Best ROI first; participant id keeps the order total and stable
+    // 5.00 ROI points per distribution bucket and three paid places unless configured otherwise
+    static final long DEFAULT_DISTRIBUTION_WIDTH = 500;
+    static final int DEFAULT_PRIZE_PLACES = 3;
+
+    public static final Comparator<LeaderboardEntry> RANKING = Comparator
+            .comparingLong(LeaderboardEntry::scaledRoi).reversed()
+            .thenComparingLong(LeaderboardEntry::participantId);
+
+    private final long competitionId;
+    private final Map<Long, LeaderboardEntry> entries = new HashMap<>();
+    private final Map<String, LeaderboardEntry> byUsername = new HashMap<>();
+    private volatile long version;
+    // Sequence of the last event-log entry reflected in this board, 0 when unknown
+    private long lastSequence;
+
+    private long rankedVersion = -1;
+    private List<LeaderboardEntry> ranked = List.of();
+    private Map<String, Integer> positions = Map.of();
+
+    private RankingMode rankingMode = RankingMode.EXACT;
+    // Exact mode: every entry in ranking order
+    private RankTree<LeaderboardEntry> order = new RankTree<>(RANKING);
+    private int topK;
+    // Approximate mode: the best top.size() entries, holding up to topK plus some slack so that entries
+    // dropping out do not force a rescan every time
+    private TreeSet<LeaderboardEntry> top;
+    private ScoreHistogram histogram;
+
+    private ScoreHistogram distribution = new ScoreHistogram(DEFAULT_DISTRIBUTION_WIDTH);
+    private long scoreSum;
+    private int inProfit;
+    private int prizePlaces = DEFAULT_PRIZE_PLACES;
+
+    public CompetitionBoard(long competitionId, long version, Collection<LeaderboardEntry> initial) {
+        this.competitionId = competitionId;
+        this.version = version;
+        for (LeaderboardEntry e : initial) {
+            LeaderboardEntry previous = entries.put(e.participantId(), e);
+            byUsername.put(e.username(), e);
+            aggregate(previous, e);
+            reorder(previous, e);
+        }
+    }
+
+    public long competitionId() {
+        return competitionId;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public void markSequence(long sequence) {
+        lastSequence = Math.max(lastSequence, sequence);
+    }
+
+    public LeaderboardEntry entry(long participantId) {
+        return entries.get(participantId);
+    }
+
+    public LeaderboardEntry entryOf(String username) {
+        return byUsername.get(username);
+    }
+
+    public RankingMode rankingMode() {
+        return rankingMode;
+    }
+
+    /**
+     * Exactly ranked head size in approximate mode, or 0 in exact mode.
+     */
+    public int topK() {
+        return rankingMode == RankingMode.APPROXIMATE ? topK : 0;
+    }
+
+    /**
+     * Histogram of all scores in approximate mode, or null in exact mode.
+     */
+    public ScoreHistogram histogram() {
+        return histogram;
+    }
+
+    public long distributionWidth() {
+        return distribution.bucketWidth();
+    }
+
+    public List<LeaderboardEntry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Switches the ranking structure. Exact mode drops the top set and histogram and orders every entry;
+     * approximate mode drops that order and builds the top set and histogram. Either is built once from the
+     * current entries and maintained per change from then on.
+     */
+    public void useRanking(RankingMode mode, int topK, long bucketWidth) {
+        this.rankingMode = mode;
+        this.topK = topK;
+        this.rankedVersion = -1;
+        this.ranked = List.of();
+        this.positions = Map.of();
+        if (mode == RankingMode.EXACT) {
+            top = null;
+            histogram = null;
+            order = new RankTree<>(RANKING);
+            for (LeaderboardEntry e : entries.values()) {
+                order.add(e);
+            }
+            return;
+        }
+        order = null;
+        top = new TreeSet<>(RANKING);
+        histogram = new ScoreHistogram(bucketWidth);
+        for (LeaderboardEntry e : entries.values()) {
+            histogram.add(e.scaledRoi());
+        }
+        refillTop();
+    }
+
+    /**
+     * Sets the bucket width of the {@link #stats()} histogram, rebuilding it once if the width changes, and the
+     * number of paid places the prize cutoff refers to.
+     */
+    public void useStatistics(long bucketWidth, int prizePlaces) {
+        this.prizePlaces = prizePlaces;
+        if (bucketWidth == distribution.bucketWidth()) {
+            return;
+        }
+        distribution = new ScoreHistogram(bucketWidth);
+        for (LeaderboardEntry e : entries.values()) {
+            distribution.add(e.scaledRoi());
+        }
+    }
+
+    /**
+     * Adds or replaces entries as one change, i.e. a single version bump.
+     */
+    public void putAll(Collection<LeaderboardEntry> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (LeaderboardEntry e : changed) {
+            LeaderboardEntry previous = entries.put(e.participantId(), e);
+            byUsername.put(e.username(), e);
+            aggregate(previous, e);
+            if (rankingMode == RankingMode.APPROXIMATE) {
+                track(previous, e);
+            } else {
+                reorder(previous, e);
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Swaps in a complete new set of entries, moving the version past both the current one and {@code minVersion}.
+     */
+    public void replaceWith(Collection<LeaderboardEntry> replacement, long minVersion) {
+        entries.clear();
+        byUsername.clear();
+        distribution.clear();
+        scoreSum = 0;
+        inProfit = 0;
+        for (LeaderboardEntry e : replacement) {
+            LeaderboardEntry previous = entries.put(e.participantId(), e);
+            byUsername.put(e.username(), e);
+            aggregate(previous, e);
+        }
+        if (rankingMode == RankingMode.APPROXIMATE) {
+            useRanking(rankingMode, topK, histogram.bucketWidth());
+        } else {
+            useRanking(rankingMode, topK, 0);
+        }
+        version = Math.max(version, minVersion) + 1;
+    }
+
+    /**
+     * The exactly ranked head sorted by {@link #RANKING}: the whole board in exact mode, the top K in
+     * approximate mode. The returned list is shared and must not be modified.
+     */
+    public List<LeaderboardEntry> ranked() {
+        refreshRanking();
+        return ranked;
+    }
+
+    /**
+     * Zero-based position of the user within {@link #ranked()}, or -1 when they have not joined or, in
+     * approximate mode, rank below the top K.
+     */
+    public int positionOf(String username) {
+        if (rankingMode == RankingMode.EXACT) {
+            LeaderboardEntry entry = byUsername.get(username);
+            return entry != null ? order.indexOf(entry) : -1;
+        }
+        refreshRanking();
+        return positions.getOrDefault(username, -1);
+    }
+
+    /**
+     * Rank of the user, or null when they have not joined. Exact in exact mode and within the top K; below
+     * that the rank is estimated from the user's histogram bucket, with the bucket's half-width as error.
+     */
+    public RankEstimate rankOf(String username) {
+        LeaderboardEntry entry = byUsername.get(username);
+        if (entry == null) {
+            return null;
+        }
+        int position = positionOf(username);
+        if (position >= 0) {
+            return RankEstimate.exact(position + 1, entries.size());
+        }
+
+        long bucket = histogram.bucketOf(entry.scaledRoi());
+        int above = histogram.countAbove(bucket);
+        int inBucket = histogram.countIn(bucket);
+        // The true rank lies in [lowest, highest]; nobody outside the top K can rank inside it
+        int lowest = Math.max(above + 1, ranked.size() + 1);
+        int highest = Math.max(lowest, above + inBucket);
+        int estimate = (lowest + highest) / 2;
+        return new RankEstimate(estimate, highest - estimate, entries.size(), lowest == highest);
+    }
+
+    /**
+     * Mean, median, share in profit, prize cutoff and histogram of the board's scores. Aggregates come from
+     * the per-change counters. In exact mode the median and cutoff are read from the rank tree in O(log n);
+     * in approximate mode from the top K when they fall inside it and interpolated from the ranking histogram
+     * otherwise. Beyond that this costs O(buckets).
+     */
+    public CompetitionStats stats() {
+        int n = entries.size();
+        if (n == 0) {
+            return new CompetitionStats(0, null, null, 0.0, prizePlaces, null, false, List.of());
+        }
+        // Exactly known ranks: all of them in exact mode, the top K otherwise
+        int exact = rankingMode == RankingMode.EXACT ? n : ranked().size();
+
+        // Middle rank, or the two middle ranks of an even field, counted from the top
+        int upper = (n + 1) / 2;
+        int lower = n / 2 + 1;
+        boolean approximate = lower > exact;
+        long median = (scoreAtRank(upper) + scoreAtRank(lower)) / 2;
+
+        BigDecimal cutoff = null;
+        if (prizePlaces > 0) {
+            int place = Math.min(prizePlaces, n);
+            approximate |= place > exact;
+            cutoff = BigDecimal.valueOf(scoreAtRank(place), LeaderboardEntry.ROI_SCALE);
+        }
+
+        List<CompetitionStats.Bucket> buckets = new ArrayList<>(distribution.buckets());
+        distribution.descending().forEach((from, count) -> buckets.add(new CompetitionStats.Bucket(
+                BigDecimal.valueOf(from, LeaderboardEntry.ROI_SCALE),
+                BigDecimal.valueOf(from + distribution.bucketWidth(), LeaderboardEntry.ROI_SCALE),
+                count)));
+
+        return new CompetitionStats(
+                n,
+                BigDecimal.valueOf(Math.round((double) scoreSum / n), LeaderboardEntry.ROI_SCALE),
+                BigDecimal.valueOf(median, LeaderboardEntry.ROI_SCALE),
+                Math.round(inProfit * 1000.0 / n) / 10.0,
+                prizePlaces,
+                cutoff,
+                approximate,
+                buckets);
+    }
+
+    // 1-based; exact within the known ranks, interpolated from the ranking histogram below them
+    private long scoreAtRank(int rank) {
+        if (rankingMode == RankingMode.EXACT) {
+            return order.get(rank - 1).scaledRoi();
+        }
+        return rank <= ranked.size() ? ranked.get(rank - 1).scaledRoi() : histogram.scoreAtRank(rank);
+    }
+
+    private void reorder(LeaderboardEntry previous, LeaderboardEntry next) {
+        if (previous != null) {
+            order.remove(previous);
+        }
+        order.add(next);
+    }
+
+    private void aggregate(LeaderboardEntry previous, LeaderboardEntry next) {
+        if (previous != null) {
+            distribution.remove(previous.scaledRoi());
+            scoreSum -= previous.scaledRoi();
+            if (previous.scaledRoi() > 0) {
+                inProfit--;
+            }
+        }
+        distribution.add(next.scaledRoi());
+        scoreSum += next.scaledRoi();
+        if (next.scaledRoi() > 0) {
+            inProfit++;
+        }
+    }
+
+    private void track(LeaderboardEntry previous, LeaderboardEntry next) {
+        if (previous != null) {
+            histogram.remove(previous.scaledRoi());
+            top.remove(previous);
+        }
+        histogram.add(next.scaledRoi());
+
+        // top holds the best top.size() entries; a newcomer only joins if it beats the current worst of them,
+        // or if top already holds everyone else
+        if (top.size() >= entries.size() - 1 || (!top.isEmpty() && RANKING.compare(next, top.last()) < 0)) {
+            top.add(next);
+            if (top.size() > capacity()) {
+                top.pollLast();
+            }
+        }
+    }
+
+    private int capacity() {
+        return topK + Math.max(16, topK / 4);
+    }
+
+    // O(n log K) selection of the best entries; only needed when the head has drained below K
+    private void refillTop() {
+        PriorityQueue<LeaderboardEntry> worstFirst = new PriorityQueue<>(RANKING.reversed());
+        int capacity = capacity();
+        for (LeaderboardEntry e : entries.values()) {
+            worstFirst.add(e);
+            if (worstFirst.size() > capacity) {
+                worstFirst.poll();
+            }
+        }
+        top.clear();
+        top.addAll(worstFirst);
+    }
+
+    private void refreshRanking() {
+        if (rankedVersion == version) {
+            return;
+        }
+        List<LeaderboardEntry> sorted;
+        if (rankingMode == RankingMode.APPROXIMATE) {
+            if (top.size() < Math.min(topK, entries.size())) {
+                refillTop();
+            }
+            sorted = new ArrayList<>(Math.min(topK, top.size()));
+            Iterator<LeaderboardEntry> it = top.iterator();
+            while (it.hasNext() && sorted.size() < topK) {
+                sorted.add(it.next());
+            }
+        } else {
+            // Already in order; no sort
+            sorted = order.head(entries.size());
+        }
+        Map<String, Integer> index = new HashMap<>(sorted.size() * 2);
+        for (int i = 0; i < sorted.size(); i++) {
+            index.put(sorted.get(i).username(), i);
+        }
+        ranked = List.copyOf(sorted);
+        positions = index;
+        rankedVersion = version;
+    }
+}
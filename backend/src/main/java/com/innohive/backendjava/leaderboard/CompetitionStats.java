@@ -0,0 +1,26 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * ROI distribution of one competition, read from the aggregates its board maintains per change. Mean and
+ * share in profit are exact. The median and the prize cutoff (score of the last paid place) are exact when
+ * they fall within the board's exactly ranked head and interpolated from the histogram otherwise, which sets
+ * {@code approximate}. {@code histogram} lists the non-empty fixed-width buckets from the highest down.
+ */
+public record CompetitionStats(int participants,
+                               BigDecimal mean,
+                               BigDecimal median,
+                               double inProfitPercent,
+                               int prizePlaces,
+                               BigDecimal prizeCutoff,
+                               boolean approximate,
+                               List<Bucket> histogram) {
+
+    /**
+     * Scores in {@code [from, to)}.
+     */
+    public record Bucket(BigDecimal from, BigDecimal to, int count) {
+    }
+}
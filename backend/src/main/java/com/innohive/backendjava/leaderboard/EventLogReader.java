@@ -0,0 +1,184 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Sequential reader over the segments written by {@link LeaderboardEventLog}. Segments are memory-mapped and
+ * records are exposed through a reusable {@link Cursor}, so events the caller skips cost no allocation and a
+ * scan runs at memory speed rather than per-object speed.
+ * <p>
+ * Segment layout (big-endian): {@code magic:int, format:int, firstSequence:long}, then records of
+ * {@code length:int, crc32c:int, body} where body is {@code type:byte, sequence:long, timestamp:long,
+ * competitionId:long, participantId:long, scaledRoi:long, delta:long, nameLength:short, name:utf8}.
+ * A record whose length or checksum does not add up marks the end of the valid data in that segment.
+ */
+public final class EventLogReader {
+
+    static final int SEGMENT_MAGIC = 0x4C424556; // "LBEV"
+    static final int SEGMENT_FORMAT = 1;
+    static final int SEGMENT_HEADER_BYTES = 4 + 4 + 8;
+    static final int RECORD_HEADER_BYTES = 4 + 4;
+    static final int BODY_FIXED_BYTES = 1 + 8 * 6 + 2;
+    static final String SEGMENT_PREFIX = "events-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private EventLogReader() {
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Returns false to stop the scan.
+         */
+        boolean visit(Cursor event);
+    }
+
+    /**
+     * Flyweight view of the current record. Valid only during {@link Visitor#visit}.
+     */
+    public static final class Cursor {
+        private ByteBuffer buf;
+        private int body;
+
+        public LeaderboardEvent.Type type() {
+            return LeaderboardEvent.Type.of(buf.get(body));
+        }
+
+        public long sequence() {
+            return buf.getLong(body + 1);
+        }
+
+        public long timestamp() {
+            return buf.getLong(body + 9);
+        }
+
+        public long competitionId() {
+            return buf.getLong(body + 17);
+        }
+
+        public long participantId() {
+            return buf.getLong(body + 25);
+        }
+
+        public long scaledRoi() {
+            return buf.getLong(body + 33);
+        }
+
+        public long delta() {
+            return buf.getLong(body + 41);
+        }
+
+        public String username() {
+            int length = Short.toUnsignedInt(buf.getShort(body + 49));
+            byte[] name = new byte[length];
+            buf.get(body + BODY_FIXED_BYTES, name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        public LeaderboardEvent toEvent() {
+            return new LeaderboardEvent(type(), sequence(), timestamp(), competitionId(), participantId(),
+                    username(), scaledRoi(), delta());
+        }
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Segment files of the log, oldest first.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String n = p.getFileName().toString();
+                        return n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(EventLogReader::firstSequenceOf))
+                    .toList();
+        }
+    }
+
+    /**
+     * Visits every valid event with a sequence above {@code afterSequence}, in log order. Returns how many
+     * records were visited.
+     */
+    public static long scan(Path directory, long afterSequence, Visitor visitor) throws IOException {
+        List<Path> segments = segments(directory);
+        Cursor cursor = new Cursor();
+        CRC32C crc = new CRC32C();
+        long visited = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            // Whole segment lies at or before the start point when the next one begins no later than it
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buf.limit() < SEGMENT_HEADER_BYTES || buf.getInt(0) != SEGMENT_MAGIC
+                        || buf.getInt(4) != SEGMENT_FORMAT) {
+                    throw new IOException("unrecognised event log segment " + segments.get(i));
+                }
+                cursor.buf = buf;
+                ByteBuffer view = buf.duplicate();
+                int position = SEGMENT_HEADER_BYTES;
+                while (true) {
+                    int end = validRecordEnd(buf, view, position, crc);
+                    if (end < 0) {
+                        break;
+                    }
+                    cursor.body = position + RECORD_HEADER_BYTES;
+                    if (cursor.sequence() > afterSequence) {
+                        visited++;
+                        if (!visitor.visit(cursor)) {
+                            return visited;
+                        }
+                    }
+                    position = end;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * End offset of the record starting at {@code position}, or -1 when there is no complete, intact record
+     * there (end of data or a torn write).
+     */
+    static int validRecordEnd(ByteBuffer buf, ByteBuffer view, int position, CRC32C crc) {
+        if (position + RECORD_HEADER_BYTES + BODY_FIXED_BYTES > buf.limit()) {
+            return -1;
+        }
+        int length = buf.getInt(position);
+        if (length < BODY_FIXED_BYTES || position + RECORD_HEADER_BYTES + (long) length > buf.limit()) {
+            return -1;
+        }
+        crc.reset();
+        view.limit(position + RECORD_HEADER_BYTES + length).position(position + RECORD_HEADER_BYTES);
+        crc.update(view);
+        if ((int) crc.getValue() != buf.getInt(position + 4)) {
+            return -1;
+        }
+        return position + RECORD_HEADER_BYTES + length;
+    }
+}
@@ -0,0 +1,404 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innohive.backendjava.diagnostics.FrameEncodeEvent;
+import com.innohive.backendjava.diagnostics.SessionSendEvent;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.scheduler.CompetitionStatusChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking of traders across all active competitions, by average or by best ROI. It is fed the same deltas the
+ * shards publish in {@code score_update} frames and seeded from the in-memory boards when a competition
+ * becomes active, so it never queries participants. Each delta costs O(log n): a trader's per-competition
+ * scores, sum and best are kept up to date and one {@link RankTree} per metric re-sorts just that trader.
+ * <p>
+ * Everything is owned by one dedicated thread, like a shard; updates are queued to it and queries complete on
+ * it. Sessions subscribed to a metric get a {@code global_update} frame with the top N at most once per
+ * {@code leaderboard.global.publish-ms} when it changed.
+ */
+@Component
+public class GlobalRanking {
+
+    private static final Logger log = LoggerFactory.getLogger(GlobalRanking.class);
+
+    public enum Metric {
+        AVERAGE,
+        BEST;
+
+        public static Metric of(String value) {
+            return switch (value.toLowerCase()) {
+                case "average" -> AVERAGE;
+                case "best" -> BEST;
+                default -> throw new IllegalArgumentException("unknown metric " + value);
+            };
+        }
+    }
+
+    /**
+     * One trader's place; {@code score} is their average or best ROI over {@code competitions} active
+     * competitions.
+     */
+    public record Standing(int rank, String name, BigDecimal score, int competitions) {
+    }
+
+    public record Top(Metric metric, int total, List<Standing> traders) {
+    }
+
+    private final CompetitionRepository competitionRepository;
+    private final LeaderboardStore leaderboardStore;
+    private final long publishMs;
+    private final int maxTop;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("leaderboard-global").daemon().factory());
+
+    // Confined to the executor thread
+    private final Set<Long> active = new HashSet<>();
+    private final Map<Long, Set<String>> members = new HashMap<>();
+    private final Map<String, Trader> traders = new HashMap<>();
+    private final Map<Metric, RankTree<Trader.Key>> trees = new HashMap<>();
+    private long version;
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+    private final Map<Subscription.Group, List<Standing>> published = new HashMap<>();
+    private long publishedVersion = -1;
+
+    public GlobalRanking(CompetitionRepository competitionRepository,
+                         LeaderboardStore leaderboardStore,
+                         @Value("${leaderboard.global.publish-ms:1000}") long publishMs,
+                         @Value("${leaderboard.global.max-top:100}") int maxTop) {
+        this.competitionRepository = competitionRepository;
+        this.leaderboardStore = leaderboardStore;
+        this.publishMs = Math.max(50, publishMs);
+        this.maxTop = Math.max(1, maxTop);
+        for (Metric metric : Metric.values()) {
+            trees.put(metric, new RankTree<>(Trader.Key.ORDER));
+        }
+    }
+
+    private static final class Trader {
+        private final String username;
+        private final Map<Long, Long> scores = new HashMap<>(4);
+        private long sum;
+        private long best = Long.MIN_VALUE;
+        // Keys currently in the trees, null while not ranked
+        private Key averageKey;
+        private Key bestKey;
+
+        private Trader(String username) {
+            this.username = username;
+        }
+
+        long average() {
+            return Math.round((double) sum / scores.size());
+        }
+
+        record Key(long value, String username) {
+            static final Comparator<Key> ORDER = Comparator.comparingLong(Key::value).reversed()
+                    .thenComparing(Key::username);
+        }
+    }
+
+    private record Subscription(WebSocketSession session, Metric metric, int top) {
+        record Group(Metric metric, int top) {
+        }
+
+        Group group() {
+            return new Group(metric, top);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::publish, publishMs, publishMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // One query for the active ids at startup; the boards themselves are already in memory or loading
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        Thread.ofVirtual().name("global-ranking-seed").start(() -> {
+            try {
+                for (Competition c : competitionRepository.findByStatus("active")) {
+                    activate(c.getId());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Seeding the global ranking failed", e);
+            }
+        });
+    }
+
+    /**
+     * Re-reads every active board now and then. Boards replaced wholesale (reconcile, checkpoint) publish no
+     * deltas, and a status change could be missed; this bounds how long either can leave the ranking off.
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.global.reseed-ms:300000}",
+            initialDelayString = "${leaderboard.global.reseed-ms:300000}")
+    public void reseed() {
+        Set<Long> ids = new HashSet<>();
+        for (Competition c : competitionRepository.findByStatus("active")) {
+            ids.add(c.getId());
+            activate(c.getId());
+        }
+        executor.execute(() -> {
+            for (Long id : new ArrayList<>(active)) {
+                if (!ids.contains(id)) {
+                    deactivate(id);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onCompetitionStatusChanged(CompetitionStatusChangedEvent event) {
+        event.getActivatedIds().forEach(this::activate);
+        event.getFinishedIds().forEach(id -> executor.execute(() -> deactivate(id)));
+    }
+
+    /**
+     * Applies score changes of a competition as published by its shard. Called on the shard thread, which
+     * keeps them in order with the seed of the same competition; changes of inactive competitions are ignored.
+     */
+    public void offer(long competitionId, List<LeaderboardEntry> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            if (!active.contains(competitionId)) {
+                return;
+            }
+            for (LeaderboardEntry e : changed) {
+                put(e.username(), competitionId, e.scaledRoi());
+            }
+            version++;
+        });
+    }
+
+    /**
+     * The best {@code k} traders by the metric, at most {@code leaderboard.global.max-top}.
+     */
+    public CompletableFuture<Top> top(Metric metric, int k) {
+        return CompletableFuture.supplyAsync(() -> topNow(metric, Math.min(k, maxTop)), executor);
+    }
+
+    /**
+     * The user's place by the metric, or null when they are in no active competition.
+     */
+    public CompletableFuture<Standing> rankOf(Metric metric, String username) {
+        return CompletableFuture.supplyAsync(() -> {
+            Trader trader = traders.get(username);
+            if (trader == null) {
+                return null;
+            }
+            Trader.Key key = metric == Metric.AVERAGE ? trader.averageKey : trader.bestKey;
+            return standing(trees.get(metric).indexOf(key) + 1, trader, key);
+        }, executor);
+    }
+
+    public int maxTop() {
+        return maxTop;
+    }
+
+    /**
+     * Sends the session the current top N by the metric and then a {@code global_update} whenever it changes.
+     * Replaces an earlier subscription of the same session.
+     */
+    public void subscribe(WebSocketSession session, Metric metric, int top) {
+        Subscription subscription = new Subscription(session, metric, Math.max(1, Math.min(top, maxTop)));
+        executor.execute(() -> {
+            subscriptions.put(session.getId(), subscription);
+            Top current = topNow(metric, subscription.top());
+            published.put(subscription.group(), current.traders());
+            send(List.of(session), frame(current));
+        });
+    }
+
+    public void unsubscribe(String sessionId) {
+        executor.execute(() -> subscriptions.remove(sessionId));
+    }
+
+    private void activate(long competitionId) {
+        // Read on the shard thread and queued from there, so no delta of this board can overtake the seed
+        leaderboardStore.withBoard(competitionId, board -> {
+            List<LeaderboardEntry> entries = board.entries();
+            executor.execute(() -> seed(competitionId, entries));
+            return null;
+        });
+    }
+
+    private void seed(long competitionId, Collection<LeaderboardEntry> entries) {
+        if (active.contains(competitionId)) {
+            deactivate(competitionId);
+        }
+        active.add(competitionId);
+        for (LeaderboardEntry e : entries) {
+            put(e.username(), competitionId, e.scaledRoi());
+        }
+        version++;
+    }
+
+    private void deactivate(long competitionId) {
+        if (!active.remove(competitionId)) {
+            return;
+        }
+        Set<String> usernames = members.remove(competitionId);
+        if (usernames != null) {
+            for (String username : usernames) {
+                put(username, competitionId, null);
+            }
+        }
+        version++;
+    }
+
+    // Sets (or with null, drops) one competition score of a trader and re-ranks them; executor thread only
+    private void put(String username, long competitionId, Long scaledRoi) {
+        Trader trader = traders.get(username);
+        if (trader == null) {
+            if (scaledRoi == null) {
+                return;
+            }
+            trader = new Trader(username);
+            traders.put(username, trader);
+        }
+        if (trader.averageKey != null) {
+            trees.get(Metric.AVERAGE).remove(trader.averageKey);
+            trees.get(Metric.BEST).remove(trader.bestKey);
+        }
+
+        Long previous;
+        if (scaledRoi != null) {
+            previous = trader.scores.put(competitionId, scaledRoi);
+            members.computeIfAbsent(competitionId, id -> new HashSet<>()).add(username);
+        } else {
+            previous = trader.scores.remove(competitionId);
+        }
+        if (previous != null) {
+            trader.sum -= previous;
+        }
+        if (scaledRoi != null) {
+            trader.sum += scaledRoi;
+        }
+        if (scaledRoi != null && scaledRoi >= trader.best) {
+            trader.best = scaledRoi;
+        } else if (previous != null && previous == trader.best) {
+            // The best score went down or away; a trader is in few competitions, so rescanning is cheap
+            trader.best = trader.scores.values().stream().mapToLong(Long::longValue).max().orElse(Long.MIN_VALUE);
+        }
+
+        if (trader.scores.isEmpty()) {
+            traders.remove(username);
+            trader.averageKey = null;
+            trader.bestKey = null;
+            return;
+        }
+        trader.averageKey = new Trader.Key(trader.average(), username);
+        trader.bestKey = new Trader.Key(trader.best, username);
+        trees.get(Metric.AVERAGE).add(trader.averageKey);
+        trees.get(Metric.BEST).add(trader.bestKey);
+    }
+
+    private Top topNow(Metric metric, int k) {
+        RankTree<Trader.Key> tree = trees.get(metric);
+        List<Trader.Key> head = tree.head(k);
+        List<Standing> standings = new ArrayList<>(head.size());
+        for (int i = 0; i < head.size(); i++) {
+            Trader.Key key = head.get(i);
+            standings.add(standing(i + 1, traders.get(key.username()), key));
+        }
+        return new Top(metric, tree.size(), standings);
+    }
+
+    private static Standing standing(int rank, Trader trader, Trader.Key key) {
+        return new Standing(rank, trader.username, BigDecimal.valueOf(key.value(), LeaderboardEntry.ROI_SCALE),
+                trader.scores.size());
+    }
+
+    // Executor thread; one encode per (metric, N) whose top N changed since it was last sent
+    private void publish() {
+        if (subscriptions.isEmpty() || publishedVersion == version) {
+            return;
+        }
+        try {
+            publishChanged();
+        } catch (RuntimeException e) {
+            // An escaping exception would cancel the periodic task
+            log.warn("Publishing the global ranking failed", e);
+        }
+    }
+
+    private void publishChanged() {
+        publishedVersion = version;
+        Map<Subscription.Group, List<WebSocketSession>> groups = new HashMap<>();
+        subscriptions.values().removeIf(s -> !s.session().isOpen());
+        for (Subscription s : subscriptions.values()) {
+            groups.computeIfAbsent(s.group(), g -> new ArrayList<>()).add(s.session());
+        }
+        published.keySet().retainAll(groups.keySet());
+        groups.forEach((group, sessions) -> {
+            Top current = topNow(group.metric(), group.top());
+            if (!Objects.equals(published.put(group, current.traders()), current.traders())) {
+                send(sessions, frame(current));
+            }
+        });
+    }
+
+    private String frame(Top top) {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "global_update");
+        frame.put("metric", top.metric().name().toLowerCase());
+        frame.put("total", top.total());
+        frame.put("traders", top.traders());
+        try {
+            return FrameEncodeEvent.encode(objectMapper, frame);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void send(List<WebSocketSession> sessions, String json) {
+        if (json == null) {
+            return;
+        }
+        TextMessage message = new TextMessage(json);
+        for (WebSocketSession session : sessions) {
+            try {
+                if (session.isOpen()) {
+                    SessionSendEvent.send(session, message);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
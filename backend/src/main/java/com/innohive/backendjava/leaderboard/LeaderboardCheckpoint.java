@@ -0,0 +1,214 @@
+package com.innohive.backendjava.leaderboard;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Periodically dumps every in-memory leaderboard to a compact binary file through a {@link MappedByteBuffer}
+ * and loads it back on boot, before the WebSocket endpoint opens, so reconnecting clients are served from
+ * memory instead of the database. Events logged after a board's checkpoint are replayed from the
+ * {@link LeaderboardEventLog} on top of it.
+ * <p>
+ * Layout (big-endian): {@code magic:int, format:int, writtenAt:long, boards:int}, then per board
+ * {@code competitionId:long, version:long, lastSequence:long, entries:int} followed by its entries as
+ * {@code participantId:long, scaledRoi:long, nameLength:short, name:utf8}. Format 1 files lack
+ * {@code lastSequence} and are still read.
+ */
+@Component
+public class LeaderboardCheckpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardCheckpoint.class);
+
+    private static final int MAGIC = 0x4C42434B; // "LBCK"
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int BOARD_HEADER_BYTES = 8 + 8 + 8 + 4;
+    private static final int ENTRY_FIXED_BYTES = 8 + 8 + 2;
+
+    private final LeaderboardStore store;
+    private final LeaderboardEventLog eventLog;
+    private final Path path;
+    private final boolean enabled;
+    private long checkpointedModifications = -1;
+
+    public LeaderboardCheckpoint(LeaderboardStore store,
+                                 LeaderboardEventLog eventLog,
+                                 @Value("${leaderboard.checkpoint.path:data/leaderboard.ckpt}") String path,
+                                 @Value("${leaderboard.checkpoint.enabled:true}") boolean enabled) {
+        this.store = store;
+        this.eventLog = eventLog;
+        this.path = Path.of(path);
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void warmStart() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, CompetitionBoard> boards = new HashMap<>();
+        if (Files.isRegularFile(path)) {
+            try {
+                for (CompetitionBoard board : read()) {
+                    boards.put(board.competitionId(), board);
+                }
+            } catch (IOException | RuntimeException e) {
+                // A damaged checkpoint only costs the warm start; the background reconcile still loads everything
+                log.warn("Ignoring unreadable leaderboard checkpoint {}", path, e);
+            }
+        }
+        int checkpointed = boards.size();
+        if (eventLog.isEnabled()) {
+            eventLog.advancePast(boards.values().stream().mapToLong(CompetitionBoard::lastSequence).max().orElse(0L));
+            try {
+                boards = LeaderboardReplay.recover(eventLog.directory(), boards);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not replay the leaderboard event log from {}", eventLog.directory(), e);
+            }
+        }
+        if (boards.isEmpty()) {
+            return;
+        }
+        CompletableFuture.allOf(boards.values().stream().map(store::install).toArray(CompletableFuture[]::new)).join();
+        checkpointedModifications = store.modifications();
+        log.info("Warm-started {} leaderboards ({} from {}, the rest from the event log)",
+                boards.size(), checkpointed, path);
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.checkpoint.interval-ms:30000}",
+            initialDelayString = "${leaderboard.checkpoint.interval-ms:30000}")
+    public void checkpoint() {
+        if (!enabled) {
+            return;
+        }
+        long modifications = store.modifications();
+        if (modifications == checkpointedModifications) {
+            return;
+        }
+        try {
+            write();
+            checkpointedModifications = modifications;
+        } catch (IOException e) {
+            log.warn("Failed to write leaderboard checkpoint {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    private void write() throws IOException {
+        // Each image is copied on its board's shard thread, so it is consistent without locking the board
+        List<BoardImage> images = store.mapBoards(BoardImage::of).join();
+        long size = HEADER_BYTES;
+        for (BoardImage image : images) {
+            size += image.byteSize();
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.putInt(MAGIC).putInt(FORMAT).putLong(System.currentTimeMillis()).putInt(images.size());
+            for (BoardImage image : images) {
+                buf.putLong(image.competitionId).putLong(image.version).putLong(image.lastSequence)
+                        .putInt(image.entries.size());
+                for (int i = 0; i < image.entries.size(); i++) {
+                    LeaderboardEntry e = image.entries.get(i);
+                    byte[] name = image.names.get(i);
+                    buf.putLong(e.participantId()).putLong(e.scaledRoi()).putShort((short) name.length).put(name);
+                }
+            }
+            buf.force();
+        }
+        // Readers only ever see a complete file
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<CompetitionBoard> read() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int format;
+            if (buf.getInt() != MAGIC || ((format = buf.getInt()) != FORMAT && format != 1)) {
+                throw new IOException("unrecognised checkpoint header");
+            }
+            buf.getLong(); // writtenAt
+            int boardCount = buf.getInt();
+            List<CompetitionBoard> boards = new ArrayList<>(boardCount);
+            for (int b = 0; b < boardCount; b++) {
+                long competitionId = buf.getLong();
+                long version = buf.getLong();
+                long lastSequence = format >= 2 ? buf.getLong() : 0L;
+                int entryCount = buf.getInt();
+                List<LeaderboardEntry> entries = new ArrayList<>(entryCount);
+                for (int i = 0; i < entryCount; i++) {
+                    long participantId = buf.getLong();
+                    long scaledRoi = buf.getLong();
+                    byte[] name = new byte[Short.toUnsignedInt(buf.getShort())];
+                    buf.get(name);
+                    entries.add(new LeaderboardEntry(participantId, new String(name, StandardCharsets.UTF_8), scaledRoi));
+                }
+                CompetitionBoard board = new CompetitionBoard(competitionId, version, entries);
+                board.markSequence(lastSequence);
+                boards.add(board);
+            }
+            return boards;
+        }
+    }
+
+    // Copy of one board taken on its shard thread, with names pre-encoded so the file size is known up front
+    private static final class BoardImage {
+        private final long competitionId;
+        private final long version;
+        private final long lastSequence;
+        private final List<LeaderboardEntry> entries;
+        private final List<byte[]> names;
+
+        private BoardImage(long competitionId, long version, long lastSequence, List<LeaderboardEntry> entries) {
+            this.competitionId = competitionId;
+            this.version = version;
+            this.lastSequence = lastSequence;
+            this.entries = entries;
+            this.names = new ArrayList<>(entries.size());
+            for (LeaderboardEntry e : entries) {
+                names.add(e.username().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        static BoardImage of(CompetitionBoard board) {
+            return new BoardImage(board.competitionId(), board.version(), board.lastSequence(), board.entries());
+        }
+
+        long byteSize() {
+            long size = BOARD_HEADER_BYTES;
+            for (byte[] name : names) {
+                size += ENTRY_FIXED_BYTES + name.length;
+            }
+            return size;
+        }
+    }
+}
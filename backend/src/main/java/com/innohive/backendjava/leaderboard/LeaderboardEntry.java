@@ -0,0 +1,32 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * One trader on an in-memory leaderboard. ROI is held as a fixed-point long with the same scale as the
+ * {@code participants.roi} column, so ranking never touches {@link BigDecimal}.
+ */
+public record LeaderboardEntry(long participantId, String username, long scaledRoi) {
+
+    public static final int ROI_SCALE = 2;
+
+    public static long scale(BigDecimal roi) {
+        if (roi == null) {
+            return 0L;
+        }
+        return roi.setScale(ROI_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public BigDecimal roi() {
+        return BigDecimal.valueOf(scaledRoi, ROI_SCALE);
+    }
+
+    public double score() {
+        return roi().doubleValue();
+    }
+
+    public LeaderboardEntry withScaledRoi(long nextScaledRoi) {
+        return new LeaderboardEntry(participantId, username, nextScaledRoi);
+    }
+}
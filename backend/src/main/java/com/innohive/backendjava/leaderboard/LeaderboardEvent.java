@@ -0,0 +1,57 @@
+package com.innohive.backendjava.leaderboard;
+
+/**
+ * One entry of the leaderboard event log. {@code scaledRoi} is the trader's ROI after the event, so replaying
+ * is idempotent; {@code delta} keeps the change itself for auditing.
+ */
+public record LeaderboardEvent(Type type,
+                               long sequence,
+                               long timestamp,
+                               long competitionId,
+                               long participantId,
+                               String username,
+                               long scaledRoi,
+                               long delta) {
+
+    public enum Type {
+        JOIN(1),
+        SCORE(2);
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte code() {
+            return code;
+        }
+
+        public static Type of(byte code) {
+            for (Type t : values()) {
+                if (t.code == code) {
+                    return t;
+                }
+            }
+            throw new IllegalArgumentException("unknown event type " + code);
+        }
+    }
+
+    public static LeaderboardEvent join(long competitionId, LeaderboardEntry entry) {
+        return new LeaderboardEvent(Type.JOIN, 0L, 0L, competitionId, entry.participantId(), entry.username(),
+                entry.scaledRoi(), entry.scaledRoi());
+    }
+
+    public static LeaderboardEvent score(long competitionId, LeaderboardEntry previous, LeaderboardEntry next) {
+        return new LeaderboardEvent(Type.SCORE, 0L, 0L, competitionId, next.participantId(), next.username(),
+                next.scaledRoi(), next.scaledRoi() - previous.scaledRoi());
+    }
+
+    LeaderboardEvent stamped(long sequence, long timestamp) {
+        return new LeaderboardEvent(type, sequence, timestamp, competitionId, participantId, username, scaledRoi, delta);
+    }
+
+    public LeaderboardEntry entry() {
+        return new LeaderboardEntry(participantId, username, scaledRoi);
+    }
+}
@@ -0,0 +1,300 @@
+package com.innohive.backendjava.leaderboard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit log of every leaderboard change (joins and score changes), numbered with a global sequence.
+ * Shard threads only enqueue; a single writer thread appends through a {@link FileChannel} and forces the
+ * whole batch written since the last sync at most every {@code fsync-interval-ms} (group fsync), rolling over
+ * to a new segment once the current one reaches {@code segment-bytes}. See {@link EventLogReader} for the
+ * format and {@link LeaderboardReplay} for rebuilding boards from it.
+ * <p>
+ * The queue holds at most {@code queue-capacity} events. A batch that does not fit is refused whole, so the
+ * sequence has no gaps, and the boards it belongs to keep their last logged sequence. When the writer fails
+ * the log stops: later batches are refused the same way, and the checkpoint stays the recovery point.
+ */
+@Component
+public class LeaderboardEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardEventLog.class);
+
+    private static final int MAX_BATCH = 4096;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final boolean enabled;
+    private final long segmentBytes;
+    private final long fsyncIntervalNanos;
+
+    private final Object appendLock = new Object();
+    // Guarded by appendLock
+    private long nextSequence = 1;
+    private long lastTimestamp;
+    private boolean saturated;
+
+    private final BlockingQueue<LeaderboardEvent> queue;
+    private final Counter rejected;
+    private volatile boolean running;
+    private volatile boolean failed;
+    private volatile long durableSequence;
+    private Thread writer;
+
+    // Writer thread only
+    private FileChannel channel;
+    private long segmentSize;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+
+    public LeaderboardEventLog(@Value("${leaderboard.event-log.dir:data/events}") String directory,
+                               @Value("${leaderboard.event-log.enabled:true}") boolean enabled,
+                               @Value("${leaderboard.event-log.segment-bytes:67108864}") long segmentBytes,
+                               @Value("${leaderboard.event-log.fsync-interval-ms:10}") long fsyncIntervalMs,
+                               @Value("${leaderboard.event-log.queue-capacity:262144}") int queueCapacity,
+                               MeterRegistry meterRegistry) {
+        this.directory = Path.of(directory);
+        this.enabled = enabled;
+        this.segmentBytes = segmentBytes;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.queue = new ArrayBlockingQueue<>(Math.max(MAX_BATCH, queueCapacity));
+        this.rejected = Counter.builder("leaderboard.event-log.rejected")
+                .description("Events not logged because the queue was full or the writer had failed")
+                .register(meterRegistry);
+        Gauge.builder("leaderboard.event-log.queued", queue, BlockingQueue::size)
+                .description("Events waiting for the writer thread").register(meterRegistry);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True once the writer thread stopped on an I/O error; nothing is logged after that.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Sequence of the last event known to be on disk.
+     */
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> segments = EventLogReader.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            reopen(segments.get(segments.size() - 1));
+        }
+        durableSequence = nextSequence - 1;
+        running = true;
+        writer = Thread.ofPlatform().name("leaderboard-event-log").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Numbers and enqueues the events in order; returns the sequence of the last one, or 0 when the log is
+     * disabled, {@code events} is empty or the batch was refused. Callers never wait for the disk.
+     */
+    public long appendAll(List<LeaderboardEvent> events) {
+        if (!enabled || events.isEmpty()) {
+            return 0L;
+        }
+        synchronized (appendLock) {
+            // Only appenders add, under this lock, so the capacity checked here cannot shrink before the adds
+            if (failed || !running || queue.remainingCapacity() < events.size()) {
+                rejected.increment(events.size());
+                if (!failed && running && !saturated) {
+                    saturated = true;
+                    log.warn("Leaderboard event log queue is full; events are not logged until it drains");
+                }
+                return 0L;
+            }
+            saturated = false;
+            // Timestamps never go backwards, so "state at time T" is always a prefix of the log
+            long now = Math.max(lastTimestamp, System.currentTimeMillis());
+            lastTimestamp = now;
+            for (LeaderboardEvent e : events) {
+                queue.add(e.stamped(nextSequence++, now));
+            }
+            return nextSequence - 1;
+        }
+    }
+
+    /**
+     * Numbers later events after {@code sequence}. Called with the newest sequence a checkpoint recorded, which
+     * may be past the end of the log when the writer failed before it caught up; reusing those numbers would
+     * make recovery skip new events.
+     */
+    public void advancePast(long sequence) {
+        synchronized (appendLock) {
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void writeLoop() {
+        List<LeaderboardEvent> batch = new ArrayList<>(MAX_BATCH);
+        long lastSync = System.nanoTime();
+        long unsyncedSequence = 0;
+        try {
+            while (running || !queue.isEmpty()) {
+                LeaderboardEvent first = queue.poll(Math.max(1, fsyncIntervalNanos), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    for (LeaderboardEvent e : batch) {
+                        write(e);
+                    }
+                    flushBuffer();
+                    unsyncedSequence = batch.get(batch.size() - 1).sequence();
+                    batch.clear();
+                }
+                // One force covers everything written since the previous one
+                long now = System.nanoTime();
+                if (unsyncedSequence > durableSequence && (now - lastSync >= fsyncIntervalNanos || !running)) {
+                    channel.force(false);
+                    durableSequence = unsyncedSequence;
+                    lastSync = now;
+                }
+            }
+            channel.force(false);
+            durableSequence = unsyncedSequence > 0 ? unsyncedSequence : durableSequence;
+            channel.close();
+        } catch (IOException e) {
+            synchronized (appendLock) {
+                failed = true;
+                rejected.increment(queue.size());
+                queue.clear();
+            }
+            log.error("Leaderboard event log stopped; events after sequence {} are not on disk and later ones "
+                    + "are not logged", durableSequence, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(LeaderboardEvent e) throws IOException {
+        byte[] name = e.username().getBytes(StandardCharsets.UTF_8);
+        int length = EventLogReader.BODY_FIXED_BYTES + name.length;
+        int recordBytes = EventLogReader.RECORD_HEADER_BYTES + length;
+
+        // Counts what is still buffered, so a batch larger than a segment rolls over more than once
+        long written = segmentSize + buffer.position();
+        if (written + recordBytes > segmentBytes && written > EventLogReader.SEGMENT_HEADER_BYTES) {
+            flushBuffer();
+            channel.force(false);
+            channel.close();
+            openSegment(e.sequence());
+        }
+        if (buffer.remaining() < recordBytes) {
+            flushBuffer();
+        }
+
+        int start = buffer.position();
+        buffer.putInt(length).putInt(0);
+        int body = buffer.position();
+        buffer.put(e.type().code())
+                .putLong(e.sequence())
+                .putLong(e.timestamp())
+                .putLong(e.competitionId())
+                .putLong(e.participantId())
+                .putLong(e.scaledRoi())
+                .putLong(e.delta())
+                .putShort((short) name.length)
+                .put(name);
+        crc.reset();
+        crc.update(buffer.duplicate().position(body).limit(buffer.position()));
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentSize += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path segment = directory.resolve(EventLogReader.segmentName(firstSequence));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(EventLogReader.SEGMENT_HEADER_BYTES)
+                .putInt(EventLogReader.SEGMENT_MAGIC)
+                .putInt(EventLogReader.SEGMENT_FORMAT)
+                .putLong(firstSequence)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segmentSize = EventLogReader.SEGMENT_HEADER_BYTES;
+    }
+
+    // Continues the newest segment after its last intact record, cutting off a torn write from a crash
+    private void reopen(Path segment) throws IOException {
+        long lastSequence = EventLogReader.firstSequenceOf(segment) - 1;
+        int validEnd = EventLogReader.SEGMENT_HEADER_BYTES;
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (buf.limit() < EventLogReader.SEGMENT_HEADER_BYTES || buf.getInt(0) != EventLogReader.SEGMENT_MAGIC) {
+                throw new IOException("unrecognised event log segment " + segment);
+            }
+            ByteBuffer view = buf.duplicate();
+            CRC32C check = new CRC32C();
+            int end;
+            while ((end = EventLogReader.validRecordEnd(buf, view, validEnd, check)) > 0) {
+                lastSequence = buf.getLong(validEnd + EventLogReader.RECORD_HEADER_BYTES + 1);
+                validEnd = end;
+            }
+        }
+        channel = FileChannel.open(segment, StandardOpenOption.WRITE);
+        if (channel.size() > validEnd) {
+            log.warn("Truncating {} torn bytes at the end of {}", channel.size() - validEnd, segment);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        segmentSize = validEnd;
+        nextSequence = lastSequence + 1;
+    }
+}
@@ -0,0 +1,177 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deterministic re-simulation of leaderboards from the {@link LeaderboardEventLog}. Every event carries the
+ * trader's ROI after the change, so applying a prefix of the log in sequence order yields exactly the board
+ * as it stood at that point. Used by the admin replay endpoint, by startup recovery and from the command line:
+ * <pre>
+ * java -cp backend.jar -Dloader.main=com.innohive.backendjava.leaderboard.LeaderboardReplay \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher &lt;log-dir&gt; &lt;competitionId&gt; [at] [top]
+ * </pre>
+ * where {@code at} is an ISO-8601 instant or {@code seq:<n>}.
+ */
+public final class LeaderboardReplay {
+
+    private LeaderboardReplay() {
+    }
+
+    /**
+     * Outcome of a replay; {@code history} holds the traced user's events, empty when none was asked for.
+     */
+    public record Result(CompetitionBoard board,
+                         long eventsScanned,
+                         long eventsApplied,
+                         long lastSequence,
+                         long lastTimestamp,
+                         List<LeaderboardEvent> history,
+                         long elapsedNanos) {
+    }
+
+    /**
+     * Rebuilds one competition's board from every event up to and including {@code untilSequence} and
+     * {@code untilTimestamp} (epoch millis); pass {@link Long#MAX_VALUE} for either to leave it open.
+     */
+    public static Result replay(Path directory, long competitionId, long untilSequence, long untilTimestamp,
+                                String traceUsername) throws IOException {
+        long started = System.nanoTime();
+        Map<Long, LeaderboardEntry> entries = new HashMap<>();
+        List<LeaderboardEvent> history = new ArrayList<>();
+        long[] applied = {0L, 0L, 0L}; // applied, lastSequence, lastTimestamp
+
+        long scanned = EventLogReader.scan(directory, 0L, event -> {
+            if (event.sequence() > untilSequence || event.timestamp() > untilTimestamp) {
+                return false;
+            }
+            if (event.competitionId() != competitionId) {
+                return true;
+            }
+            LeaderboardEntry entry = apply(entries, event);
+            applied[0]++;
+            applied[1] = event.sequence();
+            applied[2] = event.timestamp();
+            if (traceUsername != null && traceUsername.equals(entry.username())) {
+                history.add(event.toEvent());
+            }
+            return true;
+        });
+
+        CompetitionBoard board = new CompetitionBoard(competitionId, applied[0], entries.values());
+        board.markSequence(applied[1]);
+        return new Result(board, scanned, applied[0], applied[1], applied[2], history, System.nanoTime() - started);
+    }
+
+    /**
+     * Brings checkpointed boards up to date with the log: applies every event newer than each board's
+     * {@link CompetitionBoard#lastSequence()}, and builds boards for competitions that only appear in the log.
+     * Those are built from the whole log, not just the part after the checkpoint, so they never miss earlier
+     * joins; competitions with no events after the checkpoint are left to load from the database.
+     */
+    public static Map<Long, CompetitionBoard> recover(Path directory, Map<Long, CompetitionBoard> checkpointed)
+            throws IOException {
+        long from = Long.MAX_VALUE;
+        for (CompetitionBoard board : checkpointed.values()) {
+            from = Math.min(from, board.lastSequence());
+        }
+        if (checkpointed.isEmpty()) {
+            from = 0L;
+        }
+
+        Map<Long, Map<Long, LeaderboardEntry>> changes = new HashMap<>();
+        Map<Long, Long> lastSequences = new HashMap<>();
+        EventLogReader.scan(directory, from, event -> {
+            CompetitionBoard board = checkpointed.get(event.competitionId());
+            if (board != null && event.sequence() <= board.lastSequence()) {
+                return true;
+            }
+            apply(changes.computeIfAbsent(event.competitionId(), k -> new HashMap<>()), event);
+            lastSequences.put(event.competitionId(), event.sequence());
+            return true;
+        });
+
+        Set<Long> uncheckpointed = new HashSet<>(changes.keySet());
+        uncheckpointed.removeAll(checkpointed.keySet());
+        if (from > 0 && !uncheckpointed.isEmpty()) {
+            long until = from;
+            Map<Long, Map<Long, LeaderboardEntry>> earlier = new HashMap<>();
+            EventLogReader.scan(directory, 0L, event -> {
+                if (event.sequence() > until) {
+                    return false;
+                }
+                if (uncheckpointed.contains(event.competitionId())) {
+                    apply(earlier.computeIfAbsent(event.competitionId(), k -> new HashMap<>()), event);
+                }
+                return true;
+            });
+            earlier.forEach((competitionId, entries) -> {
+                entries.putAll(changes.get(competitionId));
+                changes.put(competitionId, entries);
+            });
+        }
+
+        Map<Long, CompetitionBoard> recovered = new HashMap<>(checkpointed);
+        changes.forEach((competitionId, changed) -> {
+            CompetitionBoard board = recovered.get(competitionId);
+            if (board == null) {
+                board = new CompetitionBoard(competitionId, 0L, changed.values());
+                recovered.put(competitionId, board);
+            } else {
+                board.putAll(changed.values());
+            }
+            board.markSequence(lastSequences.get(competitionId));
+        });
+        return recovered;
+    }
+
+    // Names never change, so they are decoded once per participant rather than once per event
+    private static LeaderboardEntry apply(Map<Long, LeaderboardEntry> entries, EventLogReader.Cursor event) {
+        LeaderboardEntry current = entries.get(event.participantId());
+        LeaderboardEntry next = current != null
+                ? current.withScaledRoi(event.scaledRoi())
+                : new LeaderboardEntry(event.participantId(), event.username(), event.scaledRoi());
+        entries.put(next.participantId(), next);
+        return next;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: LeaderboardReplay <log-dir> <competitionId> [<ISO instant>|seq:<n>] [top]");
+            System.exit(2);
+        }
+        Path directory = Path.of(args[0]);
+        long competitionId = Long.parseLong(args[1]);
+        long untilSequence = Long.MAX_VALUE;
+        long untilTimestamp = Long.MAX_VALUE;
+        if (args.length > 2) {
+            if (args[2].startsWith("seq:")) {
+                untilSequence = Long.parseLong(args[2].substring(4));
+            } else {
+                untilTimestamp = Instant.parse(args[2]).toEpochMilli();
+            }
+        }
+        int top = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        Result result = replay(directory, competitionId, untilSequence, untilTimestamp, null);
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf("competition %d at seq %d (%s): %d traders%n", competitionId, result.lastSequence(),
+                result.lastTimestamp() > 0 ? Instant.ofEpochMilli(result.lastTimestamp()) : "-",
+                result.board().size());
+        System.out.printf("scanned %d events, applied %d, in %.3f s (%.0f events/s)%n",
+                result.eventsScanned(), result.eventsApplied(), seconds,
+                seconds > 0 ? result.eventsScanned() / seconds : 0.0);
+        List<LeaderboardEntry> ranked = result.board().ranked();
+        for (int i = 0; i < Math.min(top, ranked.size()); i++) {
+            LeaderboardEntry e = ranked.get(i);
+            System.out.printf("%5d  %-30s %12s%n", i + 1, e.username(), e.roi().toPlainString());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.innohive.backendjava.leaderboard;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * One partition of the competitions, served by a single dedicated thread. The shard owns its boards, their
+ * pending deltas and its subscriber lists; everything except the board membership map is only touched from
+ * the shard thread, so the hot path needs no locks.
+ */
+public class LeaderboardShard {
+
+    private final int index;
+    private final ExecutorService executor;
+    private volatile Thread thread;
+
+    // Membership may be checked from any thread; board contents only on the shard thread
+    private final Map<Long, CompetitionBoard> boards = new ConcurrentHashMap<>();
+
+    // Confined to the shard thread
+    private final Map<String, WebSocketSession> wildcardSubscribers = new LinkedHashMap<>();
+    private final Map<Long, Map<String, WebSocketSession>> competitionSubscribers = new HashMap<>();
+    private final Map<String, Set<Long>> subscriptionsBySession = new HashMap<>();
+    private final Map<Long, List<LeaderboardEntry>> pendingDeltas = new HashMap<>();
+    private final Map<Long, CompetitionStats> publishedStats = new HashMap<>();
+
+    LeaderboardShard(int index) {
+        this.index = index;
+        ThreadFactory factory = Thread.ofPlatform().name("leaderboard-shard-" + index).daemon().factory();
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = factory.newThread(r);
+            thread = t;
+            return t;
+        });
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (isShardThread()) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    public boolean isShardThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * The board reference, or null when it is not loaded. Its contents may only be read on the shard thread.
+     */
+    public CompetitionBoard board(long competitionId) {
+        return boards.get(competitionId);
+    }
+
+    // Shard thread only
+    public Collection<CompetitionBoard> boards() {
+        return boards.values();
+    }
+
+    CompetitionBoard putBoardIfAbsent(CompetitionBoard board) {
+        return boards.putIfAbsent(board.competitionId(), board);
+    }
+
+    /**
+     * Drops the boards of competitions not in {@code keep}, with their pending deltas and last published stats.
+     * Returns whether any was dropped. Shard thread only.
+     */
+    boolean retainBoards(Set<Long> keep) {
+        List<Long> dropped = boards.keySet().stream().filter(id -> !keep.contains(id)).toList();
+        for (Long id : dropped) {
+            boards.remove(id);
+            pendingDeltas.remove(id);
+            publishedStats.remove(id);
+        }
+        return !dropped.isEmpty();
+    }
+
+    boolean isEmpty() {
+        return boards.isEmpty();
+    }
+
+    Set<Long> boardIds() {
+        return boards.keySet();
+    }
+
+    /**
+     * Subscribes a session to the given competitions of this shard, or to all of them when {@code competitionIds}
+     * is null. Replaces any earlier subscription of the same session. Shard thread only.
+     */
+    public void subscribe(WebSocketSession session, Set<Long> competitionIds) {
+        unsubscribe(session.getId());
+        if (competitionIds == null) {
+            wildcardSubscribers.put(session.getId(), session);
+            return;
+        }
+        subscriptionsBySession.put(session.getId(), competitionIds);
+        for (Long id : competitionIds) {
+            competitionSubscribers.computeIfAbsent(id, k -> new LinkedHashMap<>()).put(session.getId(), session);
+        }
+    }
+
+    // Shard thread only
+    public void unsubscribe(String sessionId) {
+        wildcardSubscribers.remove(sessionId);
+        Set<Long> ids = subscriptionsBySession.remove(sessionId);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            Map<String, WebSocketSession> subscribers = competitionSubscribers.get(id);
+            if (subscribers != null) {
+                subscribers.remove(sessionId);
+                if (subscribers.isEmpty()) {
+                    competitionSubscribers.remove(id);
+                }
+            }
+        }
+    }
+
+    // Shard thread only
+    public List<WebSocketSession> subscribersOf(long competitionId) {
+        Map<String, WebSocketSession> specific = competitionSubscribers.getOrDefault(competitionId, Map.of());
+        List<WebSocketSession> all = new ArrayList<>(wildcardSubscribers.size() + specific.size());
+        all.addAll(wildcardSubscribers.values());
+        all.addAll(specific.values());
+        return all;
+    }
+
+    // Shard thread only
+    public boolean hasSubscribers(long competitionId) {
+        return !wildcardSubscribers.isEmpty() || competitionSubscribers.containsKey(competitionId);
+    }
+
+    // Shard thread only
+    void bufferDeltas(long competitionId, Collection<LeaderboardEntry> changed) {
+        pendingDeltas.computeIfAbsent(competitionId, k -> new ArrayList<>()).addAll(changed);
+    }
+
+    /**
+     * Takes every change buffered for the competition since the last drain. Shard thread only.
+     */
+    public List<LeaderboardEntry> drainDeltas(long competitionId) {
+        List<LeaderboardEntry> deltas = pendingDeltas.remove(competitionId);
+        return deltas != null ? deltas : List.of();
+    }
+
+    /**
+     * Remembers {@code stats} as the last ones published for the competition and tells whether they differ
+     * from the previous ones. Shard thread only.
+     */
+    public boolean publishStats(long competitionId, CompetitionStats stats) {
+        return !stats.equals(publishedStats.put(competitionId, stats));
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
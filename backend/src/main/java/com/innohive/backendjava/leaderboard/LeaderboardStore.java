@@ -0,0 +1,349 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.repository.LeaderboardRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the live leaderboards of all competitions, partitioned by competition id across
+ * {@link LeaderboardShard}s that each run on their own thread. Warm-started from {@link LeaderboardCheckpoint}
+ * before the WebSocket endpoint opens, then reconciled against the database in the background.
+ */
+@Component
+public class LeaderboardStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardStore.class);
+
+    private static final int LOADER_THREADS = 4;
+
+    private final CompetitionRepository competitionRepository;
+    private final ParticipantArchive participantArchive;
+    private final RankingPolicy rankingPolicy;
+    private final LeaderboardEventLog eventLog;
+    private final LeaderboardShard[] shards;
+    private final AtomicLong modifications = new AtomicLong();
+    private final Map<Long, CompletableFuture<CompetitionBoard>> boardLoads = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<List<Long>>> idsLoad = new AtomicReference<>();
+    private final ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS,
+            Thread.ofPlatform().name("leaderboard-loader-", 0).daemon().factory());
+
+    public LeaderboardStore(CompetitionRepository competitionRepository,
+                            ParticipantArchive participantArchive,
+                            RankingPolicy rankingPolicy,
+                            LeaderboardEventLog eventLog,
+                            @Value("${leaderboard.shards:0}") int shardCount) {
+        this.competitionRepository = competitionRepository;
+        this.participantArchive = participantArchive;
+        this.rankingPolicy = rankingPolicy;
+        this.eventLog = eventLog;
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new LeaderboardShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new LeaderboardShard(i);
+        }
+    }
+
+    public LeaderboardShard shardFor(long competitionId) {
+        return shards[Math.floorMod(Long.hashCode(competitionId), shards.length)];
+    }
+
+    public List<LeaderboardShard> shards() {
+        return List.of(shards);
+    }
+
+    /**
+     * The board reference if it is loaded, otherwise null. Contents may only be read on its shard's thread.
+     */
+    public CompetitionBoard get(long competitionId) {
+        return shardFor(competitionId).board(competitionId);
+    }
+
+    public boolean isEmpty() {
+        for (LeaderboardShard shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Single-flight board load: however many callers ask for a board that is not in memory yet, one query
+     * runs on the loader pool and every caller completes from the same future.
+     */
+    public CompletableFuture<CompetitionBoard> loadAsync(long competitionId) {
+        CompetitionBoard board = get(competitionId);
+        if (board != null) {
+            return CompletableFuture.completedFuture(board);
+        }
+
+        LeaderboardShard shard = shardFor(competitionId);
+        CompletableFuture<CompetitionBoard> load = boardLoads.computeIfAbsent(competitionId,
+                id -> CompletableFuture.supplyAsync(() -> loadFromDb(id, 0L), loader)
+                        .thenCompose(loaded -> shard.submit(() -> {
+                            // A board installed meanwhile (reconcile, checkpoint) is at least as fresh
+                            CompetitionBoard existing = shard.putBoardIfAbsent(loaded);
+                            if (existing != null) {
+                                return existing;
+                            }
+                            rankingPolicy.configure(loaded);
+                            modifications.incrementAndGet();
+                            return loaded;
+                        })));
+        load.whenComplete((b, e) -> boardLoads.remove(competitionId, load));
+        return load;
+    }
+
+    /**
+     * Runs {@code fn} against the board on its shard thread, loading the board first if needed.
+     */
+    public <T> CompletableFuture<T> withBoard(long competitionId, Function<CompetitionBoard, T> fn) {
+        LeaderboardShard shard = shardFor(competitionId);
+        return loadAsync(competitionId).thenCompose(board -> shard.submit(() -> fn.apply(board)));
+    }
+
+    /**
+     * Runs {@code fn} on every shard thread against each of its boards and gathers the results.
+     */
+    public <T> CompletableFuture<List<T>> mapBoards(Function<CompetitionBoard, T> fn) {
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(shards.length);
+        for (LeaderboardShard shard : shards) {
+            parts.add(shard.submit(() -> shard.boards().stream().map(fn).toList()));
+        }
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .thenApply(v -> parts.stream().flatMap(p -> p.join().stream()).toList());
+    }
+
+    /**
+     * Rank of the user on the competition's board, or null when they have not joined it.
+     */
+    public CompletableFuture<RankEstimate> rankOf(long competitionId, String username) {
+        return withBoard(competitionId, board -> board.rankOf(username));
+    }
+
+    /**
+     * Ids of all known competitions, from the competition list rather than the boards in memory, which only
+     * cover the competitions loaded so far. The list is normally answered by the query cache; concurrent callers
+     * share one {@code findAll()} when it is not.
+     */
+    public CompletableFuture<List<Long>> competitionIdsAsync() {
+        while (true) {
+            CompletableFuture<List<Long>> current = idsLoad.get();
+            if (current != null) {
+                return current;
+            }
+            CompletableFuture<List<Long>> load = new CompletableFuture<>();
+            if (idsLoad.compareAndSet(null, load)) {
+                loader.execute(() -> {
+                    try {
+                        load.complete(competitionRepository.findAll().stream()
+                                .map(Competition::getId)
+                                .sorted()
+                                .toList());
+                    } catch (RuntimeException e) {
+                        load.completeExceptionally(e);
+                    } finally {
+                        idsLoad.compareAndSet(load, null);
+                    }
+                });
+                return load;
+            }
+        }
+    }
+
+    /**
+     * Applies changed entries to a board, records them in the event log and buffers them as deltas for the
+     * next frame. Shard thread only.
+     */
+    public void apply(CompetitionBoard board, Collection<LeaderboardEntry> changed) {
+        List<LeaderboardEvent> events = new ArrayList<>(changed.size());
+        for (LeaderboardEntry e : changed) {
+            LeaderboardEntry previous = board.entry(e.participantId());
+            events.add(previous == null
+                    ? LeaderboardEvent.join(board.competitionId(), e)
+                    : LeaderboardEvent.score(board.competitionId(), previous, e));
+        }
+        board.putAll(changed);
+        board.markSequence(eventLog.appendAll(events));
+        rankingPolicy.configure(board);
+        shardFor(board.competitionId()).bufferDeltas(board.competitionId(), changed);
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Adds a newly joined participant to the competition's board, loading the board first if needed. Runs after
+     * any load already in flight, which may have read the participants before the join committed; a board that
+     * already has the participant is left alone.
+     */
+    public CompletableFuture<Void> addParticipant(long competitionId, LeaderboardEntry entry) {
+        return this.<Void>withBoard(competitionId, board -> {
+            if (board.entry(entry.participantId()) == null) {
+                apply(board, List.of(entry));
+            }
+            return null;
+        }).whenComplete((v, e) -> {
+            if (e != null) {
+                log.warn("Could not add participant {} to the board of competition {}", entry.participantId(),
+                        competitionId, e);
+            }
+        });
+    }
+
+    /**
+     * Installs a board read from a checkpoint. Versions only move forward, so clients that
+     * cached an older version always see the replacement as newer.
+     */
+    public CompletableFuture<Void> install(CompetitionBoard board) {
+        LeaderboardShard shard = shardFor(board.competitionId());
+        return shard.submit(() -> {
+            CompetitionBoard current = shard.putBoardIfAbsent(board);
+            if (current != null) {
+                // Replace in place so callers holding the board keep a live reference
+                current.replaceWith(board.entries(), board.version());
+                current.markSequence(board.lastSequence());
+            }
+            rankingPolicy.configure(current != null ? current : board);
+            modifications.incrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * Subscribes a session on every shard: to all competitions when {@code competitionIds} is null, otherwise
+     * only to the listed ones.
+     */
+    public void subscribe(WebSocketSession session, Set<Long> competitionIds) {
+        Map<LeaderboardShard, Set<Long>> byShard = new HashMap<>();
+        if (competitionIds != null) {
+            for (Long id : competitionIds) {
+                byShard.computeIfAbsent(shardFor(id), s -> new HashSet<>()).add(id);
+            }
+        }
+        for (LeaderboardShard shard : shards) {
+            Set<Long> ids = competitionIds == null ? null : byShard.getOrDefault(shard, Set.of());
+            shard.execute(() -> shard.subscribe(session, ids));
+        }
+    }
+
+    public void unsubscribe(String sessionId) {
+        for (LeaderboardShard shard : shards) {
+            shard.execute(() -> shard.unsubscribe(sessionId));
+        }
+    }
+
+    /**
+     * Counter that moves on every change; lets the checkpoint skip writes when nothing happened.
+     */
+    public long modifications() {
+        return modifications.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+        for (LeaderboardShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileInBackground() {
+        Thread.ofVirtual().name("leaderboard-reconcile").start(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Leaderboard reconciliation with the database failed", e);
+            }
+        });
+    }
+
+    /**
+     * Brings the boards of active and upcoming competitions, and of any other competition already in memory,
+     * up to date with the database, and drops boards of competitions that no longer exist. Boards of finished
+     * competitions that nobody asked for stay on disk; they are loaded on first use.
+     */
+    public void reconcile() {
+        List<Competition> competitions = competitionRepository.findAll();
+        Set<Long> ids = competitions.stream().map(Competition::getId).collect(Collectors.toSet());
+        Set<Long> eager = competitions.stream()
+                .filter(c -> "active".equals(c.getStatus()) || "upcoming".equals(c.getStatus()))
+                .map(Competition::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+        for (LeaderboardShard shard : shards) {
+            eager.addAll(shard.submit(() -> List.copyOf(shard.boardIds())).join());
+        }
+        eager.retainAll(ids);
+
+        List<CompletableFuture<Void>> installs = new ArrayList<>(eager.size() + shards.length);
+        for (Long id : eager) {
+            installs.add(merge(loadFromDb(id, 0L)));
+        }
+        for (LeaderboardShard shard : shards) {
+            installs.add(shard.submit(() -> {
+                if (shard.retainBoards(ids)) {
+                    modifications.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(installs.toArray(CompletableFuture[]::new)).join();
+        log.info("Reconciled {} of {} leaderboards with the database", eager.size(), ids.size());
+    }
+
+    /**
+     * Installs a board read from the database unless one is in memory already. A live board is ahead of the
+     * database by every score not yet written behind, so it only gains the participants it lacks, logged and
+     * pushed like any other join.
+     */
+    private CompletableFuture<Void> merge(CompetitionBoard loaded) {
+        LeaderboardShard shard = shardFor(loaded.competitionId());
+        return shard.submit(() -> {
+            CompetitionBoard current = shard.putBoardIfAbsent(loaded);
+            if (current == null) {
+                rankingPolicy.configure(loaded);
+                modifications.incrementAndGet();
+                return null;
+            }
+            List<LeaderboardEntry> missing = loaded.entries().stream()
+                    .filter(e -> current.entry(e.participantId()) == null)
+                    .toList();
+            if (!missing.isEmpty()) {
+                apply(current, missing);
+            }
+            return null;
+        });
+    }
+
+    private CompetitionBoard loadFromDb(long competitionId, long version) {
+        List<LeaderboardRow> rows = participantArchive.rows(competitionId);
+        List<LeaderboardEntry> entries = rows.stream()
+                .map(r -> new LeaderboardEntry(r.participantId(), r.username(), LeaderboardEntry.scale(r.roi())))
+                .toList();
+        return new CompetitionBoard(competitionId, version, entries);
+    }
+}
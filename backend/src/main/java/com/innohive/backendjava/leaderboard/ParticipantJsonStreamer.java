@@ -0,0 +1,90 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.LeaderboardRow;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+/**
+ * Writes participant lists straight from a database cursor into a {@link JsonGenerator}, so no
+ * intermediate list or map of the whole competition is ever built.
+ */
+@Component
+public class ParticipantJsonStreamer {
+
+    private final ParticipantArchive participantArchive;
+    private final TransactionTemplate readOnlyTx;
+    private final JsonFactory jsonFactory;
+
+    public ParticipantJsonStreamer(ParticipantArchive participantArchive,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper) {
+        this.participantArchive = participantArchive;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Same shape as the buffered participants response: {@code { id, name, participants: [...] }}.
+     * The caller keeps ownership of {@code out}; it is flushed but not closed.
+     */
+    public void writeParticipants(Competition competition, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            gen.writeStartObject();
+            gen.writeStringField("id", String.valueOf(competition.getId()));
+            gen.writeStringField("name", competition.getName());
+            gen.writeArrayFieldStart("participants");
+            forEachRow(competition, row -> {
+                gen.writeStartObject();
+                gen.writeStringField("username", row.username());
+                gen.writeStringField("firstName", row.firstName());
+                gen.writeStringField("lastName", row.lastName());
+                if (row.roi() != null) {
+                    gen.writeNumberField("roi", row.roi());
+                } else {
+                    gen.writeNullField("roi");
+                }
+                gen.writeStringField("joinedAt", row.joinedAt() != null ? row.joinedAt().toString() : null);
+                gen.writeEndObject();
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    private void forEachRow(Competition competition, RowWriter writer) throws IOException {
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                // Projections are never managed, so the persistence context stays empty however long the cursor runs
+                try (Stream<LeaderboardRow> rows = participantArchive.streamRows(competition.getId())) {
+                    rows.forEach(row -> {
+                        try {
+                            writer.write(row);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(LeaderboardRow row) throws IOException;
+    }
+}
@@ -0,0 +1,21 @@
+package com.innohive.backendjava.leaderboard;
+
+/**
+ * Rank of one trader: exact, or an estimate whose true value lies within {@code rank ± error}.
+ */
+public record RankEstimate(int rank, int error, int total, boolean exact) {
+
+    public static RankEstimate exact(int rank, int total) {
+        return new RankEstimate(rank, 0, total, true);
+    }
+
+    /**
+     * Share of the field at or above this rank, in percent rounded up to one decimal (the "top X%").
+     */
+    public double topPercent() {
+        if (total == 0) {
+            return 0.0;
+        }
+        return Math.ceil(rank * 1000.0 / total) / 10.0;
+    }
+}
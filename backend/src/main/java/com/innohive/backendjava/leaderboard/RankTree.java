@@ -0,0 +1,179 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Sorted set with O(log n) add, remove and rank lookup: a treap whose nodes count their subtree, so the
+ * position of an element is summed on the way down instead of counted by iteration. Elements must be distinct
+ * under the order. Not thread-safe.
+ */
+public class RankTree<E> {
+
+    private final Comparator<? super E> order;
+    private final SplittableRandom random = new SplittableRandom();
+    private Node<E> root;
+
+    private static final class Node<E> {
+        private final E value;
+        private final int priority;
+        private int size = 1;
+        private Node<E> left;
+        private Node<E> right;
+
+        private Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private record Split<E>(Node<E> below, Node<E> rest) {
+    }
+
+    public RankTree(Comparator<? super E> order) {
+        this.order = order;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void add(E value) {
+        Split<E> split = split(root, value);
+        root = merge(merge(split.below(), new Node<>(value, random.nextInt())), split.rest());
+    }
+
+    public boolean remove(E value) {
+        int before = size(root);
+        root = remove(root, value);
+        return size(root) < before;
+    }
+
+    /**
+     * Zero-based position of the element in the order, or -1 when it is not in the set.
+     */
+    public int indexOf(E value) {
+        int index = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int c = order.compare(value, node.value);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                index += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return index + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The element at the zero-based position in the order, in O(log n).
+     */
+    public E get(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Node<E> node = root;
+        while (true) {
+            int left = size(node.left);
+            if (index < left) {
+                node = node.left;
+            } else if (index == left) {
+                return node.value;
+            } else {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * The first {@code k} elements in order, in O(log n + k).
+     */
+    public List<E> head(int k) {
+        List<E> head = new ArrayList<>(Math.min(k, size(root)));
+        Deque<Node<E>> path = new ArrayDeque<>();
+        Node<E> node = root;
+        while (head.size() < k && (node != null || !path.isEmpty())) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            head.add(node.value);
+            node = node.right;
+        }
+        return head;
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void resize(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    // Elements ordered before value, and the rest
+    private Split<E> split(Node<E> node, E value) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        if (order.compare(node.value, value) < 0) {
+            Split<E> right = split(node.right, value);
+            node.right = right.below();
+            resize(node);
+            return new Split<>(node, right.rest());
+        }
+        Split<E> left = split(node.left, value);
+        node.left = left.rest();
+        resize(node);
+        return new Split<>(left.below(), node);
+    }
+
+    // Every element of a is ordered before every element of b
+    private Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            resize(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        resize(b);
+        return b;
+    }
+
+    private Node<E> remove(Node<E> node, E value) {
+        if (node == null) {
+            return null;
+        }
+        int c = order.compare(value, node.value);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = remove(node.left, value);
+        } else {
+            node.right = remove(node.right, value);
+        }
+        resize(node);
+        return node;
+    }
+}
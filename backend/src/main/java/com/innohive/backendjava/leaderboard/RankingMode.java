@@ -0,0 +1,11 @@
+package com.innohive.backendjava.leaderboard;
+
+/**
+ * How a board answers rank queries.
+ */
+public enum RankingMode {
+    /** Full sort per version; every rank is exact. */
+    EXACT,
+    /** Exact top K plus a score histogram for the tail; tail ranks carry a bounded error. */
+    APPROXIMATE
+}
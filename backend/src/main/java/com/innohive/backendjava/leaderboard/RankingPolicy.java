@@ -0,0 +1,59 @@
+package com.innohive.backendjava.leaderboard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides per competition whether its board ranks exactly or approximately. Competitions listed in
+ * {@code leaderboard.ranking.approximate-ids} always rank approximately; any other switches once it grows past
+ * {@code leaderboard.ranking.approximate-threshold} participants. Also applies the {@code leaderboard.stats}
+ * settings that every board's {@link CompetitionBoard#stats()} uses.
+ */
+@Component
+public class RankingPolicy {
+
+    private final Set<Long> approximateIds;
+    private final int approximateThreshold;
+    private final int topK;
+    private final long bucketWidth;
+    private final long statsBucketWidth;
+    private final int prizePlaces;
+
+    public RankingPolicy(@Value("${leaderboard.ranking.approximate-ids:}") List<Long> approximateIds,
+                         @Value("${leaderboard.ranking.approximate-threshold:100000}") int approximateThreshold,
+                         @Value("${leaderboard.ranking.top-k:1000}") int topK,
+                         @Value("${leaderboard.ranking.bucket-width:0.50}") double bucketWidth,
+                         @Value("${leaderboard.stats.bucket-width:5.00}") double statsBucketWidth,
+                         @Value("${leaderboard.stats.prize-places:3}") int prizePlaces) {
+        this.approximateIds = Set.copyOf(approximateIds);
+        this.approximateThreshold = approximateThreshold;
+        this.topK = Math.max(1, topK);
+        // Bucket width in ROI points, stored in the boards' fixed-point scale
+        this.bucketWidth = Math.max(1L, Math.round(bucketWidth * Math.pow(10, LeaderboardEntry.ROI_SCALE)));
+        this.statsBucketWidth = Math.max(1L, Math.round(statsBucketWidth * Math.pow(10, LeaderboardEntry.ROI_SCALE)));
+        this.prizePlaces = Math.max(0, prizePlaces);
+    }
+
+    public RankingMode modeFor(long competitionId, int participants) {
+        if (approximateIds.contains(competitionId)
+                || (approximateThreshold > 0 && participants > approximateThreshold)) {
+            return RankingMode.APPROXIMATE;
+        }
+        return RankingMode.EXACT;
+    }
+
+    /**
+     * Switches the board to the mode it should use at its current size. Cheap when nothing changes, so it
+     * can run after every mutation. Shard thread only.
+     */
+    public void configure(CompetitionBoard board) {
+        RankingMode mode = modeFor(board.competitionId(), board.size());
+        if (mode != board.rankingMode()) {
+            board.useRanking(mode, topK, bucketWidth);
+        }
+        board.useStatistics(statsBucketWidth, prizePlaces);
+    }
+}
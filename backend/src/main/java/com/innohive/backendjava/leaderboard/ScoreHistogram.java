@@ -0,0 +1,105 @@
+package com.innohive.backendjava.leaderboard;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Participant counts per fixed-width score bucket. Answers "how many traders score above this bucket" in
+ * O(buckets), which bounds the rank error of anyone in the tail by the population of their own bucket.
+ */
+public class ScoreHistogram {
+
+    private final long bucketWidth;
+    // Bucket index (floor of scaled score / width) to count; only non-empty buckets are kept
+    private final TreeMap<Long, Integer> counts = new TreeMap<>();
+    private int total;
+
+    public ScoreHistogram(long bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("bucketWidth must be positive");
+        }
+        this.bucketWidth = bucketWidth;
+    }
+
+    public long bucketWidth() {
+        return bucketWidth;
+    }
+
+    public long bucketOf(long scaledScore) {
+        return Math.floorDiv(scaledScore, bucketWidth);
+    }
+
+    public void add(long scaledScore) {
+        counts.merge(bucketOf(scaledScore), 1, Integer::sum);
+        total++;
+    }
+
+    public void remove(long scaledScore) {
+        long bucket = bucketOf(scaledScore);
+        Integer count = counts.get(bucket);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            counts.remove(bucket);
+        } else {
+            counts.put(bucket, count - 1);
+        }
+        total--;
+    }
+
+    public void clear() {
+        counts.clear();
+        total = 0;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public int buckets() {
+        return counts.size();
+    }
+
+    /**
+     * Number of scores in buckets strictly above the given one.
+     */
+    public int countAbove(long bucket) {
+        int above = 0;
+        for (int count : counts.tailMap(bucket, false).values()) {
+            above += count;
+        }
+        return above;
+    }
+
+    public int countIn(long bucket) {
+        return counts.getOrDefault(bucket, 0);
+    }
+
+    /**
+     * Estimated scaled score of the {@code rank}-th highest score (1-based), spreading each bucket's scores
+     * evenly across its width. Walks the buckets from the top, so O(buckets).
+     */
+    public long scoreAtRank(int rank) {
+        int above = 0;
+        for (Map.Entry<Long, Integer> bucket : counts.descendingMap().entrySet()) {
+            int count = bucket.getValue();
+            if (above + count >= rank) {
+                long top = (bucket.getKey() + 1) * bucketWidth;
+                return top - Math.round((rank - above - 0.5) * bucketWidth / count);
+            }
+            above += count;
+        }
+        return counts.isEmpty() ? 0L : counts.firstKey() * bucketWidth;
+    }
+
+    /**
+     * Non-empty buckets from the highest down, keyed by the lowest scaled score each one holds.
+     */
+    public Map<Long, Integer> descending() {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        counts.descendingMap().forEach((bucket, count) -> result.put(bucket * bucketWidth, count));
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists ROI changes off the shard threads, so a slow database never stalls ranking or frame delivery. Only
+ * the latest ROI per participant is kept; every {@code flush-ms} the writer drains them in JDBC batches of
+ * {@code batch-size}, so a participant changed ten times between flushes costs one row update.
+ * <p>
+ * Holds at most {@code max-pending} participants. {@link #pressure()} reports how full it is, which the tick
+ * scheduler treats as backlog and slows down for; past the bound, changes of participants not already pending
+ * are dropped and counted. Rows archived while their write was pending are updated in the archive.
+ */
+@Component
+public class ScoreWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoreWriteBehind.class);
+    private static final String UPDATE_LIVE = "update participants set roi = ? where id = ?";
+    private static final String UPDATE_ARCHIVED = "update participants_archive set roi = ? where id = ?";
+
+    private final DataSource dataSource;
+    private final ParticipantArchive participantArchive;
+    private final int maxPending;
+    private final int batchSize;
+    // Participant id -> latest ROI not yet written
+    private final Map<Long, BigDecimal> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("leaderboard-writer").daemon().factory());
+
+    private final Timer flushTime;
+    private final Counter written;
+    private final Counter dropped;
+
+    public ScoreWriteBehind(DataSource dataSource,
+                            ParticipantArchive participantArchive,
+                            MeterRegistry meterRegistry,
+                            @Value("${leaderboard.write-behind.flush-ms:200}") long flushMs,
+                            @Value("${leaderboard.write-behind.batch-size:500}") int batchSize,
+                            @Value("${leaderboard.write-behind.max-pending:200000}") int maxPending) {
+        this.dataSource = dataSource;
+        this.participantArchive = participantArchive;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(1, maxPending);
+        this.flushTime = Timer.builder("leaderboard.write-behind.flush")
+                .description("Time to write one batch of ROI changes").register(meterRegistry);
+        this.written = Counter.builder("leaderboard.write-behind.written")
+                .description("Participant ROI rows written").register(meterRegistry);
+        this.dropped = Counter.builder("leaderboard.write-behind.dropped")
+                .description("ROI changes dropped because max-pending participants were already queued")
+                .register(meterRegistry);
+        Gauge.builder("leaderboard.write-behind.pending", pending, Map::size)
+                .description("Participants whose latest ROI is not yet written").register(meterRegistry);
+        writer.scheduleWithFixedDelay(this::drain, flushMs, Math.max(10, flushMs), TimeUnit.MILLISECONDS);
+    }
+
+    public void write(List<LeaderboardEntry> changed) {
+        int lost = 0;
+        for (LeaderboardEntry e : changed) {
+            // Overwriting a pending participant never grows the map, so only new ones are refused
+            if (pending.size() >= maxPending && !pending.containsKey(e.participantId())) {
+                lost++;
+                continue;
+            }
+            pending.put(e.participantId(), e.roi());
+        }
+        if (lost > 0) {
+            dropped.increment(lost);
+            log.warn("Dropped {} ROI changes; {} participants already wait to be written", lost, pending.size());
+        }
+    }
+
+    /**
+     * Share of {@code max-pending} in use, from 0 to 1.
+     */
+    public double pressure() {
+        return Math.min(1.0, (double) pending.size() / maxPending);
+    }
+
+    // Drain what is pending so a clean shutdown loses no scores
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!pending.isEmpty()) {
+                Map<Long, BigDecimal> batch = take();
+                try {
+                    flush(batch);
+                } catch (SQLException | RuntimeException e) {
+                    // Back in unless a newer value arrived meanwhile; retried on the next flush
+                    batch.forEach(pending::putIfAbsent);
+                    log.warn("Failed to persist {} ROI updates", batch.size(), e);
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("ROI write-behind failed", e);
+        }
+    }
+
+    private Map<Long, BigDecimal> take() {
+        Map<Long, BigDecimal> batch = new HashMap<>();
+        Iterator<Long> ids = pending.keySet().iterator();
+        while (batch.size() < batchSize && ids.hasNext()) {
+            Long id = ids.next();
+            BigDecimal roi = pending.remove(id);
+            if (roi != null) {
+                batch.put(id, roi);
+            }
+        }
+        return batch;
+    }
+
+    private void flush(Map<Long, BigDecimal> batch) throws SQLException {
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<Long> ids = new ArrayList<>(batch.keySet());
+                int[] counts = update(connection, UPDATE_LIVE, ids, batch);
+                List<Long> missing = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        missing.add(ids.get(i));
+                    }
+                }
+                // Moved by the archive since the tick; gone entirely when the competition was deleted
+                if (!missing.isEmpty() && participantArchive.isEnabled()) {
+                    update(connection, UPDATE_ARCHIVED, missing, batch);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        flushTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        written.increment(batch.size());
+    }
+
+    private static int[] update(Connection connection, String sql, List<Long> ids, Map<Long, BigDecimal> rois)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Long id : ids) {
+                statement.setBigDecimal(1, rois.get(id));
+                statement.setLong(2, id);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innohive.backendjava.diagnostics.SnapshotBuildEvent;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized {@code snapshot} frames, built once per board version and shared by every connecting session.
+ * Nothing here blocks: callers get futures that complete when the (single-flight) board load and the build on
+ * the board's shard thread have finished.
+ */
+@Component
+public class SnapshotService {
+
+    private final LeaderboardStore store;
+    private final JsonFactory jsonFactory;
+    private final Map<Long, CachedFrame> frames = new ConcurrentHashMap<>();
+
+    public SnapshotService(LeaderboardStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Snapshot frames of every competition, ordered by competition id.
+     */
+    public CompletableFuture<List<String>> snapshotFrames() {
+        return store.competitionIdsAsync().thenCompose(ids -> {
+            List<CompletableFuture<String>> parts = ids.stream().map(this::snapshotFrame).toList();
+            return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                    .thenApply(v -> parts.stream().map(CompletableFuture::join).toList());
+        });
+    }
+
+    public CompletableFuture<String> snapshotFrame(long competitionId) {
+        // Fast path without a shard hop: the version is safe to read from any thread
+        CompetitionBoard board = store.get(competitionId);
+        CachedFrame cached = frames.get(competitionId);
+        if (board != null && cached != null && cached.version == board.version()) {
+            return cached.json;
+        }
+        return store.withBoard(competitionId, this::frameFor).thenCompose(f -> f);
+    }
+
+    // Runs on the board's shard thread, which serializes every build for the same competition
+    private CompletableFuture<String> frameFor(CompetitionBoard board) {
+        long version = board.version();
+        CachedFrame cached = frames.get(board.competitionId());
+        if (cached != null && cached.version >= version) {
+            return cached.json;
+        }
+        try {
+            CachedFrame frame = new CachedFrame(version, CompletableFuture.completedFuture(build(board)));
+            frames.put(board.competitionId(), frame);
+            return frame.json;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+    }
+
+    private String build(CompetitionBoard board) throws IOException {
+        SnapshotBuildEvent event = new SnapshotBuildEvent();
+        event.begin();
+        StringWriter buffer = new StringWriter();
+        try (JsonGenerator gen = jsonFactory.createGenerator(buffer)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "snapshot");
+            gen.writeStringField("competitionId", String.valueOf(board.competitionId()));
+            if (board.rankingMode() == RankingMode.APPROXIMATE) {
+                // Only the exactly ranked top K is listed; total tells the client how many trail behind
+                gen.writeBooleanField("approximate", true);
+                gen.writeNumberField("total", board.size());
+            }
+            gen.writeArrayFieldStart("traders");
+            for (LeaderboardEntry e : board.ranked()) {
+                gen.writeStartObject();
+                gen.writeStringField("name", e.username());
+                gen.writeNumberField("score", e.score());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        String json = buffer.toString();
+        if (event.shouldCommit()) {
+            event.competitionId = board.competitionId();
+            event.participants = board.size();
+            event.bytes = json.length();
+            event.commit();
+        }
+        return json;
+    }
+
+    private static final class CachedFrame {
+        private final long version;
+        private final CompletableFuture<String> json;
+
+        private CachedFrame(long version, CompletableFuture<String> json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+}
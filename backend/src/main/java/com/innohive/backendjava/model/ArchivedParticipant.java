@@ -0,0 +1,54 @@
+package com.innohive.backendjava.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * A {@link Participant} of a finished competition, moved to {@code participants_archive}. Read-only: rows are
+ * only ever written by the archive job's native move.
+ */
+@Entity
+@Immutable
+@Table(name = "participants_archive")
+public class ArchivedParticipant {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "competition_id", nullable = false)
+    private Competition competition;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "joined_at")
+    private OffsetDateTime joinedAt;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal roi;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Competition getCompetition() {
+        return competition;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public OffsetDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    public BigDecimal getRoi() {
+        return roi;
+    }
+}
@@ -1,14 +1,21 @@
 package com.innohive.backendjava.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "competitions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Competition.CACHE_REGION)
 public class Competition {
 
+    public static final String CACHE_REGION = "competitions";
+    public static final String QUERY_CACHE_REGION = "competition-queries";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
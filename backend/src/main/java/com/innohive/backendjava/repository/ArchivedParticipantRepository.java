@@ -0,0 +1,68 @@
+package com.innohive.backendjava.repository;
+
+import com.innohive.backendjava.model.ArchivedParticipant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads of {@code participants_archive}, mirroring {@link ParticipantRepository}, and the move that fills it.
+ */
+public interface ArchivedParticipantRepository extends Repository<ArchivedParticipant, Long> {
+
+    @Query("select new com.innohive.backendjava.repository.LeaderboardRow(" +
+            "p.id, u.username, u.firstName, u.lastName, p.roi, p.joinedAt) " +
+            "from ArchivedParticipant p join p.user u where p.competition.id = :competitionId " +
+            "order by coalesce(p.roi, 0) desc")
+    List<LeaderboardRow> findRowsByCompetitionId(@Param("competitionId") Long competitionId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.innohive.backendjava.repository.LeaderboardRow(" +
+            "p.id, u.username, u.firstName, u.lastName, p.roi, p.joinedAt) " +
+            "from ArchivedParticipant p join p.user u where p.competition.id = :competitionId " +
+            "order by coalesce(p.roi, 0) desc")
+    Stream<LeaderboardRow> streamRowsByCompetitionId(@Param("competitionId") Long competitionId);
+
+    @Query("select distinct p.competition.id from ArchivedParticipant p where p.user.username = :username")
+    List<Long> findCompetitionIdsByUsername(@Param("username") String username);
+
+    /**
+     * Participant count of every archived competition, as rows of [competitionId, count].
+     */
+    @Query(value = "select competition_id, participants from archived_competitions", nativeQuery = true)
+    List<Object[]> findArchivedCounts();
+
+    /**
+     * Moves the participants of the given competitions out of {@code participants}; returns the rows moved.
+     * Rows the archive already holds (put back into {@code participants} by an older import) are dropped rather
+     * than failing the move.
+     */
+    @Modifying
+    @Query(value = "with moved as (delete from participants where competition_id in (:ids) " +
+            "returning id, competition_id, user_id, joined_at, roi) " +
+            "insert into participants_archive (id, competition_id, user_id, joined_at, roi) " +
+            "select id, competition_id, user_id, joined_at, roi from moved on conflict (id) do nothing", nativeQuery = true)
+    int moveFromParticipants(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Records the given competitions as archived with their archived participant counts; returns rows of
+     * [competitionId, count]. Must run in the transaction of the move.
+     */
+    @Query(value = "insert into archived_competitions (competition_id, participants) " +
+            "select c.id, (select count(*) from participants_archive p where p.competition_id = c.id) " +
+            "from competitions c where c.id in (:ids) " +
+            "on conflict (competition_id) do update set participants = excluded.participants, archived_at = now() " +
+            "returning competition_id, participants", nativeQuery = true)
+    List<Object[]> recordArchived(@Param("ids") Collection<Long> ids);
+}
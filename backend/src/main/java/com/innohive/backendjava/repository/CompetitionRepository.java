@@ -1,18 +1,59 @@
 package com.innohive.backendjava.repository;
 
 import com.innohive.backendjava.model.Competition;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CompetitionRepository extends JpaRepository<Competition, Long> {
+
+    // Both lists change only through the status scheduler, which evicts the query region after each change
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Competition.QUERY_CACHE_REGION)
+    })
     List<Competition> findByStatus(String status);
 
-    // Competitions that have started but not yet ended and are not currently marked active
-    List<Competition> findByStatusNotAndStartDateBeforeAndEndDateAfter(
-            String status, LocalDateTime startBefore, LocalDateTime endAfter);
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Competition.QUERY_CACHE_REGION)
+    })
+    List<Competition> findAll();
+
+    /**
+     * Marks every competition that has started but not yet ended as active in a single statement.
+     * Returns the ids whose status actually changed. Finished competitions are never reopened, which keeps the
+     * predicate within idx_competitions_upcoming_dates.
+     */
+    @Transactional
+    @Query(value = "update competitions set status = 'active' " +
+            "where status <> 'active' and status <> 'finished' and start_date < :now and end_date > :now " +
+            "returning id", nativeQuery = true)
+    List<Long> activateStarted(@Param("now") LocalDateTime now);
+
+    /**
+     * Marks every competition that has already ended as finished in a single statement.
+     * Returns the ids whose status actually changed. Backed by idx_competitions_unfinished_end.
+     */
+    @Transactional
+    @Query(value = "update competitions set status = 'finished' " +
+            "where status <> 'finished' and end_date < :now " +
+            "returning id", nativeQuery = true)
+    List<Long> finishEnded(@Param("now") LocalDateTime now);
 
-    // Competitions that have already ended but are not currently marked finished
-    List<Competition> findByStatusNotAndEndDateBefore(String status, LocalDateTime endBefore);
+    /**
+     * Finished competitions that ended before {@code cutoff} and still have rows in {@code participants}: what
+     * the archive job has to catch up on after a restart.
+     */
+    @Query(value = "select c.id from competitions c where c.status = 'finished' and c.end_date < :cutoff " +
+            "and exists (select 1 from participants p where p.competition_id = c.id)", nativeQuery = true)
+    List<Long> findFinishedWithParticipants(@Param("cutoff") LocalDateTime cutoff);
 }
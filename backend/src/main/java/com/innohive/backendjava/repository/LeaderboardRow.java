@@ -0,0 +1,18 @@
+package com.innohive.backendjava.repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only projection of a participant and the public parts of its user. Selected with a constructor
+ * expression, so neither entity is hydrated or tracked by the persistence context.
+ */
+public record LeaderboardRow(
+        Long participantId,
+        String username,
+        String firstName,
+        String lastName,
+        BigDecimal roi,
+        OffsetDateTime joinedAt
+) {
+}
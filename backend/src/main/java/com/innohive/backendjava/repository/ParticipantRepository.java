@@ -3,13 +3,19 @@ package com.innohive.backendjava.repository;
 import com.innohive.backendjava.model.Competition;
 import com.innohive.backendjava.model.Participant;
 import com.innohive.backendjava.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ParticipantRepository extends JpaRepository<Participant, Long> {
 
@@ -17,10 +23,39 @@ public interface ParticipantRepository extends JpaRepository<Participant, Long>
 
     Optional<Participant> findByCompetitionAndUser(Competition competition, User user);
 
-    @Query("select p from Participant p join fetch p.user where p.competition = :competition")
-    List<Participant> findByCompetition(@Param("competition") Competition competition);
+    /**
+     * Leaderboard rows of a competition, best ROI first, without hydrating Participant or User.
+     */
+    @Query("select new com.innohive.backendjava.repository.LeaderboardRow(" +
+            "p.id, u.username, u.firstName, u.lastName, p.roi, p.joinedAt) " +
+            "from Participant p join p.user u where p.competition.id = :competitionId " +
+            "order by coalesce(p.roi, 0) desc")
+    List<LeaderboardRow> findRowsByCompetitionId(@Param("competitionId") Long competitionId);
 
-    List<Participant> findByUser(User user);
+    /**
+     * Cursor variant of {@link #findRowsByCompetitionId(Long)}. Must be consumed inside a transaction
+     * so the driver honours the fetch size instead of buffering the whole result set.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.innohive.backendjava.repository.LeaderboardRow(" +
+            "p.id, u.username, u.firstName, u.lastName, p.roi, p.joinedAt) " +
+            "from Participant p join p.user u where p.competition.id = :competitionId " +
+            "order by coalesce(p.roi, 0) desc")
+    Stream<LeaderboardRow> streamRowsByCompetitionId(@Param("competitionId") Long competitionId);
+
+    /**
+     * Ids of the competitions a user has joined, read straight from the join column.
+     */
+    @Query("select distinct p.competition.id from Participant p where p.user.username = :username")
+    List<Long> findCompetitionIdsByUsername(@Param("username") String username);
+
+    @Transactional
+    @Modifying
+    @Query("update Participant p set p.roi = :roi where p.id = :id")
+    int updateRoi(@Param("id") Long id, @Param("roi") BigDecimal roi);
 
     /**
      * Bulk count of participants per competition to avoid N+1 count queries.
@@ -28,4 +63,10 @@ public interface ParticipantRepository extends JpaRepository<Participant, Long>
      */
     @Query("select p.competition.id, count(p) from Participant p where p.competition in :competitions group by p.competition.id")
     List<Object[]> countByCompetitionIn(@Param("competitions") List<Competition> competitions);
+
+    /**
+     * Participant count of every competition that has any, as rows of [competitionId, count].
+     */
+    @Query("select p.competition.id, count(p) from Participant p group by p.competition.id")
+    List<Object[]> countAllByCompetition();
 }
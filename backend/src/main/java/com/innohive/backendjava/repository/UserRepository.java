@@ -1,11 +1,45 @@
 package com.innohive.backendjava.repository;
 
 import com.innohive.backendjava.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    /**
+     * Inserts the user unless the username is taken, in one statement. Returns the new id, or an empty list
+     * when the username already exists (including a concurrent registration that won the race).
+     */
+    @Transactional
+    @Query(value = "insert into users (username, password, first_name, last_name) " +
+            "values (:username, :passwordHash, :firstName, :lastName) " +
+            "on conflict (username) do nothing returning id", nativeQuery = true)
+    List<Long> insertIfAbsent(@Param("username") String username,
+                              @Param("passwordHash") String passwordHash,
+                              @Param("firstName") String firstName,
+                              @Param("lastName") String lastName);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u.username from User u")
+    Stream<String> streamAllUsernames();
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :passwordHash where u.id = :id")
+    int updatePasswordHash(@Param("id") Long id, @Param("passwordHash") String passwordHash);
 }
@@ -0,0 +1,29 @@
+package com.innohive.backendjava.scheduler;
+
+import com.innohive.backendjava.model.Competition;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * The status scheduler updates competitions with native statements, which Hibernate's second-level cache
+ * never sees. Evicts the changed entities and the cached status queries once those updates have committed.
+ */
+@Component
+public class CompetitionCacheInvalidator {
+
+    private final Cache cache;
+
+    public CompetitionCacheInvalidator(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @TransactionalEventListener
+    public void onCompetitionStatusChanged(CompetitionStatusChangedEvent event) {
+        event.getActivatedIds().forEach(id -> cache.evictEntityData(Competition.class, id));
+        event.getFinishedIds().forEach(id -> cache.evictEntityData(Competition.class, id));
+        cache.evictQueryRegion(Competition.QUERY_CACHE_REGION);
+    }
+}
@@ -0,0 +1,25 @@
+package com.innohive.backendjava.scheduler;
+
+import java.util.List;
+
+/**
+ * Published by {@link CompetitionStatusScheduler} with the ids of competitions whose status was flipped.
+ */
+public class CompetitionStatusChangedEvent {
+
+    private final List<Long> activatedIds;
+    private final List<Long> finishedIds;
+
+    public CompetitionStatusChangedEvent(List<Long> activatedIds, List<Long> finishedIds) {
+        this.activatedIds = List.copyOf(activatedIds);
+        this.finishedIds = List.copyOf(finishedIds);
+    }
+
+    public List<Long> getActivatedIds() {
+        return activatedIds;
+    }
+
+    public List<Long> getFinishedIds() {
+        return finishedIds;
+    }
+}
@@ -1,7 +1,7 @@
 package com.innohive.backendjava.scheduler;
 
-import com.innohive.backendjava.model.Competition;
 import com.innohive.backendjava.repository.CompetitionRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,9 +13,12 @@ import java.util.List;
 public class CompetitionStatusScheduler {
 
     private final CompetitionRepository competitionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CompetitionStatusScheduler(CompetitionRepository competitionRepository) {
+    public CompetitionStatusScheduler(CompetitionRepository competitionRepository,
+                                      ApplicationEventPublisher eventPublisher) {
         this.competitionRepository = competitionRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // Run every 60 seconds to keep status in sync with time
@@ -25,24 +28,14 @@ public class CompetitionStatusScheduler {
         LocalDateTime now = LocalDateTime.now();
 
         // now between start and end -> should be active
-        List<Competition> toActivate = competitionRepository
-                .findByStatusNotAndStartDateBeforeAndEndDateAfter("active", now, now);
-        for (Competition c : toActivate) {
-            c.setStatus("active");
-        }
+        List<Long> activated = competitionRepository.activateStarted(now);
 
         // now after end -> should be finished
-        List<Competition> toFinish = competitionRepository
-                .findByStatusNotAndEndDateBefore("finished", now);
-        for (Competition c : toFinish) {
-            c.setStatus("finished");
-        }
+        List<Long> finished = competitionRepository.finishEnded(now);
 
-        if (!toActivate.isEmpty()) {
-            competitionRepository.saveAll(toActivate);
-        }
-        if (!toFinish.isEmpty()) {
-            competitionRepository.saveAll(toFinish);
+        // Listeners run after commit, so they never observe a status that could still roll back
+        if (!activated.isEmpty() || !finished.isEmpty()) {
+            eventPublisher.publishEvent(new CompetitionStatusChangedEvent(activated, finished));
         }
     }
 }
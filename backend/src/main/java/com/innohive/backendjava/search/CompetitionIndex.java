@@ -0,0 +1,458 @@
+package com.innohive.backendjava.search;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory secondary index over every competition, answering {@link CompetitionQuery} searches without a
+ * query. An immutable snapshot keeps one sorted key array per filterable field (entry fee, prize pool, start and
+ * end date) and a sorted array of word suffixes of the names; a search binary-searches each constrained field,
+ * walks only the narrowest range and checks the other filters on those rows, so its cost follows the size of
+ * the answer rather than of the history. Status is derived from the dates at query time, so the snapshot never
+ * goes stale when a competition starts or ends; it is rebuilt on startup and every {@code refresh-ms} to pick
+ * up new or edited competitions.
+ */
+@Component
+public class CompetitionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CompetitionIndex.class);
+
+    // Results matching at least one row in this many are paged by walking the sort order instead of sorting
+    private static final int DENSE_RATIO = 8;
+
+    private final CompetitionRepository competitionRepository;
+    private final ParticipantArchive participantArchive;
+    private final Map<Long, Long> participants = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public CompetitionIndex(CompetitionRepository competitionRepository,
+                            ParticipantArchive participantArchive) {
+        this.competitionRepository = competitionRepository;
+        this.participantArchive = participantArchive;
+    }
+
+    /**
+     * One page of matches together with the total number of matches.
+     */
+    public record Result(List<Competition> competitions, int total) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread.ofVirtual().name("competition-index-build").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Building the competition index failed; the first search retries", e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${competitions.index.refresh-ms:60000}",
+            initialDelayString = "${competitions.index.refresh-ms:60000}")
+    public void rebuild() {
+        long started = System.nanoTime();
+        List<Competition> all = competitionRepository.findAll();
+        Map<Long, Long> counts = participantArchive.countAll();
+        Snapshot next = new Snapshot(all);
+        synchronized (this) {
+            participants.keySet().retainAll(counts.keySet());
+            participants.putAll(counts);
+            snapshot = next;
+        }
+        log.debug("Indexed {} competitions in {} ms", all.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Records a competition's participant count after a join, ahead of the next rebuild.
+     */
+    public void updateParticipants(Long competitionId, long count) {
+        participants.put(competitionId, count);
+    }
+
+    public long participants(Long competitionId) {
+        return participants.getOrDefault(competitionId, 0L);
+    }
+
+    /**
+     * Whether the competition was present at the last rebuild.
+     */
+    public boolean contains(long competitionId) {
+        Snapshot current = snapshot;
+        return current != null && current.rowOf(competitionId) >= 0;
+    }
+
+    public Result search(CompetitionQuery query) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current.search(query, epochSecond(LocalDateTime.now()));
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).longValue() : 0L;
+    }
+
+    // Inclusive bounds of the range filters; an absent parameter leaves that side unbounded
+    private static long lowerCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue()
+                : Long.MIN_VALUE;
+    }
+
+    private static long upperCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue()
+                : Long.MAX_VALUE;
+    }
+
+    private static long lowerTime(LocalDateTime time) {
+        return time != null ? epochSecond(time) : Long.MIN_VALUE;
+    }
+
+    private static long upperTime(LocalDateTime time) {
+        return time != null ? epochSecond(time) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Rows are the competitions in id order. Each range field has a {@link SortedField} with its rows in key
+     * order, the keys in that order for binary search and each row's position in that order for sorting.
+     */
+    private static final class Snapshot {
+        private final Competition[] rows;
+        private final long[] fee;
+        private final long[] prize;
+        private final long[] start;
+        private final long[] end;
+
+        private final SortedField byFee;
+        private final SortedField byPrize;
+        private final SortedField byStart;
+        private final SortedField byEnd;
+        private final int[] byName;
+        private final int[] nameRank;
+
+        // Every word-initial suffix of every lower-cased name, sorted, with the row it came from
+        private final String[] suffixes;
+        private final int[] suffixRows;
+
+        Snapshot(List<Competition> competitions) {
+            rows = competitions.stream()
+                    .sorted(Comparator.comparing(Competition::getId))
+                    .toArray(Competition[]::new);
+            int n = rows.length;
+            fee = new long[n];
+            prize = new long[n];
+            start = new long[n];
+            end = new long[n];
+            String[] names = new String[n];
+            List<String> suffixList = new ArrayList<>(n * 3);
+            List<Integer> suffixRowList = new ArrayList<>(n * 3);
+            for (int r = 0; r < n; r++) {
+                Competition c = rows[r];
+                fee[r] = cents(c.getEntryFee());
+                prize[r] = cents(c.getPrizePool());
+                start[r] = c.getStartDate() != null ? epochSecond(c.getStartDate()) : Long.MIN_VALUE;
+                end[r] = c.getEndDate() != null ? epochSecond(c.getEndDate()) : Long.MAX_VALUE;
+                names[r] = c.getName() != null ? c.getName().toLowerCase(Locale.ROOT) : "";
+                for (int at = 0; at < names[r].length(); at++) {
+                    if (isWordStart(names[r], at)) {
+                        suffixList.add(names[r].substring(at));
+                        suffixRowList.add(r);
+                    }
+                }
+            }
+            byFee = new SortedField(fee);
+            byPrize = new SortedField(prize);
+            byStart = new SortedField(start);
+            byEnd = new SortedField(end);
+
+            byName = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparing((Integer r) -> names[r]).thenComparingInt(r -> r))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            nameRank = rankOf(byName);
+
+            Integer[] order = IntStream.range(0, suffixList.size()).boxed()
+                    .sorted(Comparator.comparing(suffixList::get))
+                    .toArray(Integer[]::new);
+            suffixes = new String[order.length];
+            suffixRows = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                suffixes[i] = suffixList.get(order[i]);
+                suffixRows[i] = suffixRowList.get(order[i]);
+            }
+        }
+
+        int rowOf(long competitionId) {
+            int lo = 0;
+            int hi = rows.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long id = rows[mid].getId();
+                if (id < competitionId) {
+                    lo = mid + 1;
+                } else if (id > competitionId) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        Result search(CompetitionQuery q, long now) {
+            long feeLo = lowerCents(q.minEntryFee()), feeHi = upperCents(q.maxEntryFee());
+            long prizeLo = lowerCents(q.minPrizePool()), prizeHi = upperCents(q.maxPrizePool());
+            long startLo = lowerTime(q.startsAfter()), startHi = upperTime(q.startsBefore());
+            long endLo = lowerTime(q.endsAfter()), endHi = upperTime(q.endsBefore());
+
+            // Status bounds mirror statusPriority
+            if (q.status() != null) {
+                switch (q.status()) {
+                    case "active" -> {
+                        startHi = Math.min(startHi, now);
+                        endLo = Math.max(endLo, now + 1);
+                    }
+                    case "not_started" -> {
+                        startLo = Math.max(startLo, now + 1);
+                        endLo = Math.max(endLo, now + 1);
+                    }
+                    case "finished" -> endHi = Math.min(endHi, now);
+                    default -> throw new IllegalArgumentException("unknown status " + q.status());
+                }
+            }
+            String prefix = q.name() != null && !q.name().isBlank()
+                    ? q.name().strip().toLowerCase(Locale.ROOT) : null;
+
+            // Drive the scan from whichever constrained field has the fewest candidates
+            int[] driver = null;
+            int from = 0;
+            int to = rows.length;
+            SortedField[] fields = {byFee, byPrize, byStart, byEnd};
+            long[] lows = {feeLo, prizeLo, startLo, endLo};
+            long[] highs = {feeHi, prizeHi, startHi, endHi};
+            for (int f = 0; f < fields.length; f++) {
+                if (lows[f] == Long.MIN_VALUE && highs[f] == Long.MAX_VALUE) {
+                    continue;
+                }
+                int a = fields[f].lowerBound(lows[f]);
+                int b = Math.max(a, highs[f] == Long.MAX_VALUE ? rows.length : fields[f].lowerBound(highs[f] + 1));
+                if (b - a < to - from) {
+                    driver = fields[f].order;
+                    from = a;
+                    to = b;
+                }
+            }
+            // A suffix in [prefix, prefix + MAX) is exactly a word of that row starting with the prefix
+            int suffixFrom = 0;
+            int suffixTo = 0;
+            boolean bySuffix = false;
+            if (prefix != null) {
+                suffixFrom = lowerBound(suffixes, prefix);
+                suffixTo = lowerBound(suffixes, prefix + Character.MAX_VALUE);
+                if (suffixTo - suffixFrom < to - from) {
+                    driver = suffixRows;
+                    from = suffixFrom;
+                    to = suffixTo;
+                    bySuffix = true;
+                }
+            }
+            BitSet named = null;
+            if (prefix != null && !bySuffix) {
+                named = new BitSet(rows.length);
+                for (int i = suffixFrom; i < suffixTo; i++) {
+                    named.set(suffixRows[i]);
+                }
+            }
+
+            BitSet matched = new BitSet(rows.length);
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                int r = driver != null ? driver[i] : i;
+                if (fee[r] < feeLo || fee[r] > feeHi || prize[r] < prizeLo || prize[r] > prizeHi
+                        || start[r] < startLo || start[r] > startHi || end[r] < endLo || end[r] > endHi) {
+                    continue;
+                }
+                if (named != null && !named.get(r)) {
+                    continue;
+                }
+                // Only the suffix driver can yield a row twice
+                if (bySuffix && matched.get(r)) {
+                    continue;
+                }
+                matched.set(r);
+                count++;
+            }
+
+            return new Result(page(matched, count, q, now), count);
+        }
+
+        /**
+         * Sparse matches are sorted by their position in the requested order, which is a plain primitive sort.
+         * Dense ones skip the sort: the precomputed order is walked from the requested end until the page is full,
+         * which stops after about page-end × rows / matches steps.
+         */
+        private List<Competition> page(BitSet matched, int count, CompetitionQuery q, long now) {
+            int n = rows.length;
+            boolean byStatus = q.sort() == CompetitionQuery.Sort.STATUS;
+            int[] order;
+            int[] rank;
+            switch (q.sort()) {
+                case STATUS, NAME -> {
+                    order = byName;
+                    rank = nameRank;
+                }
+                case ENTRY_FEE -> {
+                    order = byFee.order;
+                    rank = byFee.rank;
+                }
+                case PRIZE_POOL -> {
+                    order = byPrize.order;
+                    rank = byPrize.rank;
+                }
+                case START -> {
+                    order = byStart.order;
+                    rank = byStart.rank;
+                }
+                case END -> {
+                    order = byEnd.order;
+                    rank = byEnd.rank;
+                }
+                default -> throw new IllegalStateException();
+            }
+
+            long skip = (long) q.page() * q.size();
+            List<Competition> page = new ArrayList<>(q.size());
+            if (skip >= count) {
+                return page;
+            }
+
+            if ((long) count * DENSE_RATIO < n) {
+                long[] keys = new long[count];
+                int k = 0;
+                for (int r = matched.nextSetBit(0); r >= 0; r = matched.nextSetBit(r + 1)) {
+                    keys[k++] = byStatus ? (long) statusPriority(r, now) * n + rank[r] : rank[r];
+                }
+                Arrays.sort(keys);
+                for (long i = skip; i < count && page.size() < q.size(); i++) {
+                    long key = keys[q.descending() ? count - 1 - (int) i : (int) i];
+                    page.add(rows[order[(int) (key % n)]]);
+                }
+                return page;
+            }
+
+            // Status order is three passes over the name order, one per status
+            int passes = byStatus ? 3 : 1;
+            for (int pass = 0; pass < passes && page.size() < q.size(); pass++) {
+                int priority = q.descending() ? passes - 1 - pass : pass;
+                for (int i = 0; i < n && page.size() < q.size(); i++) {
+                    int r = order[q.descending() ? n - 1 - i : i];
+                    if (!matched.get(r) || (byStatus && statusPriority(r, now) != priority)) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        page.add(rows[r]);
+                    }
+                }
+            }
+            return page;
+        }
+
+        // Same rules as the dashboard: ended wins, then started, otherwise not started
+        private int statusPriority(int r, long now) {
+            return end[r] <= now ? 2 : start[r] <= now ? 0 : 1;
+        }
+
+        private static boolean isWordStart(String name, int at) {
+            return Character.isLetterOrDigit(name.charAt(at))
+                    && (at == 0 || !Character.isLetterOrDigit(name.charAt(at - 1)));
+        }
+
+        private static int lowerBound(String[] sorted, String key) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static int[] rankOf(int[] order) {
+        int[] rank = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+        return rank;
+    }
+
+    private static final class SortedField {
+        private final int[] order;
+        private final long[] keys;
+        private final int[] rank;
+
+        SortedField(long[] values) {
+            order = IntStream.range(0, values.length).boxed()
+                    .sorted(Comparator.comparingLong((Integer r) -> values[r]).thenComparingInt(r -> r))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            keys = new long[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = values[order[i]];
+            }
+            rank = rankOf(order);
+        }
+
+        // First position whose key is at least {@code value}
+        int lowerBound(long value) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.innohive.backendjava.search;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Filters, ordering and page for {@link CompetitionIndex#search}. Every filter is optional (null) and bounds
+ * are inclusive. {@code status} is one of {@code active}, {@code not_started} or {@code finished}, derived
+ * from the competition's dates at query time; {@code name} matches the start of any word in the name,
+ * ignoring case.
+ */
+public record CompetitionQuery(String status,
+                               BigDecimal minEntryFee,
+                               BigDecimal maxEntryFee,
+                               BigDecimal minPrizePool,
+                               BigDecimal maxPrizePool,
+                               LocalDateTime startsAfter,
+                               LocalDateTime startsBefore,
+                               LocalDateTime endsAfter,
+                               LocalDateTime endsBefore,
+                               String name,
+                               Sort sort,
+                               boolean descending,
+                               int page,
+                               int size) {
+
+    public enum Sort {
+        /** Active first, then not started, then finished; by name within each. */
+        STATUS,
+        NAME,
+        ENTRY_FEE,
+        PRIZE_POOL,
+        START,
+        END;
+
+        public static Sort of(String value) {
+            return switch (value.toLowerCase()) {
+                case "status" -> STATUS;
+                case "name" -> NAME;
+                case "entryfee" -> ENTRY_FEE;
+                case "prizepool" -> PRIZE_POOL;
+                case "startat" -> START;
+                case "endat" -> END;
+                default -> throw new IllegalArgumentException("unknown sort " + value);
+            };
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.innohive.backendjava.security;
 
 import com.innohive.backendjava.model.User;
 import com.innohive.backendjava.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -9,14 +10,19 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class AppUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    // Users listed in admin.usernames additionally get ROLE_ADMIN for the /api/admin endpoints
+    private final Set<String> adminUsernames;
 
-    public AppUserDetailsService(UserRepository userRepository) {
+    public AppUserDetailsService(UserRepository userRepository,
+                                 @Value("${admin.usernames:}") List<String> adminUsernames) {
         this.userRepository = userRepository;
+        this.adminUsernames = Set.copyOf(adminUsernames);
     }
 
     @Override
@@ -27,7 +33,9 @@ public class AppUserDetailsService implements UserDetailsService {
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPasswordHash(),
-                List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                adminUsernames.contains(user.getUsername())
+                        ? List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"))
+                        : List.of(new SimpleGrantedAuthority("ROLE_USER"))
         );
     }
 }
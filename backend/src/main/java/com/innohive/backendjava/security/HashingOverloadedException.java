@@ -0,0 +1,18 @@
+package com.innohive.backendjava.security;
+
+/**
+ * Thrown when the password hashing queue is full; mapped to {@code 503} with a {@code Retry-After} hint.
+ */
+public class HashingOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public HashingOverloadedException(long retryAfterSeconds) {
+        super("password hashing queue is full");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
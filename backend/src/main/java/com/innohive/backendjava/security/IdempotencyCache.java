@@ -0,0 +1,141 @@
+package com.innohive.backendjava.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responses to requests sent with an {@code Idempotency-Key}, keyed by client, method, path and key. The first
+ * request with a key registers a {@link Flight} and runs; duplicates that arrive meanwhile wait on the same flight,
+ * and later ones get the stored response until it is {@code idempotency.ttl-ms} old.
+ * <p>
+ * Bounded to {@code idempotency.max-entries}, least recently used first out. Server errors and bodies over
+ * {@code idempotency.max-body-bytes} are handed to the waiting duplicates but not kept, so a later retry runs again.
+ */
+@Component
+public class IdempotencyCache {
+
+    public record StoredResponse(int status, Map<String, List<String>> headers, byte[] body) {
+    }
+
+    /**
+     * One request under a key: running until its response completes, then replayable until it expires. Carries a
+     * digest of the request body, so a retry can tell whether it repeats the same request.
+     */
+    public static final class Flight {
+
+        private final String key;
+        private final byte[] bodyDigest;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+        // nanoTime after which the stored response is dropped; 0 while the request runs
+        private volatile long expiresAt;
+
+        public Flight(String key, byte[] bodyDigest) {
+            this.key = key;
+            this.bodyDigest = bodyDigest.clone();
+        }
+
+        public boolean sameBody(Flight other) {
+            return MessageDigest.isEqual(bodyDigest, other.bodyDigest);
+        }
+
+        public CompletableFuture<StoredResponse> response() {
+            return response;
+        }
+
+        private boolean expired(long now) {
+            long at = expiresAt;
+            return at != 0 && at - now <= 0;
+        }
+    }
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxBodyBytes;
+    // Guarded by this; access order, so the eldest entry is the least recently used
+    private final Map<String, Flight> flights;
+
+    public IdempotencyCache(MeterRegistry meterRegistry,
+                            @Value("${idempotency.enabled:true}") boolean enabled,
+                            @Value("${idempotency.ttl-ms:600000}") long ttlMs,
+                            @Value("${idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${idempotency.max-body-bytes:65536}") int maxBodyBytes) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1000, ttlMs));
+        this.maxBodyBytes = maxBodyBytes;
+        int capacity = Math.max(1, maxEntries);
+        this.flights = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Flight> eldest) {
+                return size() > capacity;
+            }
+        };
+        Gauge.builder("idempotency.entries", this, IdempotencyCache::size)
+                .description("Idempotency keys with a running or stored response").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers {@code flight} unless its key already has a live one, which is returned instead.
+     *
+     * @return {@code null} when the caller now owns the key and must run the request
+     */
+    public synchronized Flight claim(Flight flight) {
+        Flight existing = flights.get(flight.key);
+        if (existing != null && !existing.expired(System.nanoTime())) {
+            return existing;
+        }
+        flights.put(flight.key, flight);
+        return null;
+    }
+
+    /**
+     * Hands the response to every waiting duplicate and keeps it for later ones when it may be replayed.
+     */
+    public void complete(Flight flight, StoredResponse response) {
+        if (response.status() < 500 && response.body().length <= maxBodyBytes) {
+            // Odd, so never the 0 that marks a running flight
+            flight.expiresAt = System.nanoTime() + ttlNanos | 1;
+        } else {
+            remove(flight);
+        }
+        flight.response.complete(response);
+    }
+
+    /**
+     * Gives up on a flight that ended without a response; waiting duplicates run the request themselves.
+     */
+    public void abandon(Flight flight) {
+        if (!flight.response.isDone()) {
+            remove(flight);
+            flight.response.completeExceptionally(new CancellationException("original request failed"));
+        }
+    }
+
+    public synchronized int size() {
+        return flights.size();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public synchronized void evictExpired() {
+        long now = System.nanoTime();
+        flights.values().removeIf(flight -> flight.expired(now));
+    }
+
+    private synchronized void remove(Flight flight) {
+        flights.remove(flight.key, flight);
+    }
+}
@@ -0,0 +1,424 @@
+package com.innohive.backendjava.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a mutating {@code /api/**} request sent with an {@code Idempotency-Key} header at most once per client and
+ * key while {@link IdempotencyCache} remembers it: a retry of a join that is still running waits for that join's
+ * response instead of repeating its lookups, and a retry after it finished gets the stored response with
+ * {@code Idempotent-Replayed: true}. Requests without the header are untouched.
+ * <p>
+ * A waiting retry does not hold a container thread: it goes async and is answered from the original's response
+ * future, or with 409 when {@code idempotency.wait-ms} runs out first. If the original gives up the key, the retry
+ * is dispatched again and runs itself.
+ * <p>
+ * A key belongs to one request: its query and body, up to {@code idempotency.max-request-bytes}, are buffered and
+ * digested, and reusing the key for a different request is refused with 422 instead of replaying an unrelated
+ * response.
+ * <p>
+ * Runs after {@link RateLimitFilter}, so retries still spend the client's budget.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String FLIGHT_ATTRIBUTE = IdempotencyFilter.class.getName() + ".FLIGHT";
+    private static final String RETRY_ATTRIBUTE = IdempotencyFilter.class.getName() + ".RETRY";
+
+    /**
+     * What a request under a key is matched by; kept on the request when it is dispatched again to run itself.
+     * {@code body} is null for form requests, whose parameters the container keeps.
+     */
+    private record Attempt(String flightKey, byte[] bodyDigest, byte[] body) {
+    }
+
+    private final IdempotencyCache cache;
+    private final long waitMs;
+    private final int maxRequestBytes;
+    private final Counter replayedStored;
+    private final Counter replayedInFlight;
+
+    public IdempotencyFilter(IdempotencyCache cache,
+                             MeterRegistry meterRegistry,
+                             @Value("${idempotency.wait-ms:10000}") long waitMs,
+                             @Value("${idempotency.max-request-bytes:1048576}") int maxRequestBytes) {
+        this.cache = cache;
+        this.waitMs = Math.max(0, waitMs);
+        this.maxRequestBytes = Math.max(0, maxRequestBytes);
+        this.replayedStored = Counter.builder("idempotency.replays").tag("source", "stored")
+                .description("Duplicate requests answered from a stored response").register(meterRegistry);
+        this.replayedInFlight = Counter.builder("idempotency.replays").tag("source", "in-flight")
+                .description("Duplicate requests that waited for the original to finish").register(meterRegistry);
+    }
+
+    // Controllers returning CompletableFuture (login, register) finish on an async dispatch
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        if (isAsyncDispatch(request)) {
+            IdempotencyCache.Flight flight = (IdempotencyCache.Flight) request.getAttribute(FLIGHT_ATTRIBUTE);
+            Attempt retry = (Attempt) request.getAttribute(RETRY_ATTRIBUTE);
+            if (flight != null) {
+                run(flight, request, response, filterChain);
+            } else if (retry != null) {
+                // A waiting retry whose original gave up the key
+                request.removeAttribute(RETRY_ATTRIBUTE);
+                attempt(retry, retry.body() != null ? new CachedBodyRequest(request, retry.body()) : request,
+                        response, filterChain);
+            } else {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        String key = request.getHeader(HEADER);
+        if (key == null || !cache.isEnabled() || !isMutating(request.getMethod())
+                || !request.getRequestURI().startsWith("/api/")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        MessageDigest digest = sha256();
+        digest.update(String.valueOf(request.getQueryString()).getBytes(StandardCharsets.UTF_8));
+        byte[] body = null;
+        if (isForm(request)) {
+            // The container parses form bodies into parameters itself; those then stand for the body
+            new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+                digest.update((byte) 0);
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                for (String value : values) {
+                    digest.update((byte) 1);
+                    digest.update(value.getBytes(StandardCharsets.UTF_8));
+                }
+            });
+        } else {
+            body = readBody(request);
+            if (body == null) {
+                writeError(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                        "requests with an " + HEADER + " must be at most " + maxRequestBytes + " bytes");
+                return;
+            }
+            digest.update((byte) 0);
+            digest.update(body);
+            request = new CachedBodyRequest(request, body);
+        }
+
+        String flightKey = RateLimitFilter.clientKey(request) + ' ' + request.getMethod() + ' '
+                + request.getRequestURI() + ' ' + key;
+        attempt(new Attempt(flightKey, digest.digest(), body), request, response, filterChain);
+    }
+
+    /**
+     * Runs the request if it claims the key, replays the original's stored response, or waits for it.
+     */
+    private void attempt(Attempt attempt,
+                         HttpServletRequest request,
+                         HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        while (true) {
+            IdempotencyCache.Flight flight = new IdempotencyCache.Flight(attempt.flightKey(), attempt.bodyDigest());
+            IdempotencyCache.Flight original = cache.claim(flight);
+            if (original == null) {
+                request.setAttribute(FLIGHT_ATTRIBUTE, flight);
+                run(flight, request, new ContentCachingResponseWrapper(response), filterChain);
+                return;
+            }
+            if (!original.sameBody(flight)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "this " + HEADER + " was already used for a different request");
+                return;
+            }
+
+            CompletableFuture<IdempotencyCache.StoredResponse> stored = original.response();
+            if (stored.isDone()) {
+                if (stored.isCompletedExceptionally()) {
+                    // The original ended without a response and gave up the key; run this one instead
+                    continue;
+                }
+                replayedStored.increment();
+                replay(stored.join(), response);
+                return;
+            }
+            if (waitMs == 0 || !request.isAsyncSupported()) {
+                writeInProgress(response);
+                return;
+            }
+            await(stored, attempt, request, response);
+            return;
+        }
+    }
+
+    /**
+     * Answers the request from the running original's response without blocking this thread: replays it, sends
+     * 409 when the wait times out, or dispatches the request again to run itself when the original gives up.
+     */
+    private void await(CompletableFuture<IdempotencyCache.StoredResponse> stored,
+                       Attempt attempt,
+                       HttpServletRequest request,
+                       HttpServletResponse response) {
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(waitMs);
+        // Whichever of the response and the timeout comes first answers
+        AtomicBoolean answered = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (answered.compareAndSet(false, true)) {
+                    writeInProgress(response);
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                answered.set(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        stored.whenComplete((result, failure) -> {
+            if (!answered.compareAndSet(false, true)) {
+                return;
+            }
+            if (failure != null) {
+                request.setAttribute(RETRY_ATTRIBUTE, attempt);
+                async.dispatch();
+                return;
+            }
+            try {
+                replayedInFlight.increment();
+                replay(result, response);
+            } catch (IOException e) {
+                // The client went away while waiting; nothing left to answer
+            } finally {
+                async.complete();
+            }
+        });
+    }
+
+    private void run(IdempotencyCache.Flight flight,
+                     HttpServletRequest request,
+                     HttpServletResponse response,
+                     FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            cache.abandon(flight);
+            throw e;
+        }
+
+        if (isAsyncStarted(request)) {
+            // Completed on the async dispatch; this catches requests that never get one (client gone, error)
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    cache.abandon(flight);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            return;
+        }
+
+        request.removeAttribute(FLIGHT_ATTRIBUTE);
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper == null) {
+            cache.abandon(flight);
+            return;
+        }
+        cache.complete(flight, new IdempotencyCache.StoredResponse(wrapper.getStatus(), headersOf(wrapper),
+                wrapper.getContentAsByteArray()));
+        wrapper.copyBodyToResponse();
+    }
+
+    // Null when the body exceeds max-request-bytes
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > maxRequestBytes) {
+            return null;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxRequestBytes + 1);
+        return body.length > maxRequestBytes ? null : body;
+    }
+
+    private static boolean isForm(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT)
+                .startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Map<String, List<String>> headersOf(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                headers.put(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        if (response.getContentType() != null) {
+            headers.put(HttpHeaders.CONTENT_TYPE, List.of(response.getContentType()));
+        }
+        return headers;
+    }
+
+    private static void replay(IdempotencyCache.StoredResponse stored, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(stored.status());
+        // Set rather than added, so headers the security filters write again are not doubled
+        stored.headers().forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            values.stream().skip(1).forEach(value -> response.addHeader(name, value));
+        });
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        writeError(response, HttpStatus.CONFLICT, "a request with this " + HEADER + " is still in progress");
+    }
+
+    private static boolean isMutating(String method) {
+        return HttpMethod.POST.matches(method) || HttpMethod.PUT.matches(method)
+                || HttpMethod.PATCH.matches(method) || HttpMethod.DELETE.matches(method);
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"" + message + "\",\"status\":" + status.value() + "}");
+    }
+
+    /**
+     * The request with its body already read into memory, served again to the handler.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("the body is already buffered");
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
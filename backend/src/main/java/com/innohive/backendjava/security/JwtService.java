@@ -1,5 +1,6 @@
 package com.innohive.backendjava.security;
 
+import com.innohive.backendjava.diagnostics.JwtValidationEvent;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -16,6 +17,8 @@ import java.util.Date;
 @Service
 public class JwtService {
 
+    public static final String USER_ID_CLAIM = "uid";
+
     private final Key key;
     private final int expirationDays;
 
@@ -34,10 +37,19 @@ public class JwtService {
     }
 
     public String generateToken(String username) {
+        return generateToken(username, null);
+    }
+
+    /**
+     * Also embeds the user id as the {@code uid} claim so consumers such as the WebSocket handshake
+     * can identify the user without a lookup.
+     */
+    public String generateToken(String username, Long userId) {
         Instant now = Instant.now();
         Instant exp = now.plus(expirationDays, ChronoUnit.DAYS);
         return Jwts.builder()
                 .setSubject(username)
+                .claim(USER_ID_CLAIM, userId)
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(exp))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -57,11 +69,30 @@ public class JwtService {
         }
     }
 
+    /**
+     * Validates the token once and returns its claims, or {@code null} when it is invalid or expired.
+     */
+    public Claims parseValidClaims(String token) {
+        try {
+            return getAllClaims(token);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private Claims getAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        JwtValidationEvent event = new JwtValidationEvent();
+        event.begin();
+        try {
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            event.valid = true;
+            return claims;
+        } finally {
+            event.commit();
+        }
     }
 }
@@ -0,0 +1,11 @@
+package com.innohive.backendjava.security;
+
+/**
+ * Independent request budgets. A client exhausting one (e.g. hammering login) keeps the others.
+ */
+public enum RateLimitBudget {
+    LOGIN,
+    JOIN,
+    READ,
+    SOCKET_CONNECT
+}
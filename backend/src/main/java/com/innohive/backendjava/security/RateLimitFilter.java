@@ -0,0 +1,79 @@
+package com.innohive.backendjava.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds over-budget REST traffic with {@code 429 Too Many Requests} before any controller or database work.
+ * Runs right after {@link JwtAuthFilter}, so authenticated clients are keyed by username and everyone else by IP.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitBudget budget = budgetFor(request);
+        if (budget == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(budget, clientKey(request));
+        if (waitNanos > 0) {
+            long retryAfter = RateLimiter.retryAfterSeconds(waitNanos);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"too many requests\",\"status\":429,\"retryAfterSeconds\":"
+                    + retryAfter + "}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimitBudget budgetFor(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        if (HttpMethod.POST.matches(method)
+                && (path.equals("/api/auth/login") || path.equals("/api/auth/register"))) {
+            return RateLimitBudget.LOGIN;
+        }
+        if (HttpMethod.POST.matches(method) && path.startsWith("/api/competitions/") && path.endsWith("/join")) {
+            return RateLimitBudget.JOIN;
+        }
+        if (HttpMethod.GET.matches(method) && path.startsWith("/api/")) {
+            return RateLimitBudget.READ;
+        }
+        return null;
+    }
+
+    static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && authentication.getName() != null) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
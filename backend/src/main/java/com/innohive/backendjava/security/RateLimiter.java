@@ -0,0 +1,92 @@
+package com.innohive.backendjava.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token buckets keyed by budget and client (username or IP).
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (GCRA), so a check is
+ * one CAS with no locks; the {@link ConcurrentHashMap} holding the buckets is itself striped.
+ */
+@Component
+public class RateLimiter {
+
+    private final boolean enabled;
+    private final Map<RateLimitBudget, Limit> limits = new EnumMap<>(RateLimitBudget.class);
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                       @Value("${rate-limit.login.capacity:10}") int loginCapacity,
+                       @Value("${rate-limit.login.per-minute:10}") int loginPerMinute,
+                       @Value("${rate-limit.join.capacity:20}") int joinCapacity,
+                       @Value("${rate-limit.join.per-minute:60}") int joinPerMinute,
+                       @Value("${rate-limit.read.capacity:60}") int readCapacity,
+                       @Value("${rate-limit.read.per-minute:600}") int readPerMinute,
+                       @Value("${rate-limit.socket-connect.capacity:10}") int socketCapacity,
+                       @Value("${rate-limit.socket-connect.per-minute:12}") int socketPerMinute) {
+        this.enabled = enabled;
+        limits.put(RateLimitBudget.LOGIN, new Limit(loginCapacity, loginPerMinute));
+        limits.put(RateLimitBudget.JOIN, new Limit(joinCapacity, joinPerMinute));
+        limits.put(RateLimitBudget.READ, new Limit(readCapacity, readPerMinute));
+        limits.put(RateLimitBudget.SOCKET_CONNECT, new Limit(socketCapacity, socketPerMinute));
+    }
+
+    /**
+     * Takes one token from the client's bucket.
+     *
+     * @return 0 when the request may proceed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(RateLimitBudget budget, String clientKey) {
+        if (!enabled) {
+            return 0L;
+        }
+
+        Limit limit = limits.get(budget);
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.computeIfAbsent(budget.name() + ':' + clientKey, k -> new AtomicLong(now));
+        while (true) {
+            long arrival = bucket.get();
+            // nanoTime values may wrap, so compare by difference only
+            long next = (arrival - now > 0 ? arrival : now) + limit.intervalNanos;
+            long wait = next - limit.burstNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Rounds a wait returned by {@link #tryAcquire} up to whole seconds for a {@code Retry-After} header.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1L, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // A bucket whose arrival time has passed is full again and indistinguishable from a new one
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    private static final class Limit {
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        private Limit(int capacity, int perMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.burstNanos = intervalNanos * Math.max(1, capacity);
+        }
+    }
+}
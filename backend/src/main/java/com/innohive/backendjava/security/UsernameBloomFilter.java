@@ -0,0 +1,121 @@
+package com.innohive.backendjava.security;
+
+import com.innohive.backendjava.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every taken username. A negative answer is definite, so availability checks and
+ * registrations of clearly new names skip the database; a positive one only means "maybe" and falls back to it.
+ * Seeded in the background on startup; until then every name counts as maybe-taken.
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameBloomFilter.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readTx;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean ready;
+
+    public UsernameBloomFilter(UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${auth.username-filter.expected-usernames:1000000}") long expectedUsernames,
+                               @Value("${auth.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long n = Math.max(1, expectedUsernames);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+
+    /**
+     * False only when the username is certainly not taken.
+     */
+    public boolean mightContain(String username) {
+        if (!ready) {
+            return true;
+        }
+        long h1 = hash(username);
+        long h2 = Long.rotateLeft(h1, 32) * 0x9E3779B97F4A7C15L | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(String username) {
+        long h1 = hash(username);
+        long h2 = Long.rotateLeft(h1, 32) * 0x9E3779B97F4A7C15L | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        Thread.ofVirtual().name("username-filter-seed").start(() -> {
+            try {
+                long count = readTx.execute(status -> {
+                    long seeded = 0;
+                    try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+                        for (String username : (Iterable<String>) usernames::iterator) {
+                            add(username);
+                            seeded++;
+                        }
+                    }
+                    return seeded;
+                });
+                ready = true;
+                log.info("Seeded username filter with {} usernames", count);
+            } catch (RuntimeException e) {
+                log.warn("Seeding the username filter failed; availability checks keep using the database", e);
+            }
+        });
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finished with a murmur3 mix so both halves are usable
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,220 @@
+package com.innohive.backendjava.transfer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import and export of {@link TransferTable}s through PostgreSQL {@code COPY}, streamed with the driver's
+ * {@link CopyManager} so rows never pass through JPA and neither side holds more than a buffer in memory.
+ * <p>
+ * An import is checked by {@link CopyValidation} on its way into a temporary staging table, then moved into the
+ * table with one {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING}, all in one transaction: a file is either
+ * loaded completely or not at all, rows that already exist are skipped, and rows without an id get one from
+ * the table's sequence. Participants are one table split in two once {@code db/participants_archive.sql} is
+ * applied: an export includes {@code participants_archive}, and an import skips rows the archive already holds
+ * and writes rows of archived competitions straight into it. Used by the admin endpoints and from the command
+ * line:
+ * <pre>
+ * java -cp backend.jar -Dloader.main=com.innohive.backendjava.transfer.BulkTransfer \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher import|export &lt;table&gt; &lt;file&gt; [csv|binary]
+ * </pre>
+ * which connects with {@code SUPABASE_DB_URL}, {@code SUPABASE_DB_USER} and {@code SUPABASE_DB_PASSWORD}
+ * like the server does.
+ */
+public final class BulkTransfer {
+
+    private BulkTransfer() {
+    }
+
+    public enum Format {
+        CSV("FORMAT csv, HEADER true"),
+        BINARY("FORMAT binary");
+
+        private final String options;
+
+        Format(String options) {
+            this.options = options;
+        }
+
+        public static Format of(String value) {
+            return switch (value.toLowerCase()) {
+                case "csv" -> CSV;
+                case "binary" -> BINARY;
+                default -> throw new IllegalArgumentException("unknown format " + value);
+            };
+        }
+    }
+
+    /**
+     * {@code rows} read from the file, of which {@code inserted} were new and the rest already existed.
+     */
+    public record Result(TransferTable table, long rows, long inserted, long elapsedNanos) {
+
+        public long skipped() {
+            return rows - inserted;
+        }
+    }
+
+    /**
+     * Streams the whole table, ordered by id, to {@code out}. Returns the number of rows written.
+     */
+    public static long export(Connection connection, TransferTable table, Format format, OutputStream out)
+            throws SQLException, IOException {
+        String source = table.table();
+        if (table == TransferTable.PARTICIPANTS && hasArchive(connection)) {
+            source = "(SELECT " + table.columnList() + " FROM participants UNION ALL SELECT " + table.columnList()
+                    + " FROM participants_archive) p";
+        }
+        String select = table.columns().stream()
+                .map(c -> c.name() + "::" + c.type().sql())
+                .collect(Collectors.joining(", ", "SELECT ", " FROM " + source + " ORDER BY id"));
+        return copyApi(connection).copyOut("COPY (" + select + ") TO STDOUT WITH (" + format.options + ")", out);
+    }
+
+    /**
+     * Loads the file into the table in one transaction. Throws {@link IllegalArgumentException} with the line
+     * or tuple at fault when the file does not match the table's layout; constraint violations the file cannot
+     * show by itself (unknown competition or user ids) surface as {@link SQLException}.
+     */
+    public static Result importFile(Connection connection, TransferTable table, Format format, InputStream in)
+            throws SQLException, IOException {
+        long started = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(table.columns().stream()
+                    .map(c -> c.name() + " " + c.type().sql())
+                    .collect(Collectors.joining(", ", "CREATE TEMP TABLE transfer_staging (", ") ON COMMIT DROP")));
+
+            CopyIn copyIn = copyApi(connection).copyIn("COPY transfer_staging (" + table.columnList()
+                    + ") FROM STDIN WITH (" + format.options + ")");
+            PGCopyOutputStream out = new PGCopyOutputStream(copyIn, CopyValidation.BUFFER_BYTES);
+            long rows;
+            try {
+                rows = format == Format.CSV
+                        ? CopyValidation.csv(table, in, out)
+                        : CopyValidation.binary(table, in, out);
+                out.endCopy();
+            } catch (IOException | RuntimeException e) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw e;
+            }
+
+            String select = table.columns().stream()
+                    .map(c -> c.name().equals("id")
+                            ? "COALESCE(id, nextval(pg_get_serial_sequence('" + table.table() + "', 'id')))"
+                            : c.name())
+                    .collect(Collectors.joining(", "));
+            boolean archive = table == TransferTable.PARTICIPANTS && hasArchive(connection);
+            long inserted = 0;
+            if (archive) {
+                inserted += importArchived(statement, select);
+            }
+            inserted += statement.executeUpdate("INSERT INTO " + table.table() + " (" + table.columnList()
+                    + ") OVERRIDING SYSTEM VALUE SELECT " + select + " FROM transfer_staging ON CONFLICT DO NOTHING");
+
+            // Imported ids may be ahead of the sequence; move it past them so later inserts do not collide. The
+            // archive shares the participants sequence, so its ids count too
+            String ids = archive
+                    ? "(SELECT id FROM participants UNION ALL SELECT id FROM participants_archive) i"
+                    : table.table();
+            statement.execute("SELECT setval(seq, (SELECT max(id) FROM " + ids + "))"
+                    + " FROM (SELECT pg_get_serial_sequence('" + table.table() + "', 'id') AS seq) s"
+                    + " WHERE seq IS NOT NULL AND EXISTS (SELECT 1 FROM " + ids + ")");
+
+            connection.commit();
+            return new Result(table, rows, inserted, System.nanoTime() - started);
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Takes the staged participants the archive is responsible for out of staging: rows it already holds (by id,
+     * or the same trader in the same competition) are dropped, and rows of archived competitions are inserted
+     * into it, updating the recorded counts. Returns the rows inserted into the archive.
+     */
+    private static long importArchived(Statement statement, String select) throws SQLException {
+        statement.executeUpdate("DELETE FROM transfer_staging s USING participants_archive a"
+                + " WHERE s.id = a.id OR (s.competition_id = a.competition_id AND s.user_id = a.user_id)");
+        long inserted = statement.executeUpdate("INSERT INTO participants_archive (" + TransferTable.PARTICIPANTS.columnList()
+                + ") SELECT " + select + " FROM transfer_staging"
+                + " WHERE competition_id IN (SELECT competition_id FROM archived_competitions) ON CONFLICT DO NOTHING");
+        if (inserted > 0) {
+            statement.executeUpdate("UPDATE archived_competitions c SET participants ="
+                    + " (SELECT count(*) FROM participants_archive p WHERE p.competition_id = c.competition_id)"
+                    + " WHERE c.competition_id IN (SELECT competition_id FROM transfer_staging)");
+        }
+        statement.executeUpdate("DELETE FROM transfer_staging"
+                + " WHERE competition_id IN (SELECT competition_id FROM archived_competitions)");
+        return inserted;
+    }
+
+    private static boolean hasArchive(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT to_regclass('participants_archive') IS NOT NULL"
+                     + " AND to_regclass('archived_competitions') IS NOT NULL")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static CopyManager copyApi(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("usage: BulkTransfer import|export <competitions|users|participants> <file> [csv|binary]");
+            System.exit(2);
+        }
+        TransferTable table = TransferTable.of(args[1]);
+        Path file = Path.of(args[2]);
+        Format format = args.length > 3 ? Format.of(args[3]) : Format.CSV;
+
+        try (Connection connection = DriverManager.getConnection(System.getenv("SUPABASE_DB_URL"),
+                System.getenv("SUPABASE_DB_USER"), System.getenv("SUPABASE_DB_PASSWORD"))) {
+            if (args[0].equals("export")) {
+                long started = System.nanoTime();
+                long rows;
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), CopyValidation.BUFFER_BYTES)) {
+                    rows = export(connection, table, format, out);
+                }
+                System.out.printf("exported %d %s rows to %s in %.3f s%n", rows, table.table(), file,
+                        (System.nanoTime() - started) / 1e9);
+                return;
+            }
+
+            Result result;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file), CopyValidation.BUFFER_BYTES)) {
+                result = importFile(connection, table, format, in);
+            }
+            double seconds = result.elapsedNanos() / 1e9;
+            System.out.printf("imported %d %s rows (%d new, %d already present) in %.3f s (%.0f rows/s)%n",
+                    result.rows(), table.table(), result.inserted(), result.skipped(), seconds,
+                    seconds > 0 ? result.rows() / seconds : 0.0);
+            System.out.println("running servers pick the rows up after POST /api/admin/transfer/" + table.table()
+                    + "/refresh or a restart");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.innohive.backendjava.transfer;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.leaderboard.GlobalRanking;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.search.CompetitionIndex;
+import com.innohive.backendjava.security.UsernameBloomFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs {@link BulkTransfer} on a pooled connection and brings the in-memory views up to date afterwards. An
+ * import writes behind Hibernate, the competition index, the leaderboards and the username filter, so each of
+ * them is rebuilt once per file rather than once per row.
+ */
+@Component
+public class BulkTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkTransferService.class);
+
+    private final DataSource dataSource;
+    private final Cache cache;
+    private final CompetitionIndex competitionIndex;
+    private final LeaderboardStore leaderboardStore;
+    private final GlobalRanking globalRanking;
+    private final UsernameBloomFilter usernameBloomFilter;
+    private final ParticipantArchive participantArchive;
+
+    public BulkTransferService(DataSource dataSource,
+                               EntityManagerFactory entityManagerFactory,
+                               CompetitionIndex competitionIndex,
+                               LeaderboardStore leaderboardStore,
+                               GlobalRanking globalRanking,
+                               UsernameBloomFilter usernameBloomFilter,
+                               ParticipantArchive participantArchive) {
+        this.dataSource = dataSource;
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.competitionIndex = competitionIndex;
+        this.leaderboardStore = leaderboardStore;
+        this.globalRanking = globalRanking;
+        this.usernameBloomFilter = usernameBloomFilter;
+        this.participantArchive = participantArchive;
+    }
+
+    public BulkTransfer.Result importFile(TransferTable table, BulkTransfer.Format format, InputStream in)
+            throws SQLException, IOException {
+        BulkTransfer.Result result;
+        try (Connection connection = dataSource.getConnection()) {
+            result = BulkTransfer.importFile(connection, table, format, in);
+        }
+        log.info("Imported {} {} rows ({} new) in {} ms", result.rows(), table.table(), result.inserted(),
+                result.elapsedNanos() / 1_000_000);
+        if (result.inserted() > 0) {
+            refresh(table);
+        }
+        return result;
+    }
+
+    public long export(TransferTable table, BulkTransfer.Format format, OutputStream out)
+            throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            return BulkTransfer.export(connection, table, format, out);
+        }
+    }
+
+    /**
+     * Rebuilds whatever caches the table feeds; also called after a command-line import.
+     */
+    public void refresh(TransferTable table) {
+        long started = System.nanoTime();
+        switch (table) {
+            case COMPETITIONS, PARTICIPANTS -> {
+                if (table == TransferTable.COMPETITIONS) {
+                    cache.evictEntityData(Competition.class);
+                    cache.evictQueryRegion(Competition.QUERY_CACHE_REGION);
+                } else {
+                    // Rows of archived competitions are imported into the archive
+                    participantArchive.reloadCounts();
+                }
+                competitionIndex.rebuild();
+                leaderboardStore.reconcile();
+                globalRanking.reseed();
+            }
+            // The filter only ever adds, so seeding again over the live one is safe
+            case USERS -> usernameBloomFilter.seedInBackground();
+        }
+        log.info("Refreshed caches after {} import in {} ms", table.table(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,329 @@
+package com.innohive.backendjava.transfer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Passes an import file through to a COPY stream while checking it record by record, so a malformed file is
+ * rejected with its line or record number instead of a bare COPY error, and nothing reaches the tables. Memory
+ * use is one read buffer and one field buffer whatever the size of the file.
+ */
+final class CopyValidation {
+
+    static final int BUFFER_BYTES = 64 * 1024;
+    // Four UTF-8 bytes per character of the longest text column, with room to spare
+    private static final int MAX_FIELD_BYTES = 1024;
+    private static final byte[] BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private CopyValidation() {
+    }
+
+    /**
+     * CSV as PostgreSQL reads it with {@code FORMAT csv, HEADER true}: a header naming the table's columns, then
+     * one record per line; an empty unquoted field is NULL. Returns the number of data records.
+     */
+    static long csv(TransferTable table, InputStream in, OutputStream out) throws IOException {
+        CsvChecker checker = new CsvChecker(table.columns());
+        byte[] buffer = new byte[BUFFER_BYTES];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            checker.feed(buffer, n);
+            out.write(buffer, 0, n);
+        }
+        checker.finish();
+        return checker.records;
+    }
+
+    /**
+     * PostgreSQL's binary COPY format with the table's columns in order, each with the binary representation of
+     * its {@link TransferTable.Type}. Returns the number of tuples.
+     */
+    static long binary(TransferTable table, InputStream in, OutputStream out) throws IOException {
+        List<TransferTable.Column> columns = table.columns();
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new TeeInputStream(in, out), BUFFER_BYTES));
+        byte[] field = new byte[MAX_FIELD_BYTES];
+        long tuples = 0;
+        try {
+            byte[] signature = new byte[BINARY_SIGNATURE.length];
+            data.readFully(signature);
+            if (!Arrays.equals(signature, BINARY_SIGNATURE)) {
+                throw new IllegalArgumentException("not a binary COPY file");
+            }
+            if ((data.readInt() & (1 << 16)) != 0) {
+                throw new IllegalArgumentException("files with OIDs are not supported");
+            }
+            data.skipNBytes(data.readInt());
+
+            while (true) {
+                short count = data.readShort();
+                if (count == -1) {
+                    break;
+                }
+                long tuple = tuples + 1;
+                if (count != columns.size()) {
+                    throw new IllegalArgumentException("tuple " + tuple + ": expected " + columns.size()
+                            + " fields, found " + count);
+                }
+                for (TransferTable.Column column : columns) {
+                    int length = data.readInt();
+                    if (length == -1) {
+                        if (column.required()) {
+                            throw new IllegalArgumentException("tuple " + tuple + ": " + column.name() + " is required");
+                        }
+                        continue;
+                    }
+                    String error = checkBinary(column, length, data, field);
+                    if (error != null) {
+                        throw new IllegalArgumentException("tuple " + tuple + ": " + error);
+                    }
+                }
+                tuples++;
+            }
+            if (data.read() != -1) {
+                throw new IllegalArgumentException("data after the end of the binary COPY file");
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("binary COPY file is truncated after " + tuples + " tuples");
+        }
+        return tuples;
+    }
+
+    private static String checkBinary(TransferTable.Column column, int length, DataInputStream data, byte[] field)
+            throws IOException {
+        switch (column.type()) {
+            case BIGINT, TIMESTAMP, TIMESTAMPTZ -> {
+                if (length != 8) {
+                    return column.name() + " must be 8 bytes, found " + length;
+                }
+                data.skipNBytes(8);
+            }
+            case NUMERIC -> {
+                if (length < 8 || length > MAX_FIELD_BYTES) {
+                    return "invalid " + column.name();
+                }
+                short digits = data.readShort();
+                short weight = data.readShort();
+                int sign = data.readShort() & 0xFFFF;
+                data.skipNBytes(2);
+                if (length != 8 + 2 * digits || (sign != 0x0000 && sign != 0x4000)) {
+                    return "invalid " + column.name();
+                }
+                // weight w puts the leading base-10000 digit at 10000^w, i.e. more than 4w integer digits
+                if (digits > 0 && weight >= (column.size() - 2 + 3) / 4) {
+                    return column.name() + " out of range";
+                }
+                data.skipNBytes(2L * digits);
+            }
+            case TEXT -> {
+                if (length > Math.min(MAX_FIELD_BYTES, column.size() * 4)) {
+                    return column.name() + " is longer than " + column.size() + " characters";
+                }
+                data.readFully(field, 0, length);
+                if (codePoints(field, length) > column.size()) {
+                    return column.name() + " is longer than " + column.size() + " characters";
+                }
+            }
+        }
+        return null;
+    }
+
+    // UTF-8 continuation bytes are 10xxxxxx; every other byte starts a character
+    private static int codePoints(byte[] bytes, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xC0) != 0x80) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Byte-level RFC 4180 state machine; field separators and quotes are ASCII, so UTF-8 text needs no decoding
+     * until a field is checked.
+     */
+    private static final class CsvChecker {
+
+        private enum State { FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED }
+
+        private final List<TransferTable.Column> columns;
+        private final byte[] field = new byte[MAX_FIELD_BYTES];
+        private State state = State.FIELD_START;
+        private int length;
+        private boolean quoted;
+        private int fieldIndex;
+        private long line = 1;
+        private boolean header = true;
+        private long records;
+
+        private CsvChecker(List<TransferTable.Column> columns) {
+            this.columns = columns;
+        }
+
+        void feed(byte[] buffer, int n) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                switch (state) {
+                    case FIELD_START -> {
+                        if (b == '"') {
+                            quoted = true;
+                            state = State.QUOTED;
+                        } else if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b != '\r') {
+                            append(b);
+                            state = State.UNQUOTED;
+                        }
+                    }
+                    case UNQUOTED -> {
+                        if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b == '"') {
+                            fail("quote inside an unquoted field");
+                        } else if (b != '\r') {
+                            append(b);
+                        }
+                    }
+                    case QUOTED -> {
+                        if (b == '"') {
+                            state = State.QUOTE_IN_QUOTED;
+                        } else {
+                            if (b == '\n') {
+                                line++;
+                            }
+                            append(b);
+                        }
+                    }
+                    case QUOTE_IN_QUOTED -> {
+                        if (b == '"') {
+                            append(b);
+                            state = State.QUOTED;
+                        } else if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b != '\r') {
+                            fail("unexpected character after a closing quote");
+                        }
+                    }
+                }
+            }
+        }
+
+        void finish() {
+            if (state == State.QUOTED) {
+                fail("unterminated quoted field");
+            }
+            if (state != State.FIELD_START || fieldIndex > 0 || quoted) {
+                endRecord();
+            }
+            if (header) {
+                fail("missing header");
+            }
+        }
+
+        private void append(byte b) {
+            if (length == field.length) {
+                fail("field " + (fieldIndex + 1) + " is too long");
+            }
+            field[length++] = b;
+        }
+
+        private void endField() {
+            if (fieldIndex >= columns.size()) {
+                fail("expected " + columns.size() + " fields");
+            }
+            TransferTable.Column column = columns.get(fieldIndex);
+            String value = quoted || length > 0 ? new String(field, 0, length, StandardCharsets.UTF_8) : null;
+            if (header) {
+                if (value == null || !value.trim().equalsIgnoreCase(column.name())) {
+                    fail("header must be " + columns.stream().map(TransferTable.Column::name).toList());
+                }
+            } else {
+                String error = TransferTable.check(column, value);
+                if (error != null) {
+                    fail(error);
+                }
+            }
+            fieldIndex++;
+            length = 0;
+            quoted = false;
+            state = State.FIELD_START;
+        }
+
+        private void endRecord() {
+            endField();
+            if (fieldIndex != columns.size()) {
+                fail("expected " + columns.size() + " fields, found " + fieldIndex);
+            }
+            if (header) {
+                header = false;
+            } else {
+                records++;
+            }
+            fieldIndex = 0;
+            line++;
+        }
+
+        private void fail(String message) {
+            throw new IllegalArgumentException("line " + line + ": " + message);
+        }
+    }
+
+    /**
+     * Forwards every byte read, including skipped ones, to {@code out}.
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        private TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                out.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] scratch = new byte[(int) Math.min(n, BUFFER_BYTES)];
+            long skipped = 0;
+            while (skipped < n) {
+                int r = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+                if (r < 0) {
+                    break;
+                }
+                skipped += r;
+            }
+            return skipped;
+        }
+    }
+}
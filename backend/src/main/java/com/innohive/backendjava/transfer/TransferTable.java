@@ -0,0 +1,137 @@
+package com.innohive.backendjava.transfer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tables that can be bulk imported and exported, with the column layout of their files. The layout is fixed
+ * here rather than read from the database, so CSV headers and binary field types stay the same across
+ * environments whatever the live column types are.
+ */
+public enum TransferTable {
+
+    COMPETITIONS("competitions", List.of(
+            new Column("id", Type.BIGINT, 0, false),
+            new Column("name", Type.TEXT, 100, false),
+            new Column("entry_fee", Type.NUMERIC, 10, false),
+            new Column("prize_pool", Type.NUMERIC, 10, false),
+            new Column("status", Type.TEXT, 20, false),
+            new Column("start_date", Type.TIMESTAMP, 0, false),
+            new Column("end_date", Type.TIMESTAMP, 0, false))),
+    USERS("users", List.of(
+            new Column("id", Type.BIGINT, 0, false),
+            new Column("username", Type.TEXT, 50, true),
+            new Column("password", Type.TEXT, 100, true),
+            new Column("first_name", Type.TEXT, 100, false),
+            new Column("last_name", Type.TEXT, 100, false))),
+    PARTICIPANTS("participants", List.of(
+            new Column("id", Type.BIGINT, 0, false),
+            new Column("competition_id", Type.BIGINT, 0, true),
+            new Column("user_id", Type.BIGINT, 0, true),
+            new Column("joined_at", Type.TIMESTAMPTZ, 0, false),
+            new Column("roi", Type.NUMERIC, 10, false)));
+
+    /**
+     * Column types as they appear in the files; {@code NUMERIC} columns have two decimals.
+     */
+    public enum Type {
+        BIGINT("bigint"),
+        TEXT("text"),
+        NUMERIC("numeric"),
+        TIMESTAMP("timestamp"),
+        TIMESTAMPTZ("timestamptz");
+
+        private final String sql;
+
+        Type(String sql) {
+            this.sql = sql;
+        }
+
+        public String sql() {
+            return sql;
+        }
+    }
+
+    /**
+     * {@code size} is the maximum length in characters of a text column and the precision of a numeric one.
+     */
+    public record Column(String name, Type type, int size, boolean required) {
+    }
+
+    // PostgreSQL writes "2024-01-31 12:00:00.5+00"; ISO-8601 with a T is accepted as well. Strict, so dates
+    // PostgreSQL rejects, such as February 30, are not rolled over to a valid one
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .optionalStart().parseLenient().appendOffset("+HH:MM:ss", "Z").optionalEnd()
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private final String table;
+    private final List<Column> columns;
+
+    TransferTable(String table, List<Column> columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    public static TransferTable of(String value) {
+        return switch (value.toLowerCase()) {
+            case "competitions" -> COMPETITIONS;
+            case "users" -> USERS;
+            case "participants" -> PARTICIPANTS;
+            default -> throw new IllegalArgumentException("unknown table " + value);
+        };
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    public String columnList() {
+        return columns.stream().map(Column::name).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Checks one CSV value ({@code null} for an SQL NULL) against its column; returns an error message or null.
+     */
+    static String check(Column column, String value) {
+        if (value == null) {
+            return column.required() ? column.name() + " is required" : null;
+        }
+        try {
+            switch (column.type()) {
+                case BIGINT -> Long.parseLong(value);
+                case NUMERIC -> {
+                    BigDecimal number = new BigDecimal(value);
+                    if (number.precision() - number.scale() > column.size() - 2) {
+                        return column.name() + " out of range: " + value;
+                    }
+                }
+                case TIMESTAMP -> LocalDateTime.parse(value, TIMESTAMP);
+                case TIMESTAMPTZ -> OffsetDateTime.parse(value, TIMESTAMP);
+                case TEXT -> {
+                    if (value.codePointCount(0, value.length()) > column.size()) {
+                        return column.name() + " is longer than " + column.size() + " characters";
+                    }
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return "invalid " + column.name() + ": " + value;
+        }
+        return null;
+    }
+}
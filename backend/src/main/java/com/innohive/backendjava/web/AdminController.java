@@ -0,0 +1,282 @@
+package com.innohive.backendjava.web;
+
+import com.innohive.backendjava.diagnostics.ProfilingRecorder;
+import com.innohive.backendjava.leaderboard.LeaderboardEntry;
+import com.innohive.backendjava.leaderboard.LeaderboardEvent;
+import com.innohive.backendjava.leaderboard.LeaderboardEventLog;
+import com.innohive.backendjava.leaderboard.LeaderboardReplay;
+import com.innohive.backendjava.transfer.BulkTransfer;
+import com.innohive.backendjava.transfer.BulkTransferService;
+import com.innohive.backendjava.transfer.TransferTable;
+import com.innohive.backendjava.websocket.ScoreUpdateScheduler;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Operator endpoints; restricted to ROLE_ADMIN (see {@code admin.usernames}).
+ */
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin
+public class AdminController {
+
+    private final LeaderboardEventLog eventLog;
+    private final ScoreUpdateScheduler scoreUpdateScheduler;
+    private final BulkTransferService bulkTransferService;
+    private final ProfilingRecorder profilingRecorder;
+
+    public AdminController(LeaderboardEventLog eventLog,
+                           ScoreUpdateScheduler scoreUpdateScheduler,
+                           BulkTransferService bulkTransferService,
+                           ProfilingRecorder profilingRecorder) {
+        this.eventLog = eventLog;
+        this.scoreUpdateScheduler = scoreUpdateScheduler;
+        this.bulkTransferService = bulkTransferService;
+        this.profilingRecorder = profilingRecorder;
+    }
+
+    /**
+     * Current tick cadence of every active competition, with the cost and backlog of its last tick.
+     */
+    @GetMapping("/ticks")
+    public ResponseEntity<?> ticks() {
+        return ResponseEntity.ok(Map.of("competitions", scoreUpdateScheduler.cadences()));
+    }
+
+    /**
+     * Rebuilds a competition's leaderboard from the event log as it stood at {@code at} (ISO-8601 instant) or
+     * after event {@code sequence}; the latest state when neither is given. With {@code username}, also returns
+     * that trader's logged ROI history up to the same point, for settling ranking disputes.
+     */
+    @GetMapping("/competitions/{id}/replay")
+    public ResponseEntity<?> replay(@PathVariable("id") Long id,
+                                    @RequestParam(value = "at", required = false) String at,
+                                    @RequestParam(value = "sequence", required = false) Long sequence,
+                                    @RequestParam(value = "username", required = false) String username,
+                                    @RequestParam(value = "limit", defaultValue = "100") int limit) throws IOException {
+        if (!eventLog.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "event log is disabled"));
+        }
+
+        long untilTimestamp = Long.MAX_VALUE;
+        if (at != null) {
+            try {
+                untilTimestamp = Instant.parse(at).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "at must be an ISO-8601 instant"));
+            }
+        }
+        long untilSequence = sequence != null ? sequence : Long.MAX_VALUE;
+
+        LeaderboardReplay.Result result = LeaderboardReplay.replay(
+                eventLog.directory(), id, untilSequence, untilTimestamp, username);
+
+        List<LeaderboardEntry> ranked = result.board().ranked();
+        List<Map<String, Object>> traders = new ArrayList<>();
+        for (int i = 0; i < Math.min(Math.max(0, limit), ranked.size()); i++) {
+            LeaderboardEntry e = ranked.get(i);
+            traders.add(Map.of("rank", i + 1, "name", e.username(), "roi", e.roi()));
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("competitionId", String.valueOf(id));
+        body.put("lastSequence", result.lastSequence());
+        body.put("lastEventAt", result.lastTimestamp() > 0 ? Instant.ofEpochMilli(result.lastTimestamp()).toString() : null);
+        body.put("eventsScanned", result.eventsScanned());
+        body.put("eventsApplied", result.eventsApplied());
+        body.put("elapsedMs", result.elapsedNanos() / 1_000_000);
+        body.put("total", ranked.size());
+        body.put("traders", traders);
+        if (username != null) {
+            List<Map<String, Object>> history = new ArrayList<>(result.history().size());
+            for (LeaderboardEvent e : result.history()) {
+                Map<String, Object> point = new HashMap<>();
+                point.put("sequence", e.sequence());
+                point.put("at", Instant.ofEpochMilli(e.timestamp()).toString());
+                point.put("type", e.type().name().toLowerCase());
+                point.put("delta", BigDecimal.valueOf(e.delta(), LeaderboardEntry.ROI_SCALE));
+                point.put("roi", BigDecimal.valueOf(e.scaledRoi(), LeaderboardEntry.ROI_SCALE));
+                history.add(point);
+            }
+            body.put("history", history);
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Bulk-loads a CSV or binary COPY file (the raw request body, optionally gzip-encoded) into
+     * {@code competitions}, {@code users} or {@code participants}; all or nothing, existing ids are skipped.
+     */
+    @PostMapping("/transfer/{table}")
+    public ResponseEntity<?> importTable(@PathVariable("table") String table,
+                                         @RequestParam(value = "format", defaultValue = "csv") String format,
+                                         HttpServletRequest request) throws IOException, SQLException {
+        BulkTransfer.Result result;
+        try {
+            TransferTable parsedTable = TransferTable.of(table);
+            BulkTransfer.Format parsedFormat = BulkTransfer.Format.of(format);
+            InputStream in = request.getInputStream();
+            String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+            if (contentEncoding != null && contentEncoding.contains("gzip")) {
+                in = new GZIPInputStream(in, 8192);
+            }
+            result = bulkTransferService.importFile(parsedTable, parsedFormat, new BufferedInputStream(in, 8192));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (SQLException e) {
+            // Class 23: integrity constraint violations, e.g. participants of unknown competitions or users
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+            }
+            throw e;
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("table", result.table().table());
+        body.put("rows", result.rows());
+        body.put("inserted", result.inserted());
+        body.put("skipped", result.skipped());
+        body.put("elapsedMs", result.elapsedNanos() / 1_000_000);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Streams a whole table as CSV or binary COPY, gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/transfer/{table}")
+    public ResponseEntity<StreamingResponseBody> exportTable(
+            @PathVariable("table") String table,
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        TransferTable parsedTable;
+        BulkTransfer.Format parsedFormat;
+        try {
+            parsedTable = TransferTable.of(table);
+            parsedFormat = BulkTransfer.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String extension = parsedFormat == BulkTransfer.Format.CSV ? ".csv" : ".bin";
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(parsedFormat == BulkTransfer.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + parsedTable.table() + extension + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                    bulkTransferService.export(parsedTable, parsedFormat, compressed);
+                    compressed.finish();
+                } else {
+                    bulkTransferService.export(parsedTable, parsedFormat, out);
+                }
+            } catch (SQLException e) {
+                throw new IOException("exporting " + parsedTable.table() + " failed", e);
+            }
+        };
+        return response.body(body);
+    }
+
+    /**
+     * Rebuilds the caches a table feeds, for rows loaded with the {@link BulkTransfer} command line.
+     */
+    @PostMapping("/transfer/{table}/refresh")
+    public ResponseEntity<?> refreshTable(@PathVariable("table") String table) {
+        TransferTable parsedTable;
+        try {
+            parsedTable = TransferTable.of(table);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        bulkTransferService.refresh(parsedTable);
+        return ResponseEntity.ok(Map.of("table", parsedTable.table(), "refreshed", true));
+    }
+
+    @GetMapping("/profiling")
+    public ResponseEntity<?> profilingStatus() {
+        return ResponseEntity.ok(profilingRecorder.status());
+    }
+
+    /**
+     * Starts a Flight Recorder recording with the JDK's {@code default} or {@code profile} settings plus the
+     * application's tick, frame, send, snapshot and JWT events. It stops by itself after {@code durationMs}.
+     */
+    @PostMapping("/profiling/start")
+    public ResponseEntity<?> startProfiling(@RequestParam(value = "settings", defaultValue = "profile") String settings,
+                                            @RequestParam(value = "durationMs", defaultValue = "60000") long durationMs) {
+        try {
+            return ResponseEntity.ok(profilingRecorder.start(settings, durationMs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stops the recording if it is still running and returns it as a {@code .jfr} file.
+     */
+    @PostMapping("/profiling/stop")
+    public ResponseEntity<StreamingResponseBody> stopProfiling() throws IOException {
+        Path file;
+        try {
+            file = profilingRecorder.stop();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"trademini-" + Instant.now().getEpochSecond() + ".jfr\"")
+                .body(body);
+    }
+
+    // The streaming endpoints cannot return a JSON body themselves; a StreamingResponseBody is only written
+    // when the method declares it, so their errors are thrown and answered here instead
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> handleStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", String.valueOf(e.getReason())));
+    }
+}
@@ -3,16 +3,19 @@ package com.innohive.backendjava.web;
 import com.innohive.backendjava.model.User;
 import com.innohive.backendjava.repository.UserRepository;
 import com.innohive.backendjava.security.JwtService;
+import com.innohive.backendjava.security.PasswordHashingService;
+import com.innohive.backendjava.security.UsernameBloomFilter;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -20,19 +23,23 @@ import java.util.Map;
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UsernameBloomFilter usernameBloomFilter;
     private final JwtService jwtService;
 
     public AuthController(UserRepository userRepository,
-                          PasswordEncoder passwordEncoder,
+                          PasswordHashingService passwordHashingService,
+                          UsernameBloomFilter usernameBloomFilter,
                           JwtService jwtService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.usernameBloomFilter = usernameBloomFilter;
         this.jwtService = jwtService;
     }
 
+    // bcrypt runs on PasswordHashingService's pool; the Tomcat thread is released while it waits
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequest request) {
         Map<String, String> errors = new HashMap<>();
 
         if (isBlank(request.getUsername())) {
@@ -49,47 +56,94 @@ public class AuthController {
         }
 
         if (!errors.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("errors", errors));
+            return respond(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("errors", errors)));
         }
 
-        if (userRepository.existsByUsername(request.getUsername())) {
-            errors.put("username", "username is already registered");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("errors", errors));
+        // Spends no bcrypt time on names that are known to be taken; the insert below stays authoritative
+        if (usernameBloomFilter.mightContain(request.getUsername())
+                && userRepository.existsByUsername(request.getUsername())) {
+            return respond(usernameTaken());
         }
 
-        User user = new User();
-        user.setUsername(request.getUsername());
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        return passwordHashingService.encode(request.getPassword()).thenApply(passwordHash -> {
+            List<Long> inserted = userRepository.insertIfAbsent(
+                    request.getUsername(), passwordHash, request.getFirstName(), request.getLastName());
+            if (inserted.isEmpty()) {
+                return usernameTaken();
+            }
+            usernameBloomFilter.add(request.getUsername());
 
-        userRepository.save(user);
+            String token = jwtService.generateToken(request.getUsername(), inserted.get(0));
+            AuthResponse response = new AuthResponse(token, request.getUsername(), request.getFirstName(), request.getLastName());
 
-        String token = jwtService.generateToken(user.getUsername());
-        AuthResponse response = new AuthResponse(token, user.getUsername(), user.getFirstName(), user.getLastName());
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * Live availability check for the register form. Names the Bloom filter has never seen are answered
+     * without a query.
+     */
+    @GetMapping("/username-available")
+    public ResponseEntity<?> usernameAvailable(@RequestParam("username") String username) {
+        if (isBlank(username) || username.length() > 50) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "username must be 1 to 50 characters long"));
+        }
 
-        return ResponseEntity.ok(response);
+        boolean available = !usernameBloomFilter.mightContain(username)
+                || !userRepository.existsByUsername(username);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("username", username);
+        body.put("available", available);
+        return ResponseEntity.ok(body);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request) {
         if (isBlank(request.getUsername()) || isBlank(request.getPassword())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("message", "username and password required"));
+            return respond(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "username and password required")));
         }
 
         User user = userRepository.findByUsername(request.getUsername())
                 .orElse(null);
 
-        if (user == null || !passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "invalid credentials"));
+        if (user == null) {
+            return respond(invalidCredentials());
         }
 
-        String token = jwtService.generateToken(user.getUsername());
-        AuthResponse response = new AuthResponse(token, user.getUsername(), user.getFirstName(), user.getLastName());
+        return passwordHashingService.matches(request.getPassword(), user.getPasswordHash()).thenApply(matches -> {
+            if (!matches) {
+                return invalidCredentials();
+            }
+
+            if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+                // Moves the stored hash to the configured cost; best effort, the login does not wait for it
+                passwordHashingService.encode(request.getPassword())
+                        .thenAccept(rehashed -> userRepository.updatePasswordHash(user.getId(), rehashed));
+            }
+
+            String token = jwtService.generateToken(user.getUsername(), user.getId());
+            AuthResponse response = new AuthResponse(token, user.getUsername(), user.getFirstName(), user.getLastName());
+
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    private static ResponseEntity<?> usernameTaken() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("errors", Map.of("username", "username is already registered")));
+    }
+
+    private static ResponseEntity<?> invalidCredentials() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("message", "invalid credentials"));
+    }
 
-        return ResponseEntity.ok(response);
+    private static CompletableFuture<ResponseEntity<?>> respond(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
     }
 
     private boolean isBlank(String s) {
@@ -1,20 +1,36 @@
 package com.innohive.backendjava.web;
 
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.leaderboard.CompetitionBoard;
+import com.innohive.backendjava.leaderboard.LeaderboardEntry;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.leaderboard.ParticipantJsonStreamer;
+import com.innohive.backendjava.leaderboard.RankingPolicy;
 import com.innohive.backendjava.model.Competition;
 import com.innohive.backendjava.model.Participant;
 import com.innohive.backendjava.model.User;
 import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.repository.LeaderboardRow;
 import com.innohive.backendjava.repository.ParticipantRepository;
 import com.innohive.backendjava.repository.UserRepository;
+import com.innohive.backendjava.search.CompetitionIndex;
+import com.innohive.backendjava.search.CompetitionQuery;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/competitions")
@@ -24,27 +40,36 @@ public class CompetitionController {
     private final CompetitionRepository competitionRepository;
     private final ParticipantRepository participantRepository;
     private final UserRepository userRepository;
+    private final ParticipantJsonStreamer participantJsonStreamer;
+    private final LeaderboardStore leaderboardStore;
+    private final RankingPolicy rankingPolicy;
+    private final CompetitionIndex competitionIndex;
+    private final ParticipantArchive participantArchive;
 
     public CompetitionController(CompetitionRepository competitionRepository,
                                  ParticipantRepository participantRepository,
-                                 UserRepository userRepository) {
+                                 UserRepository userRepository,
+                                 ParticipantJsonStreamer participantJsonStreamer,
+                                 LeaderboardStore leaderboardStore,
+                                 RankingPolicy rankingPolicy,
+                                 CompetitionIndex competitionIndex,
+                                 ParticipantArchive participantArchive) {
         this.competitionRepository = competitionRepository;
         this.participantRepository = participantRepository;
         this.userRepository = userRepository;
+        this.participantJsonStreamer = participantJsonStreamer;
+        this.leaderboardStore = leaderboardStore;
+        this.rankingPolicy = rankingPolicy;
+        this.competitionIndex = competitionIndex;
+        this.participantArchive = participantArchive;
     }
 
     @GetMapping
     public ResponseEntity<?> listCompetitions() {
         List<Competition> all = competitionRepository.findAll();
 
-        // Avoid N+1 count queries by doing a single grouped count
-        List<Object[]> rawCounts = participantRepository.countByCompetitionIn(all);
-        Map<Long, Long> counts = new HashMap<>();
-        for (Object[] row : rawCounts) {
-            Long competitionId = (Long) row[0];
-            Long cnt = (Long) row[1];
-            counts.put(competitionId, cnt);
-        }
+        // Avoid N+1 count queries by doing a single grouped count; archived competitions are counted in memory
+        Map<Long, Long> counts = participantArchive.countIn(all);
 
         List<CompetitionResponse> competitions = all.stream()
                 .map(c -> {
@@ -58,6 +83,59 @@ public class CompetitionController {
         return ResponseEntity.ok(body);
     }
 
+    /**
+     * Filtered, sorted and paginated competitions, served from {@link CompetitionIndex} rather than the
+     * database. Amount and date bounds are inclusive; {@code q} matches the start of any word in the name.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchCompetitions(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "minEntryFee", required = false) BigDecimal minEntryFee,
+            @RequestParam(value = "maxEntryFee", required = false) BigDecimal maxEntryFee,
+            @RequestParam(value = "minPrizePool", required = false) BigDecimal minPrizePool,
+            @RequestParam(value = "maxPrizePool", required = false) BigDecimal maxPrizePool,
+            @RequestParam(value = "startsAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startsAfter,
+            @RequestParam(value = "startsBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startsBefore,
+            @RequestParam(value = "endsAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endsAfter,
+            @RequestParam(value = "endsBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endsBefore,
+            @RequestParam(value = "q", required = false) String name,
+            @RequestParam(value = "sort", defaultValue = "status") String sort,
+            @RequestParam(value = "order", defaultValue = "asc") String order,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "page must be >= 0 and size between 1 and 100"));
+        }
+
+        CompetitionIndex.Result result;
+        try {
+            CompetitionQuery query = new CompetitionQuery(
+                    status != null && !status.isBlank() ? status.toLowerCase() : null,
+                    minEntryFee, maxEntryFee, minPrizePool, maxPrizePool,
+                    startsAfter, startsBefore, endsAfter, endsBefore,
+                    name, CompetitionQuery.Sort.of(sort), "desc".equalsIgnoreCase(order), page, size);
+            result = competitionIndex.search(query);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        List<CompetitionResponse> competitions = result.competitions().stream()
+                .map(c -> CompetitionResponse.fromEntity(c, competitionIndex.participants(c.getId())))
+                .toList();
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("competitions", competitions);
+        body.put("total", result.total());
+        body.put("page", page);
+        body.put("size", size);
+        return ResponseEntity.ok(body);
+    }
+
     @PostMapping("/{id}/join")
     public ResponseEntity<?> joinCompetition(@PathVariable("id") Long id, Authentication authentication) {
         if (authentication == null || authentication.getName() == null) {
@@ -74,6 +152,10 @@ public class CompetitionController {
         }
 
         Competition competition = competitionOpt.get();
+        if (participantArchive.isArchived(competition.getId())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "competition has finished"));
+        }
 
         User user = userRepository.findByUsername(username).orElse(null);
         if (user == null) {
@@ -89,9 +171,12 @@ public class CompetitionController {
             p.setJoinedAt(java.time.OffsetDateTime.now());
             p.setRoi(BigDecimal.ZERO);
             participantRepository.save(p);
+            leaderboardStore.addParticipant(competition.getId(),
+                    new LeaderboardEntry(p.getId(), user.getUsername(), LeaderboardEntry.scale(p.getRoi())));
         }
 
         long count = participantRepository.countByCompetition(competition);
+        competitionIndex.updateParticipants(competition.getId(), count);
         Map<String, Object> body = new HashMap<>();
         body.put("success", true);
         body.put("participants", count);
@@ -107,15 +192,15 @@ public class CompetitionController {
         }
 
         Competition competition = competitionOpt.get();
-        List<Participant> participants = participantRepository.findByCompetition(competition);
-
-        List<ParticipantView> views = participants.stream()
-                .map(p -> new ParticipantView(
-                        p.getUser().getUsername(),
-                        p.getUser().getFirstName(),
-                        p.getUser().getLastName(),
-                        p.getRoi(),
-                        p.getJoinedAt() != null ? p.getJoinedAt().toString() : null
+        List<LeaderboardRow> rows = participantArchive.rows(competition.getId());
+
+        List<ParticipantView> views = rows.stream()
+                .map(r -> new ParticipantView(
+                        r.username(),
+                        r.firstName(),
+                        r.lastName(),
+                        r.roi(),
+                        r.joinedAt() != null ? r.joinedAt().toString() : null
                 ))
                 .collect(Collectors.toList());
 
@@ -123,10 +208,100 @@ public class CompetitionController {
         body.put("id", String.valueOf(competition.getId()));
         body.put("name", competition.getName());
         body.put("participants", views);
+        body.put("ranking", rankingPolicy.modeFor(competition.getId(), views.size()).name().toLowerCase());
 
         return ResponseEntity.ok(body);
     }
 
+    /**
+     * The caller's rank in the competition, served from the in-memory board. On approximately ranked boards
+     * a rank below the top K comes back as an estimate with its error bound.
+     */
+    @GetMapping("/{id}/rank")
+    public CompletableFuture<ResponseEntity<?>> getRank(@PathVariable("id") Long id, Authentication authentication) {
+        if (authentication == null || authentication.getName() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Unauthorized")));
+        }
+
+        if (!competitionRepository.existsById(id)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "competition not found")));
+        }
+
+        return leaderboardStore.rankOf(id, authentication.getName()).thenApply(rank -> {
+            if (rank == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "not a participant"));
+            }
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("competitionId", String.valueOf(id));
+            body.put("rank", rank.rank());
+            body.put("total", rank.total());
+            body.put("approximate", !rank.exact());
+            body.put("rankError", rank.error());
+            body.put("topPercent", rank.topPercent());
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    /**
+     * ROI distribution of the competition (mean, median, share in profit, prize cutoff and histogram), served
+     * from the aggregates its in-memory board maintains; the same object {@code score_update} frames carry as
+     * {@code stats} whenever it changes.
+     */
+    @GetMapping("/{id}/stats")
+    public CompletableFuture<ResponseEntity<?>> getStats(@PathVariable("id") Long id) {
+        if (!competitionRepository.existsById(id)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "competition not found")));
+        }
+
+        return leaderboardStore.withBoard(id, CompetitionBoard::stats).thenApply(stats -> {
+            Map<String, Object> body = new HashMap<>();
+            body.put("competitionId", String.valueOf(id));
+            body.put("stats", stats);
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #listParticipants(Long)} for very large competitions: rows go from a
+     * database cursor straight to the socket, gzip-compressed when the client accepts it.
+     */
+    @GetMapping(value = "/{id}/participants", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamParticipants(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Optional<Competition> competitionOpt = competitionRepository.findById(id);
+        if (competitionOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write("{\"message\":\"competition not found\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        Competition competition = competitionOpt.get();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                participantJsonStreamer.writeParticipants(competition, compressed);
+                compressed.finish();
+            } else {
+                participantJsonStreamer.writeParticipants(competition, out);
+            }
+        });
+    }
+
     @GetMapping("/joined")
     public ResponseEntity<?> listJoinedCompetitions(Authentication authentication) {
         if (authentication == null || authentication.getName() == null) {
@@ -134,17 +309,9 @@ public class CompetitionController {
                     .body(Map.of("message", "Unauthorized"));
         }
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "user not found"));
-        }
-
-        List<Participant> memberships = participantRepository.findByUser(user);
-        List<String> ids = memberships.stream()
-                .map(p -> String.valueOf(p.getCompetition().getId()))
-                .distinct()
+        // Reads only the competition_id column; the user was already resolved by JwtAuthFilter
+        List<String> ids = participantArchive.competitionIdsOf(authentication.getName()).stream()
+                .map(String::valueOf)
                 .toList();
 
         Map<String, Object> body = new HashMap<>();
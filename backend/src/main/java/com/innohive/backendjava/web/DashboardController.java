@@ -0,0 +1,174 @@
+package com.innohive.backendjava.web;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.leaderboard.CompetitionBoard;
+import com.innohive.backendjava.leaderboard.LeaderboardEntry;
+import com.innohive.backendjava.leaderboard.LeaderboardShard;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.leaderboard.RankEstimate;
+import com.innohive.backendjava.leaderboard.RankingMode;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.search.CompetitionIndex;
+import com.innohive.backendjava.search.CompetitionQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything the dashboard needs for its first paint in one response: the first page of competitions, the
+ * caller's joined competitions with their rank and ROI, and the top N of each requested competition. Served
+ * from {@link CompetitionIndex} and the in-memory leaderboards; the only queries read the caller's joined ids
+ * and any requested leaderboard not in memory yet.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin
+public class DashboardController {
+
+    private static final int MAX_LEADERBOARDS = 50;
+    private static final int MAX_TOP = 50;
+    private static final int MAX_JOINED = 100;
+
+    private final CompetitionIndex competitionIndex;
+    private final LeaderboardStore leaderboardStore;
+    private final ParticipantArchive participantArchive;
+
+    public DashboardController(CompetitionIndex competitionIndex,
+                               LeaderboardStore leaderboardStore,
+                               ParticipantArchive participantArchive) {
+        this.competitionIndex = competitionIndex;
+        this.leaderboardStore = leaderboardStore;
+        this.participantArchive = participantArchive;
+    }
+
+    /**
+     * {@code leaderboards} lists the competitions to include a top {@code top} for; it defaults to the
+     * competitions on the returned page. Ids of unknown competitions are ignored.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> dashboard(
+            Authentication authentication,
+            @RequestParam(value = "leaderboards", required = false) List<Long> leaderboardIds,
+            @RequestParam(value = "top", defaultValue = "5") int top,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        if (authentication == null || authentication.getName() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Unauthorized")));
+        }
+        if (top < 1 || top > MAX_TOP || size < 1 || size > 100
+                || (leaderboardIds != null && leaderboardIds.size() > MAX_LEADERBOARDS)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("message", "top must be 1-" + MAX_TOP + ", size 1-100 and at most "
+                            + MAX_LEADERBOARDS + " leaderboards")));
+        }
+        String username = authentication.getName();
+
+        CompetitionIndex.Result page = competitionIndex.search(new CompetitionQuery(
+                null, null, null, null, null, null, null, null, null, null,
+                CompetitionQuery.Sort.STATUS, false, 0, size));
+        // Live competitions come first, so a long history only cuts off archived ones
+        List<Long> allJoined = participantArchive.competitionIdsOf(username);
+        List<Long> joinedIds = allJoined.subList(0, Math.min(allJoined.size(), MAX_JOINED));
+
+        Set<Long> topIds = new LinkedHashSet<>();
+        if (leaderboardIds != null) {
+            for (Long id : leaderboardIds) {
+                if (competitionIndex.contains(id)) {
+                    topIds.add(id);
+                }
+            }
+        } else {
+            page.competitions().forEach(c -> topIds.add(c.getId()));
+        }
+
+        // One hop to each board's shard reads both its top N and the caller's standing. Requested leaderboards
+        // are loaded if needed; joined standings are only read from boards already in memory, so a long history
+        // neither queries per competition nor pins its boards.
+        Set<Long> boardIds = new LinkedHashSet<>(topIds);
+        boardIds.addAll(joinedIds);
+        Map<Long, CompletableFuture<BoardView>> views = new LinkedHashMap<>();
+        for (Long id : boardIds) {
+            if (topIds.contains(id)) {
+                views.put(id, leaderboardStore.withBoard(id, board -> BoardView.of(board, username, top)));
+            } else {
+                LeaderboardShard shard = leaderboardStore.shardFor(id);
+                views.put(id, shard.submit(() -> {
+                    CompetitionBoard board = shard.board(id);
+                    return board != null ? BoardView.of(board, username, 0) : null;
+                }));
+            }
+        }
+
+        return CompletableFuture.allOf(views.values().toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<CompetitionController.CompetitionResponse> competitions = new ArrayList<>();
+            for (Competition c : page.competitions()) {
+                competitions.add(CompetitionController.CompetitionResponse.fromEntity(
+                        c, competitionIndex.participants(c.getId())));
+            }
+
+            List<Map<String, Object>> joined = new ArrayList<>();
+            for (Long id : joinedIds) {
+                BoardView view = views.get(id).join();
+                Map<String, Object> standing = new HashMap<>();
+                standing.put("competitionId", String.valueOf(id));
+                if (view != null && view.rank() != null) {
+                    standing.put("rank", view.rank().rank());
+                    standing.put("total", view.rank().total());
+                    standing.put("approximate", !view.rank().exact());
+                    standing.put("rankError", view.rank().error());
+                    standing.put("topPercent", view.rank().topPercent());
+                    standing.put("roi", view.roi());
+                }
+                joined.add(standing);
+            }
+
+            Map<String, Object> leaderboards = new LinkedHashMap<>();
+            for (Long id : topIds) {
+                BoardView view = views.get(id).join();
+                Map<String, Object> board = new HashMap<>();
+                board.put("total", view.total());
+                board.put("approximate", view.approximate());
+                board.put("top", view.top());
+                leaderboards.put(String.valueOf(id), board);
+            }
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("competitions", competitions);
+            body.put("total", page.total());
+            body.put("joined", joined);
+            body.put("leaderboards", leaderboards);
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    private record BoardView(List<Map<String, Object>> top, int total, boolean approximate,
+                             RankEstimate rank, BigDecimal roi) {
+
+        // Shard thread only
+        static BoardView of(CompetitionBoard board, String username, int n) {
+            List<LeaderboardEntry> ranked = board.ranked();
+            List<Map<String, Object>> top = new ArrayList<>(Math.min(n, ranked.size()));
+            for (int i = 0; i < Math.min(n, ranked.size()); i++) {
+                LeaderboardEntry e = ranked.get(i);
+                top.add(Map.of(
+                        "name", e.username(),
+                        "score", e.score()
+                ));
+            }
+            LeaderboardEntry mine = board.entryOf(username);
+            return new BoardView(top, board.size(), board.rankingMode() == RankingMode.APPROXIMATE,
+                    mine != null ? board.rankOf(username) : null, mine != null ? mine.roi() : null);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.innohive.backendjava.web;
+
+import com.innohive.backendjava.leaderboard.GlobalRanking;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Top traders across all active competitions, served from {@link GlobalRanking} without touching the database.
+ * {@code metric} is {@code average} (mean ROI over the trader's active competitions) or {@code best}.
+ */
+@RestController
+@RequestMapping("/api/leaderboard/global")
+@CrossOrigin
+public class GlobalRankingController {
+
+    private final GlobalRanking globalRanking;
+
+    public GlobalRankingController(GlobalRanking globalRanking) {
+        this.globalRanking = globalRanking;
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> top(@RequestParam(value = "metric", defaultValue = "average") String metric,
+                                                    @RequestParam(value = "top", defaultValue = "10") int top) {
+        GlobalRanking.Metric parsed;
+        try {
+            parsed = GlobalRanking.Metric.of(metric);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("message", e.getMessage())));
+        }
+        if (top < 1 || top > globalRanking.maxTop()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("message", "top must be between 1 and " + globalRanking.maxTop())));
+        }
+
+        return globalRanking.top(parsed, top).thenApply(result -> {
+            Map<String, Object> body = new HashMap<>();
+            body.put("metric", parsed.name().toLowerCase());
+            body.put("total", result.total());
+            body.put("traders", result.traders());
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    /**
+     * The caller's global place; {@code 404} when they are in no active competition.
+     */
+    @GetMapping("/me")
+    public CompletableFuture<ResponseEntity<?>> me(Authentication authentication,
+                                                   @RequestParam(value = "metric", defaultValue = "average") String metric) {
+        if (authentication == null || authentication.getName() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Unauthorized")));
+        }
+        GlobalRanking.Metric parsed;
+        try {
+            parsed = GlobalRanking.Metric.of(metric);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("message", e.getMessage())));
+        }
+
+        return globalRanking.rankOf(parsed, authentication.getName()).thenApply(standing -> {
+            if (standing == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "not in any active competition"));
+            }
+            Map<String, Object> body = new HashMap<>();
+            body.put("metric", parsed.name().toLowerCase());
+            body.put("rank", standing.rank());
+            body.put("score", standing.score());
+            body.put("competitions", standing.competitions());
+            return ResponseEntity.ok(body);
+        });
+    }
+}
@@ -0,0 +1,202 @@
+package com.innohive.backendjava.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innohive.backendjava.diagnostics.FrameEncodeEvent;
+import com.innohive.backendjava.diagnostics.SessionSendEvent;
+import com.innohive.backendjava.leaderboard.CompetitionStats;
+import com.innohive.backendjava.leaderboard.LeaderboardEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest-value delivery for sessions on slow links. Instead of one frame per tick, a conflated session keeps
+ * only the newest score per (competition, participant), the newest stats and the newest {@code my_rank} per
+ * competition that it has not received yet, and gets them as merged frames once its socket has drained, at most
+ * {@code maxRate} times per second. Pending state is therefore bounded by the leaderboard size, not by how
+ * long the client lags.
+ */
+@Component
+public class ConflatedDelivery {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ConflatedSession> sessions = new ConcurrentHashMap<>();
+    private final double maxRateCap;
+
+    public ConflatedDelivery(@Value("${websocket.conflation.max-rate-hz:10}") double maxRateCap) {
+        this.maxRateCap = maxRateCap;
+    }
+
+    /**
+     * Switches the session to conflated delivery at the requested rate, clamped to the server cap. Returns the
+     * rate actually used.
+     */
+    public double enable(WebSocketSession session, double requestedRate) {
+        double rate = Math.min(maxRateCap, Math.max(0.1, requestedRate));
+        sessions.put(session.getId(), new ConflatedSession(session, (long) (1_000_000_000L / rate)));
+        return rate;
+    }
+
+    public void disable(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public boolean isConflated(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    public void offerUpdates(String sessionId, long competitionId, List<LeaderboardEntry> updates) {
+        ConflatedSession conflated = sessions.get(sessionId);
+        if (conflated != null) {
+            conflated.offerUpdates(competitionId, updates);
+            flushIfDue(conflated, System.nanoTime());
+        }
+    }
+
+    public void offerStats(String sessionId, long competitionId, CompetitionStats stats) {
+        ConflatedSession conflated = sessions.get(sessionId);
+        if (conflated != null) {
+            conflated.offerStats(competitionId, stats);
+            flushIfDue(conflated, System.nanoTime());
+        }
+    }
+
+    public void offerRank(String sessionId, long competitionId, String frame) {
+        ConflatedSession conflated = sessions.get(sessionId);
+        if (conflated != null) {
+            conflated.offerRank(competitionId, frame);
+            flushIfDue(conflated, System.nanoTime());
+        }
+    }
+
+    // Catches sessions whose socket drained after their last offer
+    @Scheduled(fixedDelayString = "${websocket.conflation.sweep-ms:100}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        for (ConflatedSession conflated : sessions.values()) {
+            flushIfDue(conflated, now);
+        }
+    }
+
+    private void flushIfDue(ConflatedSession conflated, long now) {
+        if (!conflated.session.isOpen()) {
+            sessions.remove(conflated.session.getId(), conflated);
+            return;
+        }
+        if (!isWritable(conflated.session)) {
+            return;
+        }
+        List<String> frames = conflated.drainIfDue(now, this::scoreUpdateFrame);
+        for (String frame : frames) {
+            try {
+                SessionSendEvent.send(conflated.session, new TextMessage(frame));
+            } catch (IOException ignored) {
+                return;
+            }
+        }
+    }
+
+    // Nothing queued and no send in flight, so a frame goes out now instead of piling up in the decorator
+    private static boolean isWritable(WebSocketSession session) {
+        if (session instanceof ConcurrentWebSocketSessionDecorator decorator) {
+            return decorator.getBufferSize() == 0 && decorator.getTimeSinceSendStarted() == 0;
+        }
+        return true;
+    }
+
+    private String scoreUpdateFrame(long competitionId, Iterable<LeaderboardEntry> entries, CompetitionStats stats) {
+        List<Map<String, Object>> updates = new ArrayList<>();
+        for (LeaderboardEntry e : entries) {
+            updates.add(Map.of(
+                    "name", e.username(),
+                    "score", e.score()
+            ));
+        }
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "score_update");
+        frame.put("competitionId", String.valueOf(competitionId));
+        frame.put("updates", updates);
+        if (stats != null) {
+            frame.put("stats", stats);
+        }
+        try {
+            return FrameEncodeEvent.encode(objectMapper, frame);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface FrameEncoder {
+        String encode(long competitionId, Iterable<LeaderboardEntry> entries, CompetitionStats stats);
+    }
+
+    private static final class ConflatedSession {
+        private final WebSocketSession session;
+        private final long minIntervalNanos;
+        // Offered from several shard threads, drained by whoever flushes; guarded by this
+        private final Map<Long, Map<Long, LeaderboardEntry>> pendingUpdates = new LinkedHashMap<>();
+        private final Map<Long, CompetitionStats> pendingStats = new LinkedHashMap<>();
+        private final Map<Long, String> pendingRanks = new LinkedHashMap<>();
+        private long lastFlushNanos;
+
+        private ConflatedSession(WebSocketSession session, long minIntervalNanos) {
+            this.session = session;
+            this.minIntervalNanos = minIntervalNanos;
+            this.lastFlushNanos = System.nanoTime() - minIntervalNanos;
+        }
+
+        synchronized void offerUpdates(long competitionId, List<LeaderboardEntry> updates) {
+            Map<Long, LeaderboardEntry> latest = pendingUpdates.computeIfAbsent(competitionId, k -> new LinkedHashMap<>());
+            for (LeaderboardEntry e : updates) {
+                latest.put(e.participantId(), e);
+            }
+        }
+
+        synchronized void offerStats(long competitionId, CompetitionStats stats) {
+            pendingStats.put(competitionId, stats);
+        }
+
+        synchronized void offerRank(long competitionId, String frame) {
+            pendingRanks.put(competitionId, frame);
+        }
+
+        synchronized List<String> drainIfDue(long now, FrameEncoder encoder) {
+            if ((pendingUpdates.isEmpty() && pendingStats.isEmpty() && pendingRanks.isEmpty())
+                    || now - lastFlushNanos < minIntervalNanos) {
+                return List.of();
+            }
+            List<String> frames = new ArrayList<>(pendingUpdates.size() + pendingStats.size() + pendingRanks.size());
+            pendingUpdates.forEach((competitionId, latest) -> {
+                String frame = encoder.encode(competitionId, latest.values(), pendingStats.remove(competitionId));
+                if (frame != null) {
+                    frames.add(frame);
+                }
+            });
+            // Stats that changed without any visible score change (the tail of an approximate board)
+            pendingStats.forEach((competitionId, stats) -> {
+                String frame = encoder.encode(competitionId, List.of(), stats);
+                if (frame != null) {
+                    frames.add(frame);
+                }
+            });
+            frames.addAll(pendingRanks.values());
+            pendingUpdates.clear();
+            pendingStats.clear();
+            pendingRanks.clear();
+            lastFlushNanos = now;
+            return frames;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.innohive.backendjava.websocket;
+
+import com.innohive.backendjava.repository.UserRepository;
+import com.innohive.backendjava.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates an optional JWT on the {@code /ws} handshake and stores the caller's identity in the session
+ * attributes. Browsers cannot set headers on WebSocket requests, so they offer the subprotocols
+ * {@code bearer, <token>} instead; the server selects {@code bearer}, and the token stays out of URLs and access
+ * logs. Connections without a valid token (none, expired, or for a deleted user) stay anonymous and simply get
+ * no personal frames.
+ */
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    public static final String USERNAME_ATTRIBUTE = "username";
+    public static final String BEARER_PROTOCOL = "bearer";
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+
+    public JwtHandshakeInterceptor(JwtService jwtService, UserRepository userRepository) {
+        this.jwtService = jwtService;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = extractToken(request);
+        if (token == null) {
+            return true;
+        }
+
+        Claims claims = jwtService.parseValidClaims(token);
+        if (claims == null || claims.getSubject() == null) {
+            return true;
+        }
+
+        String username = claims.getSubject();
+        Long userId = claims.get(JwtService.USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            // Tokens issued before the uid claim existed
+            userId = userRepository.findByUsername(username).map(u -> u.getId()).orElse(null);
+            if (userId == null) {
+                return true;
+            }
+        }
+
+        attributes.put(USER_ID_ATTRIBUTE, userId);
+        attributes.put(USERNAME_ATTRIBUTE, username);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String extractToken(ServerHttpRequest request) {
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        List<String> offered = new WebSocketHttpHeaders(request.getHeaders()).getSecWebSocketProtocol();
+        int bearer = offered.indexOf(BEARER_PROTOCOL);
+        return bearer >= 0 && bearer + 1 < offered.size() ? offered.get(bearer + 1) : null;
+    }
+}
@@ -1,130 +1,408 @@
 package com.innohive.backendjava.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.innohive.backendjava.model.Competition;
-import com.innohive.backendjava.model.Participant;
-import com.innohive.backendjava.repository.CompetitionRepository;
-import com.innohive.backendjava.repository.ParticipantRepository;
+import com.innohive.backendjava.diagnostics.FrameEncodeEvent;
+import com.innohive.backendjava.diagnostics.SessionSendEvent;
+import com.innohive.backendjava.diagnostics.TickEvent;
+import com.innohive.backendjava.leaderboard.CompetitionBoard;
+import com.innohive.backendjava.leaderboard.CompetitionStats;
+import com.innohive.backendjava.leaderboard.GlobalRanking;
+import com.innohive.backendjava.leaderboard.LeaderboardEntry;
+import com.innohive.backendjava.leaderboard.LeaderboardShard;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.leaderboard.RankEstimate;
+import com.innohive.backendjava.leaderboard.RankingMode;
+import com.innohive.backendjava.leaderboard.ScoreWriteBehind;
+import com.innohive.backendjava.leaderboard.SnapshotService;
+import com.innohive.backendjava.scheduler.CompetitionStatusChangedEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class LeaderboardWebSocketHandler extends TextWebSocketHandler {
 
-    private final CompetitionRepository competitionRepository;
-    private final ParticipantRepository participantRepository;
+    // Traders shown above and below the user in a my_rank frame
+    private static final int RANK_NEIGHBORS = 2;
+    private static final int SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 1024 * 1024;
+
+    private final LeaderboardStore leaderboardStore;
+    private final SnapshotService snapshotService;
+    private final ScoreWriteBehind scoreWriteBehind;
+    private final ConflatedDelivery conflatedDelivery;
+    private final SessionRegistry sessionRegistry;
+    private final GlobalRanking globalRanking;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
-    private final Random random = new Random();
 
-    public LeaderboardWebSocketHandler(CompetitionRepository competitionRepository,
-                                       ParticipantRepository participantRepository) {
-        this.competitionRepository = competitionRepository;
-        this.participantRepository = participantRepository;
+    public LeaderboardWebSocketHandler(LeaderboardStore leaderboardStore,
+                                       SnapshotService snapshotService,
+                                       ScoreWriteBehind scoreWriteBehind,
+                                       ConflatedDelivery conflatedDelivery,
+                                       SessionRegistry sessionRegistry,
+                                       GlobalRanking globalRanking) {
+        this.leaderboardStore = leaderboardStore;
+        this.snapshotService = snapshotService;
+        this.scoreWriteBehind = scoreWriteBehind;
+        this.conflatedDelivery = conflatedDelivery;
+        this.sessionRegistry = sessionRegistry;
+        this.globalRanking = globalRanking;
+        // Reaped sessions may never get a close callback from the container
+        sessionRegistry.onRemoved(this::release);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
-        // send initial snapshot for all competitions
-        sendSnapshotsToSession(session);
+        // Frames are sent from shard threads and from snapshot callbacks, so sends must be serialized
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        sessionRegistry.register(concurrent);
+        // Every competition until the client narrows it down with a subscribe message
+        leaderboardStore.subscribe(concurrent, null);
+        // send initial snapshot for all competitions; completes off the Tomcat thread when a board has to be loaded
+        snapshotService.snapshotFrames().whenComplete((frames, error) -> {
+            if (frames != null) {
+                frames.forEach(frame -> sendText(concurrent, frame));
+            }
+        });
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        sessionRegistry.unregister(session.getId());
+        release(session.getId());
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        sessionRegistry.pong(session.getId(), message.getPayload());
+    }
+
+    private void release(String sessionId) {
+        leaderboardStore.unsubscribe(sessionId);
+        conflatedDelivery.disable(sessionId);
+        globalRanking.unsubscribe(sessionId);
     }
 
+    /**
+     * Handles client control messages:
+     * <ul>
+     *     <li>{@code {"type":"subscribe","competitionIds":["1","2"]}}; omitting {@code competitionIds} subscribes
+     *     to every competition again. Snapshots of the subscribed competitions are sent right away.</li>
+     *     <li>{@code {"type":"delivery","mode":"conflated","maxRate":1}} switches to latest-value delivery at
+     *     most {@code maxRate} frames per second; {@code "mode":"stream"} goes back to a frame per tick. The
+     *     server answers with the mode and rate it applied.</li>
+     *     <li>{@code {"type":"subscribe_global","metric":"average","top":10}} sends the global top traders by
+     *     {@code average} or {@code best} ROI, then a {@code global_update} whenever they change;
+     *     {@code {"type":"unsubscribe_global"}} stops them.</li>
+     * </ul>
+     */
     @Override
-    public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status) throws Exception {
-        sessions.remove(session);
-    }
-
-    private void sendSnapshotsToSession(WebSocketSession session) {
-        List<Competition> competitions = competitionRepository.findAll();
-        for (Competition c : competitions) {
-            List<Participant> participants = participantRepository.findByCompetition(c);
-            List<Map<String, Object>> traders = new ArrayList<>();
-            for (Participant p : participants) {
-                Map<String, Object> t = new HashMap<>();
-                t.put("name", p.getUser().getUsername());
-                BigDecimal roi = p.getRoi() != null ? p.getRoi() : BigDecimal.ZERO;
-                t.put("score", roi.doubleValue());
-                traders.add(t);
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        sessionRegistry.touch(session.getId());
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            return;
+        }
+        WebSocketSession concurrent = sessionRegistry.get(session.getId());
+        if (concurrent == null) {
+            return;
+        }
+
+        switch (node.path("type").asText()) {
+            case "subscribe" -> handleSubscribe(concurrent, node);
+            case "delivery" -> handleDelivery(concurrent, node);
+            case "subscribe_global" -> handleSubscribeGlobal(concurrent, node);
+            case "unsubscribe_global" -> globalRanking.unsubscribe(concurrent.getId());
+            default -> {
             }
-            traders.sort((a, b) -> Double.compare((double) b.get("score"), (double) a.get("score")));
+        }
+    }
 
-            Map<String, Object> frame = new HashMap<>();
-            frame.put("type", "snapshot");
-            frame.put("competitionId", String.valueOf(c.getId()));
-            frame.put("traders", traders);
+    private void handleDelivery(WebSocketSession concurrent, JsonNode node) {
+        Map<String, Object> reply = new HashMap<>();
+        reply.put("type", "delivery");
+        if ("conflated".equals(node.path("mode").asText())) {
+            double rate = conflatedDelivery.enable(concurrent, node.path("maxRate").asDouble(1.0));
+            reply.put("mode", "conflated");
+            reply.put("maxRate", rate);
+        } else {
+            conflatedDelivery.disable(concurrent.getId());
+            reply.put("mode", "stream");
+        }
+        sendJson(List.of(concurrent), reply);
+    }
 
-            sendJson(session, frame);
+    private void handleSubscribeGlobal(WebSocketSession concurrent, JsonNode node) {
+        GlobalRanking.Metric metric;
+        try {
+            metric = GlobalRanking.Metric.of(node.path("metric").asText("average"));
+        } catch (IllegalArgumentException e) {
+            return;
         }
+        globalRanking.subscribe(concurrent, metric, node.path("top").asInt(10));
     }
 
-    public void broadcastRandomScoreUpdate() {
-        if (sessions.isEmpty()) {
+    private void handleSubscribe(WebSocketSession concurrent, JsonNode node) {
+        JsonNode ids = node.get("competitionIds");
+        if (ids == null || !ids.isArray()) {
+            leaderboardStore.subscribe(concurrent, null);
+            snapshotService.snapshotFrames().thenAccept(frames -> frames.forEach(f -> sendText(concurrent, f)));
             return;
         }
 
-        // Only push updates for competitions in active state
-        List<Competition> competitions = competitionRepository.findByStatus("active");
-        if (competitions.isEmpty()) return;
+        Set<Long> competitionIds = new HashSet<>();
+        ids.forEach(id -> {
+            try {
+                competitionIds.add(Long.parseLong(id.asText()));
+            } catch (NumberFormatException ignored) {
+            }
+        });
+        leaderboardStore.subscribe(concurrent, competitionIds);
+        for (Long id : competitionIds) {
+            snapshotService.snapshotFrame(id).thenAccept(frame -> sendText(concurrent, frame));
+        }
+    }
 
-        Competition c = competitions.get(random.nextInt(competitions.size()));
-        List<Participant> participants = participantRepository.findByCompetition(c);
-        if (participants.isEmpty()) return;
+    /**
+     * What one competition tick cost: how many sessions it reached, the time spent on the shard thread and the
+     * share of streaming subscribers whose send buffer was still backed up, or how full the ROI write-behind is
+     * when that is higher.
+     */
+    public record TickStats(int subscribers, long costNanos, double backlog) {
+        static final TickStats IDLE = new TickStats(0, 0L, 0.0);
+    }
 
-        int updatesCount = Math.max(1, participants.size() / 4);
-        Collections.shuffle(participants, random);
-        List<Participant> toUpdate = participants.subList(0, updatesCount);
+    public boolean hasSessions() {
+        return !sessionRegistry.isEmpty();
+    }
 
-        List<Map<String, Object>> updates = new ArrayList<>();
-        for (Participant p : toUpdate) {
-            BigDecimal current = p.getRoi() != null ? p.getRoi() : BigDecimal.ZERO;
+    /**
+     * Simulates one score tick of the competition on its shard thread and publishes it. Competitions nobody is
+     * subscribed to are left alone and complete with {@link TickStats#IDLE}.
+     */
+    public CompletableFuture<TickStats> tick(long competitionId) {
+        LeaderboardShard shard = leaderboardStore.shardFor(competitionId);
+        return shard.submit(() -> tickCompetition(shard, competitionId));
+    }
+
+    // Runs on the shard's thread, which owns the board, its deltas and its subscribers
+    private TickStats tickCompetition(LeaderboardShard shard, long competitionId) {
+        TickEvent event = new TickEvent();
+        event.begin();
+        long started = System.nanoTime();
+        List<WebSocketSession> subscribers = shard.subscribersOf(competitionId);
+        if (subscribers.isEmpty()) {
+            return TickStats.IDLE;
+        }
+        CompetitionBoard board = shard.board(competitionId);
+        if (board == null) {
+            // Not in memory yet; the load runs off-shard and the board takes part from the next tick on
+            leaderboardStore.loadAsync(competitionId);
+            return TickStats.IDLE;
+        }
+
+        List<LeaderboardEntry> entries = board.entries();
+        if (entries.isEmpty()) {
+            return TickStats.IDLE;
+        }
+
+        Random random = ThreadLocalRandom.current();
+        int updatesCount = Math.max(1, entries.size() / 4);
+        Collections.shuffle(entries, random);
+        List<LeaderboardEntry> toUpdate = entries.subList(0, updatesCount);
+
+        List<LeaderboardEntry> changed = new ArrayList<>(updatesCount);
+        for (LeaderboardEntry e : toUpdate) {
             // random delta between -5 and +5
             double delta = (random.nextDouble() * 10.0) - 5.0;
-            BigDecimal next = current.add(BigDecimal.valueOf(delta));
-            p.setRoi(next);
+            changed.add(e.withScaledRoi(e.scaledRoi() + LeaderboardEntry.scale(BigDecimal.valueOf(delta))));
+        }
+        leaderboardStore.apply(board, changed);
+        // Write-through keeps the database authoritative for the REST endpoints and the reconcile
+        scoreWriteBehind.write(changed);
+
+        double backlog = publishDeltas(shard, board);
+        if (event.shouldCommit()) {
+            event.competitionId = competitionId;
+            event.shard = shard.index();
+            event.updates = updatesCount;
+            event.subscribers = subscribers.size();
+            event.backlog = backlog;
+            event.commit();
+        }
+        // A lagging database slows ticks down like lagging subscribers do
+        return new TickStats(subscribers.size(), System.nanoTime() - started,
+                Math.max(backlog, scoreWriteBehind.pressure()));
+    }
+
+    /**
+     * Sends everything buffered for the board since its last frame (tick changes and joins) as one
+     * {@code score_update}, encoded once for all subscribers. The frame carries the board's {@code stats} when
+     * they differ from the last ones published. Returns the share of streaming subscribers whose previous frames
+     * were still queued. Shard thread only.
+     */
+    private double publishDeltas(LeaderboardShard shard, CompetitionBoard board) {
+        List<LeaderboardEntry> deltas = shard.drainDeltas(board.competitionId());
+        if (deltas.isEmpty()) {
+            return 0.0;
+        }
+        globalRanking.offer(board.competitionId(), deltas);
+
+        boolean approximate = board.rankingMode() == RankingMode.APPROXIMATE;
+        List<LeaderboardEntry> visible = new ArrayList<>(deltas.size());
+        List<Map<String, Object>> updates = new ArrayList<>(deltas.size());
+        for (LeaderboardEntry e : deltas) {
+            // Approximate boards only stream the exactly ranked top K; the tail is reached through my_rank
+            if (approximate && board.positionOf(e.username()) < 0) {
+                continue;
+            }
+            visible.add(e);
             updates.add(Map.of(
-                    "name", p.getUser().getUsername(),
-                    "score", next.doubleValue()
+                    "name", e.username(),
+                    "score", e.score()
             ));
         }
-        participantRepository.saveAll(toUpdate);
+
+        CompetitionStats stats = board.stats();
+        boolean statsChanged = shard.publishStats(board.competitionId(), stats);
 
         Map<String, Object> frame = new HashMap<>();
         frame.put("type", "score_update");
-        frame.put("competitionId", String.valueOf(c.getId()));
+        frame.put("competitionId", String.valueOf(board.competitionId()));
         frame.put("updates", updates);
+        if (statsChanged) {
+            frame.put("stats", stats);
+        }
+
+        List<WebSocketSession> subscribers = shard.subscribersOf(board.competitionId());
+        List<WebSocketSession> streaming = new ArrayList<>(subscribers.size());
+        int backedUp = 0;
+        for (WebSocketSession s : subscribers) {
+            if (conflatedDelivery.isConflated(s.getId())) {
+                if (!visible.isEmpty()) {
+                    conflatedDelivery.offerUpdates(s.getId(), board.competitionId(), visible);
+                }
+                if (statsChanged) {
+                    conflatedDelivery.offerStats(s.getId(), board.competitionId(), stats);
+                }
+            } else {
+                streaming.add(s);
+                if (s instanceof ConcurrentWebSocketSessionDecorator decorator && decorator.getBufferSize() > 0) {
+                    backedUp++;
+                }
+            }
+        }
+        if (!updates.isEmpty() || statsChanged) {
+            sendJson(streaming, frame);
+        }
+        sendPersonalRanks(subscribers, board);
+        return streaming.isEmpty() ? 0.0 : (double) backedUp / streaming.size();
+    }
+
+    /**
+     * Pushes a {@code my_rank} frame (own rank plus neighbours) to each identified subscriber that takes part in
+     * the competition. The board ranks once per version, however many users are watching. Below the top K of
+     * an approximate board the frame carries an estimate and no neighbours.
+     */
+    private void sendPersonalRanks(List<WebSocketSession> subscribers, CompetitionBoard board) {
+        List<LeaderboardEntry> ranked = board.ranked();
+        for (WebSocketSession s : subscribers) {
+            Object username = s.getAttributes().get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE);
+            RankEstimate rank = username != null ? board.rankOf((String) username) : null;
+            if (rank == null) {
+                continue;
+            }
+
+            List<Map<String, Object>> neighbors = new ArrayList<>();
+            int position = board.positionOf((String) username);
+            if (position >= 0) {
+                int from = Math.max(0, position - RANK_NEIGHBORS);
+                int to = Math.min(ranked.size(), position + RANK_NEIGHBORS + 1);
+                for (int i = from; i < to; i++) {
+                    LeaderboardEntry e = ranked.get(i);
+                    neighbors.add(Map.of("rank", i + 1, "name", e.username(), "score", e.score()));
+                }
+            }
+
+            Map<String, Object> personal = new HashMap<>();
+            personal.put("type", "my_rank");
+            personal.put("competitionId", String.valueOf(board.competitionId()));
+            personal.put("rank", rank.rank());
+            personal.put("total", rank.total());
+            personal.put("neighbors", neighbors);
+            if (!rank.exact()) {
+                personal.put("approximate", true);
+                personal.put("rankError", rank.error());
+                personal.put("topPercent", rank.topPercent());
+            }
+
+            String json;
+            try {
+                json = FrameEncodeEvent.encode(objectMapper, personal);
+            } catch (IOException e) {
+                continue;
+            }
+            if (conflatedDelivery.isConflated(s.getId())) {
+                conflatedDelivery.offerRank(s.getId(), board.competitionId(), json);
+            } else {
+                sendText(s, json);
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onCompetitionStatusChanged(CompetitionStatusChangedEvent event) {
+        if (sessionRegistry.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "status_update");
+        frame.put("activated", event.getActivatedIds().stream().map(String::valueOf).toList());
+        frame.put("finished", event.getFinishedIds().stream().map(String::valueOf).toList());
 
         broadcastJson(frame);
     }
 
-    private void sendJson(WebSocketSession session, Map<String, Object> payload) {
+    private void sendText(WebSocketSession session, String json) {
         try {
             if (session.isOpen()) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+                SessionSendEvent.send(session, new TextMessage(json));
             }
         } catch (IOException ignored) {
         }
     }
 
     private void broadcastJson(Map<String, Object> payload) {
+        sendJson(sessionRegistry.sessions(), payload);
+    }
+
+    private void sendJson(Collection<WebSocketSession> targets, Map<String, Object> payload) {
         String json;
         try {
-            json = objectMapper.writeValueAsString(payload);
+            json = FrameEncodeEvent.encode(objectMapper, payload);
         } catch (IOException e) {
             return;
         }
         TextMessage msg = new TextMessage(json);
-        for (WebSocketSession s : sessions) {
+        for (WebSocketSession s : targets) {
             try {
                 if (s.isOpen()) {
-                    s.sendMessage(msg);
+                    SessionSendEvent.send(s, msg);
                 }
             } catch (IOException ignored) {
             }
@@ -0,0 +1,54 @@
+package com.innohive.backendjava.websocket;
+
+import com.innohive.backendjava.security.RateLimitBudget;
+import com.innohive.backendjava.security.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Rejects reconnect storms on {@code /ws} with {@code 429} before a session (and its snapshot) is created.
+ */
+@Component
+public class RateLimitHandshakeInterceptor implements HandshakeInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitHandshakeInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        long waitNanos = rateLimiter.tryAcquire(RateLimitBudget.SOCKET_CONNECT, clientKey(request, attributes));
+        if (waitNanos > 0) {
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(waitNanos)));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String clientKey(ServerHttpRequest request, Map<String, Object> attributes) {
+        // Set by JwtHandshakeInterceptor, which runs first
+        Object username = attributes.get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE);
+        if (username != null) {
+            return "user:" + username;
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        return "ip:" + (remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : "unknown");
+    }
+}
@@ -1,20 +1,248 @@
 package com.innohive.backendjava.websocket;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import com.innohive.backendjava.leaderboard.LeaderboardShard;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.scheduler.CompetitionStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Drives score ticks with a cadence per active competition instead of one fixed rate. Every competition starts
+ * at {@code initial-interval-ms}; after each tick its interval doubles when the tick took more than its share of
+ * the shard thread or left streaming subscribers backed up, and shrinks by a fifth when it was comfortably
+ * cheap, within {@code [min-interval-ms, max-interval-ms]}. Competitions without subscribers are not ticked, a
+ * competition whose previous tick is still running is skipped rather than queued, and an overrun pushes the
+ * next tick back instead of causing a burst of catch-up ticks.
+ * <p>
+ * Ticks run on their own thread, so slow jobs on Spring's scheduler never delay them. The active competitions
+ * are kept in memory, updated from {@link CompetitionStatusChangedEvent} and re-read every {@code resync-ms} to
+ * pick up competitions created or edited outside the status scheduler.
+ */
 @Component
 public class ScoreUpdateScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(ScoreUpdateScheduler.class);
+
     private final LeaderboardWebSocketHandler handler;
+    private final CompetitionRepository competitionRepository;
+    private final LeaderboardStore leaderboardStore;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final long initialIntervalNanos;
+    private final double shardUtilization;
+    private final double backlogThreshold;
+    private final long resolutionMs;
+    private final long resyncNanos;
+    private final Map<Long, Cadence> cadences = new ConcurrentHashMap<>();
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("score-ticks").daemon().factory());
+    // Confined to the executor thread
+    private long syncedAt;
 
-    public ScoreUpdateScheduler(LeaderboardWebSocketHandler handler) {
+    private final Timer tickCost;
+    private final Counter skippedInFlight;
+
+    public ScoreUpdateScheduler(LeaderboardWebSocketHandler handler,
+                                CompetitionRepository competitionRepository,
+                                LeaderboardStore leaderboardStore,
+                                MeterRegistry meterRegistry,
+                                @Value("${websocket.ticks.min-interval-ms:250}") long minIntervalMs,
+                                @Value("${websocket.ticks.max-interval-ms:10000}") long maxIntervalMs,
+                                @Value("${websocket.ticks.initial-interval-ms:2000}") long initialIntervalMs,
+                                @Value("${websocket.ticks.shard-utilization:0.5}") double shardUtilization,
+                                @Value("${websocket.ticks.backlog-threshold:0.1}") double backlogThreshold,
+                                @Value("${websocket.ticks.resolution-ms:100}") long resolutionMs,
+                                @Value("${websocket.ticks.resync-ms:60000}") long resyncMs) {
         this.handler = handler;
+        this.competitionRepository = competitionRepository;
+        this.leaderboardStore = leaderboardStore;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minIntervalMs, maxIntervalMs));
+        this.initialIntervalNanos = Math.min(maxIntervalNanos,
+                Math.max(minIntervalNanos, TimeUnit.MILLISECONDS.toNanos(initialIntervalMs)));
+        this.shardUtilization = shardUtilization;
+        this.backlogThreshold = backlogThreshold;
+        this.resolutionMs = Math.max(10, resolutionMs);
+        this.resyncNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1000, resyncMs));
+
+        this.tickCost = Timer.builder("websocket.ticks.cost")
+                .description("Shard thread time spent on one competition tick").register(meterRegistry);
+        this.skippedInFlight = Counter.builder("websocket.ticks.skipped")
+                .description("Ticks skipped because the competition's previous tick was still running")
+                .register(meterRegistry);
+        Gauge.builder("websocket.ticks.rate", this, s -> s.publishing().stream()
+                        .mapToDouble(c -> 1e9 / c.intervalNanos).sum())
+                .description("Score ticks per second across all competitions").register(meterRegistry);
+        Gauge.builder("websocket.ticks.competitions", this, s -> s.publishing().size())
+                .tag("state", "publishing")
+                .description("Active competitions being ticked").register(meterRegistry);
+        Gauge.builder("websocket.ticks.competitions", this, s -> s.cadences.size() - s.publishing().size())
+                .tag("state", "idle")
+                .description("Active competitions skipped for lack of subscribers").register(meterRegistry);
+        registerInterval(meterRegistry, "min", s -> s.publishing().stream()
+                .mapToLong(c -> c.intervalNanos).min().orElse(0L) / 1e6);
+        registerInterval(meterRegistry, "max", s -> s.publishing().stream()
+                .mapToLong(c -> c.intervalNanos).max().orElse(0L) / 1e6);
+    }
+
+    private void registerInterval(MeterRegistry meterRegistry, String stat, ToDoubleFunction<ScoreUpdateScheduler> fn) {
+        Gauge.builder("websocket.ticks.interval", this, fn)
+                .tag("stat", stat)
+                .baseUnit("milliseconds")
+                .description("Tick interval of the competitions being ticked").register(meterRegistry);
+    }
+
+    /**
+     * Current cadence of one competition, as reported by {@code /api/admin/ticks}.
+     */
+    public record CadenceView(String competitionId, double intervalMs, double ratePerSecond, boolean idle,
+                              int subscribers, double lastCostMs, double backlog) {
+    }
+
+    public List<CadenceView> cadences() {
+        List<CadenceView> views = new ArrayList<>(cadences.size());
+        new TreeMap<>(cadences).forEach((id, c) -> {
+            LeaderboardWebSocketHandler.TickStats last = c.last;
+            views.add(new CadenceView(String.valueOf(id), c.intervalNanos / 1e6,
+                    c.idle ? 0.0 : 1e9 / c.intervalNanos, c.idle,
+                    last.subscribers(), last.costNanos() / 1e6, last.backlog()));
+        });
+        return views;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Fixed delay: a slow pass delays the next one rather than stacking behind it
+        executor.scheduleWithFixedDelay(this::tickSafely, 0, resolutionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @TransactionalEventListener
+    public void onCompetitionStatusChanged(CompetitionStatusChangedEvent event) {
+        active.addAll(event.getActivatedIds());
+        event.getFinishedIds().forEach(active::remove);
     }
 
-    // Send push updates roughly every 2 seconds
-    @Scheduled(fixedRate = 2000)
-    public void tick() {
-        handler.broadcastRandomScoreUpdate();
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            // A thrown exception would cancel the schedule
+            log.warn("Score tick failed", e);
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        if (syncedAt == 0 || now - syncedAt > resyncNanos) {
+            // Stamped first, so a failing query is retried at the resync interval rather than every pass
+            syncedAt = now;
+            resync();
+        }
+        if (!handler.hasSessions()) {
+            return;
+        }
+
+        Set<Long> activeIds = Set.copyOf(active);
+        cadences.keySet().retainAll(activeIds);
+
+        // A shard's time budget is shared by the competitions living on it
+        Map<LeaderboardShard, Integer> perShard = new HashMap<>();
+        for (Long id : activeIds) {
+            perShard.merge(leaderboardStore.shardFor(id), 1, Integer::sum);
+        }
+
+        for (Long id : activeIds) {
+            Cadence cadence = cadences.computeIfAbsent(id, k -> new Cadence(initialIntervalNanos, now));
+            if (now < cadence.nextDueNanos) {
+                continue;
+            }
+            if (cadence.inFlight) {
+                skippedInFlight.increment();
+                continue;
+            }
+            cadence.inFlight = true;
+            cadence.nextDueNanos = now + cadence.intervalNanos;
+            double budget = shardUtilization / perShard.get(leaderboardStore.shardFor(id));
+            handler.tick(id).whenComplete((stats, error) -> {
+                if (stats != null) {
+                    adapt(cadence, stats, budget);
+                }
+                cadence.inFlight = false;
+            });
+        }
+    }
+
+    private void resync() {
+        Set<Long> ids = new HashSet<>();
+        for (Competition c : competitionRepository.findByStatus("active")) {
+            ids.add(c.getId());
+        }
+        active.addAll(ids);
+        active.retainAll(ids);
+    }
+
+    private void adapt(Cadence cadence, LeaderboardWebSocketHandler.TickStats stats, double budget) {
+        cadence.last = stats;
+        cadence.idle = stats.subscribers() == 0;
+        if (cadence.idle) {
+            return;
+        }
+        tickCost.record(stats.costNanos(), TimeUnit.NANOSECONDS);
+
+        double utilization = (double) stats.costNanos() / cadence.intervalNanos;
+        if (utilization > budget || stats.backlog() > backlogThreshold) {
+            cadence.intervalNanos = Math.min(maxIntervalNanos, cadence.intervalNanos * 2);
+        } else if (utilization < budget / 4 && stats.backlog() == 0.0) {
+            cadence.intervalNanos = Math.max(minIntervalNanos, cadence.intervalNanos * 4 / 5);
+        }
+    }
+
+    private List<Cadence> publishing() {
+        return cadences.values().stream().filter(c -> !c.idle).toList();
+    }
+
+    // Written by the scheduler thread and by the completing shard thread, never both at once (inFlight)
+    private static final class Cadence {
+        private volatile long intervalNanos;
+        private volatile long nextDueNanos;
+        private volatile boolean inFlight;
+        private volatile boolean idle = true;
+        private volatile LeaderboardWebSocketHandler.TickStats last = LeaderboardWebSocketHandler.TickStats.IDLE;
+
+        private Cadence(long intervalNanos, long now) {
+            this.intervalNanos = intervalNanos;
+            this.nextDueNanos = now;
+        }
     }
 }
@@ -0,0 +1,299 @@
+package com.innohive.backendjava.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Open {@code /ws} sessions keyed by id, with O(1) register, lookup and removal. Liveness is tracked with
+ * server pings on a hashed timer wheel: every session sits in the slot of its next check, and each tick only
+ * visits the sessions due then. A session that has sent nothing (pong or message) for {@code idle-timeout-ms}
+ * is closed and its removal listeners run, so peers that vanished without a close frame are reclaimed within
+ * one timeout plus one ping interval.
+ */
+@Component
+public class SessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    private final long tickNanos;
+    private final long pingIntervalNanos;
+    private final long idleTimeoutNanos;
+    private final Queue<SessionInfo>[] wheel;
+    private final Counter reaped;
+
+    // Pings and closes can block on a dead peer's socket, so they never run on the wheel thread
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("websocket-heartbeat-send-", 0).factory());
+    private volatile long currentTick;
+    private volatile boolean running;
+    private Thread wheelThread;
+
+    @SuppressWarnings("unchecked")
+    public SessionRegistry(MeterRegistry meterRegistry,
+                           @Value("${websocket.heartbeat.tick-ms:1000}") long tickMs,
+                           @Value("${websocket.heartbeat.interval-ms:5000}") long pingIntervalMs,
+                           @Value("${websocket.heartbeat.idle-timeout-ms:15000}") long idleTimeoutMs) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, tickMs));
+        this.pingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pingIntervalMs);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        // One slot per tick of the longest delay ever scheduled, so a slot never mixes laps
+        int slots = (int) (Math.max(pingIntervalNanos, idleTimeoutNanos) / tickNanos) + 2;
+        this.wheel = new Queue[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+
+        this.reaped = Counter.builder("websocket.sessions.reaped")
+                .description("Sessions closed for missing heartbeats").register(meterRegistry);
+        Gauge.builder("websocket.sessions", sessions, Map::size)
+                .description("Open WebSocket sessions").register(meterRegistry);
+    }
+
+    /**
+     * Per-session metadata; timestamps are {@link System#nanoTime()} values.
+     */
+    public static final class SessionInfo {
+        private final WebSocketSession session;
+        private final String username;
+        private final Instant connectedAt = Instant.now();
+        private volatile long lastSeenNanos = System.nanoTime();
+        private volatile long roundTripNanos = -1;
+        private volatile boolean removed;
+
+        private SessionInfo(WebSocketSession session) {
+            this.session = session;
+            Object username = session.getAttributes().get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE);
+            this.username = username != null ? (String) username : null;
+        }
+
+        public WebSocketSession session() {
+            return session;
+        }
+
+        /**
+         * Authenticated user, or null for an anonymous viewer.
+         */
+        public String username() {
+            return username;
+        }
+
+        public InetSocketAddress remoteAddress() {
+            return session.getRemoteAddress();
+        }
+
+        public Instant connectedAt() {
+            return connectedAt;
+        }
+
+        public long lastSeenNanos() {
+            return lastSeenNanos;
+        }
+
+        /**
+         * Round trip of the last answered ping, or -1 before the first pong.
+         */
+        public long roundTripNanos() {
+            return roundTripNanos;
+        }
+    }
+
+    /**
+     * Registers the (send-serializing) session and schedules its first heartbeat check.
+     */
+    public SessionInfo register(WebSocketSession session) {
+        SessionInfo info = new SessionInfo(session);
+        sessions.put(session.getId(), info);
+        schedule(info, pingIntervalNanos);
+        return info;
+    }
+
+    /**
+     * Forgets the session; its wheel entry is dropped lazily when its slot comes up.
+     */
+    public void unregister(String sessionId) {
+        SessionInfo info = sessions.remove(sessionId);
+        if (info != null) {
+            info.removed = true;
+        }
+    }
+
+    public WebSocketSession get(String sessionId) {
+        SessionInfo info = sessions.get(sessionId);
+        return info != null ? info.session : null;
+    }
+
+    public SessionInfo info(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * The open sessions at the time of the call.
+     */
+    public List<WebSocketSession> sessions() {
+        return sessions.values().stream().map(SessionInfo::session).toList();
+    }
+
+    /**
+     * Runs with the session id whenever the reaper closes a session, in addition to the normal close callback,
+     * which a dead peer may never trigger.
+     */
+    public void onRemoved(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * Records inbound traffic (a message or a pong) as a sign of life.
+     */
+    public void touch(String sessionId) {
+        SessionInfo info = sessions.get(sessionId);
+        if (info != null) {
+            info.lastSeenNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Handles a pong to one of our pings, whose payload carries the send time.
+     */
+    public void pong(String sessionId, ByteBuffer payload) {
+        SessionInfo info = sessions.get(sessionId);
+        if (info == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        info.lastSeenNanos = now;
+        if (payload != null && payload.remaining() == Long.BYTES) {
+            info.roundTripNanos = now - payload.getLong(payload.position());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        wheelThread = Thread.ofPlatform().name("websocket-heartbeat").daemon().start(this::turn);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wheelThread.interrupt();
+        wheelThread.join(TimeUnit.SECONDS.toMillis(5));
+        senders.shutdownNow();
+    }
+
+    private void schedule(SessionInfo info, long delayNanos) {
+        long ticks = Math.max(1, Math.min(wheel.length - 1, (delayNanos + tickNanos - 1) / tickNanos));
+        wheel[(int) ((currentTick + ticks) % wheel.length)].add(info);
+    }
+
+    private void turn() {
+        long next = System.nanoTime() + tickNanos;
+        while (running) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            next += tickNanos;
+            long tick = currentTick + 1;
+            currentTick = tick;
+            Queue<SessionInfo> slot = wheel[(int) (tick % wheel.length)];
+            // Sessions rescheduled while draining land in later slots, so this loop always ends
+            for (int n = slot.size(); n > 0; n--) {
+                SessionInfo info = slot.poll();
+                if (info == null) {
+                    break;
+                }
+                try {
+                    check(info);
+                } catch (RuntimeException e) {
+                    log.warn("Heartbeat check failed for session {}", info.session.getId(), e);
+                }
+            }
+        }
+    }
+
+    private void check(SessionInfo info) {
+        if (info.removed) {
+            return;
+        }
+        if (!info.session.isOpen()) {
+            unregister(info.session.getId());
+            return;
+        }
+
+        long now = System.nanoTime();
+        long idle = now - info.lastSeenNanos;
+        if (idle >= idleTimeoutNanos) {
+            reap(info);
+            return;
+        }
+        // Recent traffic already proves the peer is there; only quiet sessions get pinged
+        if (idle >= pingIntervalNanos - tickNanos) {
+            senders.execute(() -> ping(info, now));
+        }
+        schedule(info, Math.min(pingIntervalNanos, idleTimeoutNanos - idle));
+    }
+
+    private void ping(SessionInfo info, long sentAt) {
+        try {
+            info.session.sendMessage(new PingMessage(ByteBuffer.allocate(Long.BYTES).putLong(0, sentAt)));
+        } catch (IOException | RuntimeException ignored) {
+            // A failed send shows up as silence and is reaped at the idle timeout
+        }
+    }
+
+    private void reap(SessionInfo info) {
+        String id = info.session.getId();
+        if (sessions.remove(id, info)) {
+            info.removed = true;
+            reaped.increment();
+            log.debug("Reaping WebSocket session {} after {} ms without traffic", id,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - info.lastSeenNanos));
+            for (Consumer<String> listener : removalListeners) {
+                listener.accept(id);
+            }
+            senders.execute(() -> {
+                try {
+                    info.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException | RuntimeException ignored) {
+                }
+            });
+        }
+    }
+}
@@ -4,21 +4,33 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final LeaderboardWebSocketHandler leaderboardWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+    private final RateLimitHandshakeInterceptor rateLimitHandshakeInterceptor;
 
-    public WebSocketConfig(LeaderboardWebSocketHandler leaderboardWebSocketHandler) {
+    public WebSocketConfig(LeaderboardWebSocketHandler leaderboardWebSocketHandler,
+                           JwtHandshakeInterceptor jwtHandshakeInterceptor,
+                           RateLimitHandshakeInterceptor rateLimitHandshakeInterceptor) {
         this.leaderboardWebSocketHandler = leaderboardWebSocketHandler;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
+        this.rateLimitHandshakeInterceptor = rateLimitHandshakeInterceptor;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Browsers drop a connection whose offered subprotocols the server does not answer
+        DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+        handshakeHandler.setSupportedProtocols(JwtHandshakeInterceptor.BEARER_PROTOCOL);
         registry
                 .addHandler(leaderboardWebSocketHandler, "/ws")
+                .setHandshakeHandler(handshakeHandler)
+                .addInterceptors(jwtHandshakeInterceptor, rateLimitHandshakeInterceptor)
                 .setAllowedOriginPatterns("*");
     }
 }
@@ -0,0 +1,17 @@
+-- Partial indexes backing the set-based status transitions in CompetitionStatusScheduler.
+-- Only rows that still need a transition are indexed, so finished history never enters the scan.
+
+-- Earlier versions indexed every non-active row, finished ones included, with status leading the key.
+drop index concurrently if exists idx_competitions_pending_activation;
+drop index concurrently if exists idx_competitions_pending_finish;
+
+-- activateStarted: status <> 'active' and status <> 'finished' and start_date < now and end_date > now
+-- Only upcoming rows qualify; end_date leads because 'start_date < now' matches most of them once they are due.
+create index concurrently if not exists idx_competitions_upcoming_dates
+    on competitions (end_date, start_date)
+    where status <> 'active' and status <> 'finished';
+
+-- finishEnded: status <> 'finished' and end_date < now
+create index concurrently if not exists idx_competitions_unfinished_end
+    on competitions (end_date)
+    where status <> 'finished';
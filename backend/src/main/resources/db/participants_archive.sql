@@ -0,0 +1,27 @@
+-- Cold storage for participants of finished competitions, filled by ParticipantArchive.
+-- Rows move here in one transaction once a competition has been finished for participants.archive.grace-ms,
+-- so the participants table, and every index on it, only holds competitions that can still change.
+
+-- Same columns as participants; rows are written once and only updated by a late ROI write, so pages are packed full
+create table if not exists participants_archive (
+    id             bigint primary key,
+    competition_id bigint not null references competitions (id),
+    user_id        bigint not null references users (id),
+    joined_at      timestamptz,
+    roi            numeric(10, 2)
+) with (fillfactor = 100);
+
+-- Historical leaderboards: rows of one competition, best ROI first
+create index if not exists idx_participants_archive_competition
+    on participants_archive (competition_id, (coalesce(roi, 0)) desc);
+
+-- A user's past competitions
+create index if not exists idx_participants_archive_user
+    on participants_archive (user_id, competition_id);
+
+-- One row per archived competition; read whole at startup to route reads and answer participant counts
+create table if not exists archived_competitions (
+    competition_id bigint primary key references competitions (id),
+    participants   bigint      not null,
+    archived_at    timestamptz not null default now()
+);
@@ -0,0 +1,207 @@
+package com.innohive.backendjava.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives boards through random joins, score changes and replacements, and after every change compares the
+ * per-change aggregates with the same figures recomputed from scratch.
+ */
+class CompetitionBoardTest {
+
+    private static final int STEPS = 400;
+
+    private final Map<Long, LeaderboardEntry> expected = new HashMap<>();
+
+    private static long score(Random random) {
+        // Coarse scores half the time, so ties and shared buckets are common
+        return random.nextBoolean()
+                ? (random.nextInt(41) - 20) * 250L
+                : random.nextInt(20_001) - 10_000L;
+    }
+
+    private List<LeaderboardEntry> randomChange(Random random) {
+        Map<Long, LeaderboardEntry> changed = new HashMap<>();
+        int count = 1 + random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            long id = 1 + random.nextInt(Math.max(1, expected.size() + 3));
+            changed.put(id, new LeaderboardEntry(id, "trader" + id, score(random)));
+        }
+        expected.putAll(changed);
+        return new ArrayList<>(changed.values());
+    }
+
+    private List<LeaderboardEntry> naiveRanking() {
+        List<LeaderboardEntry> sorted = new ArrayList<>(expected.values());
+        sorted.sort(CompetitionBoard.RANKING);
+        return sorted;
+    }
+
+    private static BigDecimal roi(long scaled) {
+        return BigDecimal.valueOf(scaled, LeaderboardEntry.ROI_SCALE);
+    }
+
+    private void assertStats(CompetitionBoard board, long width, int prizePlaces, int topK, String context) {
+        CompetitionStats stats = board.stats();
+        List<LeaderboardEntry> sorted = naiveRanking();
+        int n = sorted.size();
+        assertEquals(n, stats.participants(), context);
+        assertEquals(prizePlaces, stats.prizePlaces(), context);
+        if (n == 0) {
+            assertNull(stats.mean(), context);
+            assertTrue(stats.histogram().isEmpty(), context);
+            return;
+        }
+
+        long sum = sorted.stream().mapToLong(LeaderboardEntry::scaledRoi).sum();
+        BigDecimal mean = roi(sum).divide(BigDecimal.valueOf(n), MathContext.DECIMAL64);
+        assertTrue(stats.mean().subtract(mean).abs().compareTo(new BigDecimal("0.005")) <= 0,
+                context + ": mean " + stats.mean() + " vs " + mean);
+
+        long inProfit = sorted.stream().filter(e -> e.scaledRoi() > 0).count();
+        // Rounded to one decimal
+        assertEquals(inProfit * 100.0 / n, stats.inProfitPercent(), 0.05 + 1e-9, context);
+
+        // Median of an even field is the mean of the two middle scores
+        BigDecimal median = roi(sorted.get((n + 1) / 2 - 1).scaledRoi() + sorted.get(n / 2).scaledRoi())
+                .divide(BigDecimal.valueOf(2));
+        boolean medianExact = topK == 0 || n / 2 + 1 <= topK;
+        BigDecimal medianTolerance = medianExact ? new BigDecimal("0.005") : roi(width);
+        assertTrue(stats.median().subtract(median).abs().compareTo(medianTolerance) <= 0,
+                context + ": median " + stats.median() + " vs " + median);
+
+        int place = Math.min(prizePlaces, n);
+        boolean cutoffExact = topK == 0 || place <= topK;
+        if (prizePlaces == 0) {
+            assertNull(stats.prizeCutoff(), context);
+        } else if (cutoffExact) {
+            assertEquals(roi(sorted.get(place - 1).scaledRoi()), stats.prizeCutoff(), context);
+        } else {
+            assertTrue(stats.prizeCutoff().subtract(roi(sorted.get(place - 1).scaledRoi())).abs()
+                    .compareTo(roi(width)) <= 0, context + ": cutoff " + stats.prizeCutoff());
+        }
+        assertEquals(!(medianExact && cutoffExact), stats.approximate(), context);
+
+        TreeMap<Long, Integer> buckets = new TreeMap<>();
+        for (LeaderboardEntry e : sorted) {
+            buckets.merge(Math.floorDiv(e.scaledRoi(), width), 1, Integer::sum);
+        }
+        List<CompetitionStats.Bucket> histogram = new ArrayList<>();
+        buckets.descendingMap().forEach((bucket, count) ->
+                histogram.add(new CompetitionStats.Bucket(roi(bucket * width), roi((bucket + 1) * width), count)));
+        assertEquals(histogram, stats.histogram(), context);
+    }
+
+    @Test
+    void exactStatsMatchRecomputationAfterRandomChanges() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            expected.clear();
+            CompetitionBoard board = new CompetitionBoard(1, 0, List.of());
+            long width = CompetitionBoard.DEFAULT_DISTRIBUTION_WIDTH;
+            int prizePlaces = CompetitionBoard.DEFAULT_PRIZE_PLACES;
+            assertStats(board, width, prizePlaces, 0, "seed " + seed + " empty");
+
+            for (int step = 0; step < STEPS; step++) {
+                String context = "seed " + seed + " step " + step;
+                int action = random.nextInt(40);
+                if (action == 0) {
+                    // Replacement, as after a reload from the database
+                    expected.clear();
+                    randomChange(random);
+                    board.replaceWith(new ArrayList<>(expected.values()), 0);
+                } else if (action == 1) {
+                    width = 100L * (1 + random.nextInt(10));
+                    prizePlaces = random.nextInt(6);
+                    board.useStatistics(width, prizePlaces);
+                } else {
+                    board.putAll(randomChange(random));
+                }
+                List<LeaderboardEntry> sorted = naiveRanking();
+                assertStats(board, width, prizePlaces, 0, context);
+                // Positions come from the rank tree, independently of the ranked view
+                for (int i = 0; i < 5 && !sorted.isEmpty(); i++) {
+                    int position = random.nextInt(sorted.size());
+                    assertEquals(position, board.positionOf(sorted.get(position).username()), context);
+                }
+                assertEquals(sorted, board.ranked(), context);
+            }
+        }
+    }
+
+    @Test
+    void approximateStatsStayWithinABucketOfRecomputation() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            expected.clear();
+            for (int i = 0; i < 60; i++) {
+                randomChange(random);
+            }
+            CompetitionBoard board = new CompetitionBoard(1, 0, expected.values());
+            int topK = 10;
+            long rankWidth = 200;
+            board.useRanking(RankingMode.APPROXIMATE, topK, rankWidth);
+            int prizePlaces = 5;
+            board.useStatistics(CompetitionBoard.DEFAULT_DISTRIBUTION_WIDTH, prizePlaces);
+
+            for (int step = 0; step < STEPS; step++) {
+                String context = "seed " + seed + " step " + step;
+                if (random.nextInt(40) == 0) {
+                    prizePlaces = random.nextInt(3 * topK);
+                    board.useStatistics(CompetitionBoard.DEFAULT_DISTRIBUTION_WIDTH, prizePlaces);
+                } else {
+                    board.putAll(randomChange(random));
+                }
+
+                List<LeaderboardEntry> sorted = naiveRanking();
+                assertEquals(sorted.subList(0, Math.min(topK, sorted.size())), board.ranked(), context);
+                // Median and cutoff are interpolated from the finer ranking histogram
+                assertStats(board, CompetitionBoard.DEFAULT_DISTRIBUTION_WIDTH, prizePlaces, topK, context);
+
+                for (int rank = 1; rank <= sorted.size(); rank++) {
+                    RankEstimate estimate = board.rankOf(sorted.get(rank - 1).username());
+                    assertEquals(sorted.size(), estimate.total(), context);
+                    if (rank <= topK) {
+                        assertTrue(estimate.exact(), context);
+                        assertEquals(rank, estimate.rank(), context);
+                    } else {
+                        assertTrue(Math.abs(estimate.rank() - rank) <= estimate.error(),
+                                context + ": rank " + rank + " estimated " + estimate.rank() + " ± " + estimate.error());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void switchingModesKeepsTheAggregates() {
+        Random random = new Random(7);
+        expected.clear();
+        CompetitionBoard board = new CompetitionBoard(1, 0, List.of());
+        for (int step = 0; step < STEPS; step++) {
+            board.putAll(randomChange(random));
+            if (step % 50 == 0) {
+                board.useRanking(RankingMode.APPROXIMATE, 5, 100);
+            } else if (step % 50 == 25) {
+                board.useRanking(RankingMode.EXACT, 0, 100);
+                assertFalse(board.stats().approximate(), "step " + step);
+            }
+            int topK = board.topK();
+            assertStats(board, CompetitionBoard.DEFAULT_DISTRIBUTION_WIDTH, CompetitionBoard.DEFAULT_PRIZE_PLACES,
+                    topK, "step " + step);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.innohive.backendjava.leaderboard;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes logs through {@link LeaderboardEventLog} and reads them back: segment rollover, scans from a sequence,
+ * and the torn tail a crash leaves behind.
+ */
+class EventLogReaderTest {
+
+    private static final long SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path directory;
+
+    private LeaderboardEventLog openLog() throws IOException {
+        LeaderboardEventLog log = new LeaderboardEventLog(directory.toString(), true, SEGMENT_BYTES, 1, 0,
+                new SimpleMeterRegistry());
+        log.open();
+        return log;
+    }
+
+    private static List<LeaderboardEvent> batch(long competitionId, int from, int count) {
+        List<LeaderboardEvent> events = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            events.add(LeaderboardEvent.join(competitionId, new LeaderboardEntry(i, "trader" + i, i * 10L)));
+        }
+        return events;
+    }
+
+    private List<LeaderboardEvent> readAll(long afterSequence) throws IOException {
+        List<LeaderboardEvent> events = new ArrayList<>();
+        EventLogReader.scan(directory, afterSequence, cursor -> events.add(cursor.toEvent()));
+        return events;
+    }
+
+    private static void assertSequences(List<LeaderboardEvent> events, long first, long last) {
+        assertEquals(last - first + 1, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(first + i, events.get(i).sequence());
+        }
+    }
+
+    @Test
+    void rollsOverSegmentsAndScansFromASequence() throws Exception {
+        LeaderboardEventLog log = openLog();
+        long last = 0;
+        for (int i = 0; i < 30; i++) {
+            last = log.appendAll(batch(1 + i % 3, i * 10, 10));
+        }
+        log.close();
+        assertEquals(300, last);
+        assertEquals(300, log.durableSequence());
+
+        List<Path> segments = EventLogReader.segments(directory);
+        assertTrue(segments.size() > 10, "segments: " + segments.size());
+        long expectedFirst = 1;
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) <= SEGMENT_BYTES, segment + " is " + Files.size(segment) + " bytes");
+            // Each segment is named after its first sequence and continues where the previous one ended
+            assertEquals(expectedFirst, EventLogReader.firstSequenceOf(segment));
+            expectedFirst += countRecords(segment);
+        }
+        assertEquals(301, expectedFirst);
+
+        List<LeaderboardEvent> events = readAll(0);
+        assertSequences(events, 1, 300);
+        for (LeaderboardEvent e : events) {
+            int i = (int) e.sequence() - 1;
+            assertEquals(1 + (i / 10) % 3, e.competitionId());
+            assertEquals(new LeaderboardEntry(i, "trader" + i, i * 10L), e.entry());
+            assertEquals(LeaderboardEvent.Type.JOIN, e.type());
+        }
+
+        // Starting points inside, at the edge of and past the end of segments
+        for (long after : new long[]{0, 1, 14, 15, 16, 157, 299, 300, 1000}) {
+            assertSequences(readAll(after), after + 1, Math.max(after, 300));
+        }
+
+        List<Long> stopped = new ArrayList<>();
+        long visited = EventLogReader.scan(directory, 0, cursor -> {
+            stopped.add(cursor.sequence());
+            return cursor.sequence() < 42;
+        });
+        assertEquals(42, visited);
+        assertEquals(42L, stopped.get(stopped.size() - 1));
+    }
+
+    private static long countRecords(Path segment) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = EventLogReader.SEGMENT_HEADER_BYTES;
+        long records = 0;
+        while (position < buf.limit()) {
+            position += EventLogReader.RECORD_HEADER_BYTES + buf.getInt(position);
+            records++;
+        }
+        return records;
+    }
+
+    @Test
+    void reopeningCutsOffATornRecordAndContinuesTheSequence() throws Exception {
+        LeaderboardEventLog log = openLog();
+        log.appendAll(batch(1, 0, 5));
+        log.close();
+
+        // Half a record, as a crash mid-write leaves it: the length promises more than the file holds
+        Path segment = EventLogReader.segments(directory).get(0);
+        long intact = Files.size(segment);
+        ByteBuffer torn = ByteBuffer.allocate(20).putInt(EventLogReader.BODY_FIXED_BYTES + 7).putInt(0xDEAD)
+                .put((byte) 2).putLong(6);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+        assertSequences(readAll(0), 1, 5);
+
+        log = openLog();
+        assertEquals(intact, Files.size(segment));
+        assertEquals(5, log.durableSequence());
+        assertEquals(8, log.appendAll(batch(1, 5, 3)));
+        log.close();
+        assertSequences(readAll(0), 1, 8);
+    }
+
+    @Test
+    void reopeningDropsARecordWithABadChecksum() throws Exception {
+        LeaderboardEventLog log = openLog();
+        log.appendAll(batch(1, 0, 4));
+        log.close();
+
+        // Flip the last byte of the last record's name
+        Path segment = EventLogReader.segments(directory).get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(segment, bytes);
+        assertSequences(readAll(0), 1, 3);
+
+        log = openLog();
+        assertEquals(3, log.durableSequence());
+        assertEquals(4, log.appendAll(batch(1, 10, 1)));
+        log.close();
+
+        List<LeaderboardEvent> events = readAll(0);
+        assertSequences(events, 1, 4);
+        assertEquals("trader10", events.get(3).username());
+    }
+
+    @Test
+    void continuesAfterTheNewestSegment() throws Exception {
+        LeaderboardEventLog log = openLog();
+        for (int i = 0; i < 10; i++) {
+            log.appendAll(batch(1, i * 10, 10));
+        }
+        log.close();
+        int segments = EventLogReader.segments(directory).size();
+
+        log = openLog();
+        assertEquals(101, log.appendAll(batch(2, 100, 1)));
+        log.close();
+        assertTrue(EventLogReader.segments(directory).size() >= segments);
+        assertSequences(readAll(0), 1, 101);
+    }
+
+    @Test
+    void refusesBatchesWhileClosed() throws Exception {
+        LeaderboardEventLog log = new LeaderboardEventLog(directory.toString(), true, SEGMENT_BYTES, 1, 0,
+                new SimpleMeterRegistry());
+        assertEquals(0, log.appendAll(batch(1, 0, 3)));
+        log.open();
+        // The refused batch left no gap in the sequence
+        assertEquals(2, log.appendAll(batch(1, 3, 2)));
+        log.close();
+        assertEquals(0, log.appendAll(batch(1, 5, 1)));
+        assertSequences(readAll(0), 1, 2);
+    }
+}
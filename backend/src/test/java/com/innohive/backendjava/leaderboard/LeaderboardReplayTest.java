@@ -0,0 +1,212 @@
+package com.innohive.backendjava.leaderboard;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes a random history of joins and score changes for a few competitions, then checks that replays to any
+ * point and recovery from checkpointed boards agree with the history applied naively.
+ */
+class LeaderboardReplayTest {
+
+    private static final int COMPETITIONS = 3;
+
+    @TempDir
+    Path directory;
+
+    // Every logged event in sequence order, as stamped by the log
+    private final List<LeaderboardEvent> history = new ArrayList<>();
+
+    @BeforeEach
+    void writeHistory() throws Exception {
+        LeaderboardEventLog log = new LeaderboardEventLog(directory.toString(), true, 4096, 1, 0,
+                new SimpleMeterRegistry());
+        log.open();
+        Random random = new Random(42);
+        Map<Long, Map<Long, LeaderboardEntry>> boards = new HashMap<>();
+        List<LeaderboardEvent> pending = new ArrayList<>();
+        for (int batch = 0; batch < 40; batch++) {
+            for (int i = 0; i < 1 + random.nextInt(15); i++) {
+                long competitionId = 1 + random.nextInt(COMPETITIONS);
+                long participantId = competitionId * 1000 + random.nextInt(20);
+                Map<Long, LeaderboardEntry> board = boards.computeIfAbsent(competitionId, k -> new HashMap<>());
+                LeaderboardEntry previous = board.get(participantId);
+                long roi = random.nextInt(20_001) - 10_000L;
+                LeaderboardEntry next = new LeaderboardEntry(participantId, "trader" + participantId, roi);
+                pending.add(previous == null
+                        ? LeaderboardEvent.join(competitionId, next)
+                        : LeaderboardEvent.score(competitionId, previous, next));
+                board.put(participantId, next);
+            }
+            long last = log.appendAll(pending);
+            long first = last - pending.size() + 1;
+            for (int i = 0; i < pending.size(); i++) {
+                // The log stamps sequence and time; the reader gives both back
+                history.add(pending.get(i).stamped(first + i, 0));
+            }
+            pending.clear();
+            // Batches a few milliseconds apart, so several timestamps exist to replay to
+            Thread.sleep(batch % 10 == 9 ? 15 : 0);
+        }
+        log.close();
+
+        List<LeaderboardEvent> logged = new ArrayList<>();
+        EventLogReader.scan(directory, 0, cursor -> logged.add(cursor.toEvent()));
+        assertEquals(history.size(), logged.size());
+        for (int i = 0; i < logged.size(); i++) {
+            assertEquals(history.get(i).stamped(logged.get(i).sequence(), logged.get(i).timestamp()), logged.get(i));
+            history.set(i, logged.get(i));
+        }
+    }
+
+    private List<LeaderboardEntry> naive(long competitionId, long untilSequence, long untilTimestamp) {
+        Map<Long, LeaderboardEntry> entries = new HashMap<>();
+        for (LeaderboardEvent e : history) {
+            if (e.sequence() > untilSequence || e.timestamp() > untilTimestamp) {
+                break;
+            }
+            if (e.competitionId() == competitionId) {
+                entries.put(e.participantId(), e.entry());
+            }
+        }
+        List<LeaderboardEntry> ranked = new ArrayList<>(entries.values());
+        ranked.sort(CompetitionBoard.RANKING);
+        return ranked;
+    }
+
+    @Test
+    void replaysToEverySequence() throws Exception {
+        long last = history.get(history.size() - 1).sequence();
+        for (long competitionId = 1; competitionId <= COMPETITIONS; competitionId++) {
+            for (long until = 0; until <= last + 1; until++) {
+                LeaderboardReplay.Result result = LeaderboardReplay.replay(directory, competitionId, until,
+                        Long.MAX_VALUE, null);
+                String context = "competition " + competitionId + " until " + until;
+                assertEquals(naive(competitionId, until, Long.MAX_VALUE), result.board().ranked(), context);
+
+                long cutoff = until;
+                long competition = competitionId;
+                List<LeaderboardEvent> applied = history.stream()
+                        .filter(e -> e.sequence() <= cutoff && e.competitionId() == competition).toList();
+                assertEquals(applied.size(), result.eventsApplied(), context);
+                long lastApplied = applied.isEmpty() ? 0 : applied.get(applied.size() - 1).sequence();
+                assertEquals(lastApplied, result.lastSequence(), context);
+                assertEquals(lastApplied, result.board().lastSequence(), context);
+                assertTrue(result.history().isEmpty(), context);
+            }
+        }
+    }
+
+    @Test
+    void replaysToATimestamp() throws Exception {
+        List<Long> timestamps = history.stream().map(LeaderboardEvent::timestamp).distinct().toList();
+        assertTrue(timestamps.size() > 1, "timestamps: " + timestamps);
+        List<Long> points = new ArrayList<>(timestamps);
+        points.add(timestamps.get(0) - 1);
+        for (long at : points) {
+            for (long competitionId = 1; competitionId <= COMPETITIONS; competitionId++) {
+                LeaderboardReplay.Result result = LeaderboardReplay.replay(directory, competitionId, Long.MAX_VALUE,
+                        at, null);
+                assertEquals(naive(competitionId, Long.MAX_VALUE, at), result.board().ranked(), "at " + at);
+                assertTrue(result.lastTimestamp() <= at, "at " + at);
+            }
+        }
+    }
+
+    @Test
+    void tracesOneTradersHistory() throws Exception {
+        LeaderboardEvent someone = history.get(history.size() / 2);
+        LeaderboardReplay.Result result = LeaderboardReplay.replay(directory, someone.competitionId(), Long.MAX_VALUE,
+                Long.MAX_VALUE, someone.username());
+        List<LeaderboardEvent> expected = history.stream()
+                .filter(e -> e.participantId() == someone.participantId()).toList();
+        assertEquals(expected, result.history());
+        assertEquals(LeaderboardEvent.Type.JOIN, result.history().get(0).type());
+        long roi = 0;
+        for (LeaderboardEvent e : result.history()) {
+            roi += e.delta();
+            assertEquals(e.scaledRoi(), roi);
+        }
+    }
+
+    @Test
+    void recoverAppliesTheLogOnTopOfCheckpointedBoards() throws Exception {
+        long last = history.get(history.size() - 1).sequence();
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            // Each competition checkpointed at its own point, one of them not at all
+            Map<Long, CompetitionBoard> checkpointed = new HashMap<>();
+            long missing = 1 + random.nextInt(COMPETITIONS);
+            for (long competitionId = 1; competitionId <= COMPETITIONS; competitionId++) {
+                if (competitionId == missing) {
+                    continue;
+                }
+                long at = random.nextLong(last + 1);
+                checkpointed.put(competitionId,
+                        LeaderboardReplay.replay(directory, competitionId, at, Long.MAX_VALUE, null).board());
+            }
+
+            long from = checkpointed.values().stream().mapToLong(CompetitionBoard::lastSequence).min().orElse(0);
+
+            Map<Long, CompetitionBoard> recovered = LeaderboardReplay.recover(directory, checkpointed);
+            for (long competitionId = 1; competitionId <= COMPETITIONS; competitionId++) {
+                String context = "round " + round + " competition " + competitionId;
+                long lastOfCompetition = 0;
+                for (LeaderboardEvent e : history) {
+                    if (e.competitionId() == competitionId) {
+                        lastOfCompetition = e.sequence();
+                    }
+                }
+                CompetitionBoard board = recovered.get(competitionId);
+                if (competitionId == missing && lastOfCompetition <= from) {
+                    // Nothing after the checkpoint; the board loads from the database instead
+                    assertNull(board, context);
+                    continue;
+                }
+                // Complete even for the competition missing from the checkpoint, whose history starts before it
+                assertEquals(naive(competitionId, Long.MAX_VALUE, Long.MAX_VALUE), board.ranked(), context);
+                assertEquals(lastOfCompetition, board.lastSequence(), context);
+            }
+        }
+    }
+
+    @Test
+    void recoverWithoutCheckpointRebuildsEveryBoard() throws Exception {
+        Map<Long, CompetitionBoard> recovered = LeaderboardReplay.recover(directory, Map.of());
+        assertEquals(COMPETITIONS, recovered.size());
+        for (long competitionId = 1; competitionId <= COMPETITIONS; competitionId++) {
+            assertEquals(naive(competitionId, Long.MAX_VALUE, Long.MAX_VALUE), recovered.get(competitionId).ranked());
+        }
+    }
+
+    @Test
+    void recoverKeepsBoardsNewerThanTheLog() throws Exception {
+        // A board checkpointed after events the log lost must not be rolled back
+        long last = history.get(history.size() - 1).sequence();
+        LeaderboardEntry extra = new LeaderboardEntry(999_999, "late", 123);
+        CompetitionBoard ahead = LeaderboardReplay.replay(directory, 1, Long.MAX_VALUE, Long.MAX_VALUE, null).board();
+        ahead.putAll(List.of(extra));
+        ahead.markSequence(last + 10);
+
+        Map<Long, CompetitionBoard> recovered = LeaderboardReplay.recover(directory, Map.of(1L, ahead));
+        assertEquals(extra, recovered.get(1L).entry(extra.participantId()));
+        assertEquals(last + 10, recovered.get(1L).lastSequence());
+        assertNull(recovered.get(2L));
+
+        assertTrue(LeaderboardReplay.recover(directory.resolve("absent"), Map.of()).isEmpty());
+        assertEquals(Map.of(1L, ahead), LeaderboardReplay.recover(directory.resolve("absent"), Map.of(1L, ahead)));
+    }
+}
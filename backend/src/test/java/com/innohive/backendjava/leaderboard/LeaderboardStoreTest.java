@@ -0,0 +1,184 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.repository.LeaderboardRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the store against mocked database reads and a real event log: reconciling with the database must not
+ * roll live boards back, and every change it makes must be logged like any other.
+ */
+class LeaderboardStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final CompetitionRepository competitionRepository = mock(CompetitionRepository.class);
+    private final ParticipantArchive participantArchive = mock(ParticipantArchive.class);
+    private LeaderboardEventLog eventLog;
+    private LeaderboardStore store;
+
+    @BeforeEach
+    void open() throws Exception {
+        eventLog = new LeaderboardEventLog(directory.toString(), true, 1 << 20, 1, 1024, new SimpleMeterRegistry());
+        eventLog.open();
+        RankingPolicy policy = new RankingPolicy(List.of(), 0, 10, 0.5, 5.0, 3);
+        store = new LeaderboardStore(competitionRepository, participantArchive, policy, eventLog, 2);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        store.shutdown();
+        eventLog.close();
+    }
+
+    private static Competition competition(long id, String status) {
+        Competition c = new Competition();
+        c.setId(id);
+        c.setStatus(status);
+        return c;
+    }
+
+    private static LeaderboardRow row(long participantId, String roi) {
+        return new LeaderboardRow(participantId, "trader" + participantId, null, null, new BigDecimal(roi), null);
+    }
+
+    private <T> T onShard(long competitionId, Supplier<T> task) {
+        return store.shardFor(competitionId).submit(task).join();
+    }
+
+    private List<LeaderboardEvent> logged() throws Exception {
+        eventLog.close();
+        List<LeaderboardEvent> events = new ArrayList<>();
+        EventLogReader.scan(directory, 0, cursor -> events.add(cursor.toEvent()));
+        return events;
+    }
+
+    @Test
+    void reconcileKeepsLiveScoresAndOnlyAddsMissingParticipants() throws Exception {
+        when(participantArchive.rows(1L)).thenReturn(List.of(row(1, "1.00"), row(2, "2.00")));
+        CompetitionBoard board = store.loadAsync(1).join();
+
+        // A tick the write-behind has not flushed yet
+        LeaderboardEntry ticked = new LeaderboardEntry(1, "trader1", 5000);
+        onShard(1, () -> {
+            store.apply(board, List.of(ticked));
+            return null;
+        });
+        long version = board.version();
+
+        // An import added a participant; the database still has the old score
+        when(competitionRepository.findAll()).thenReturn(List.of(competition(1, "active")));
+        when(participantArchive.rows(1L)).thenReturn(List.of(row(1, "1.00"), row(2, "2.00"), row(3, "3.00")));
+        store.reconcile();
+
+        assertSame(board, store.get(1));
+        assertEquals(ticked, onShard(1, () -> board.entry(1)));
+        assertEquals(new LeaderboardEntry(3, "trader3", 300), onShard(1, () -> board.entry(3)));
+        assertEquals(version + 1, board.version());
+        // The join is pushed with the next frame, after the tick
+        assertEquals(List.of(ticked, new LeaderboardEntry(3, "trader3", 300)),
+                onShard(1, () -> store.shardFor(1).drainDeltas(1)));
+
+        // Nothing new: reconciling again changes nothing
+        store.reconcile();
+        assertEquals(version + 1, board.version());
+
+        List<LeaderboardEvent> events = logged();
+        assertEquals(2, events.size());
+        assertEquals(LeaderboardEvent.Type.SCORE, events.get(0).type());
+        assertEquals(LeaderboardEvent.Type.JOIN, events.get(1).type());
+        assertEquals(3, events.get(1).participantId());
+        assertEquals(events.get(1).sequence(), board.lastSequence());
+    }
+
+    @Test
+    void reconcileLoadsMissingBoardsAndDropsDeletedOnes() throws Exception {
+        when(participantArchive.rows(1L)).thenReturn(List.of(row(1, "1.00")));
+        when(participantArchive.rows(2L)).thenReturn(List.of(row(2, "2.00")));
+        when(participantArchive.rows(3L)).thenReturn(List.of(row(3, "3.00")));
+        CompetitionBoard deleted = store.loadAsync(1).join();
+        LeaderboardShard shard = store.shardFor(1);
+        CompetitionStats stats = onShard(1, () -> {
+            shard.bufferDeltas(1, List.of(new LeaderboardEntry(1, "trader1", 900)));
+            shard.publishStats(1, deleted.stats());
+            return deleted.stats();
+        });
+
+        // 1 was deleted, 2 is active, 3 finished and not asked for
+        when(competitionRepository.findAll()).thenReturn(List.of(competition(2, "active"),
+                competition(3, "finished")));
+        store.reconcile();
+
+        assertNull(store.get(1));
+        // Nothing of the deleted board is left on its shard
+        assertEquals(List.of(), onShard(1, () -> shard.drainDeltas(1)));
+        assertTrue(onShard(1, () -> shard.publishStats(1, stats)));
+        assertEquals(List.of(new LeaderboardEntry(2, "trader2", 200)), onShard(2, () -> store.get(2).ranked()));
+        assertNull(store.get(3));
+        // Loading a board is not a change to log
+        assertEquals(List.of(), logged());
+    }
+
+    @Test
+    void joinLandsAfterALoadThatReadBeforeItCommitted() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(participantArchive.rows(1L)).thenAnswer(invocation -> {
+            read.countDown();
+            release.await();
+            // Read before the join's insert committed
+            return List.of(row(1, "1.00"));
+        });
+        CompletableFuture<CompetitionBoard> load = store.loadAsync(1);
+        read.await();
+
+        LeaderboardEntry joined = new LeaderboardEntry(2, "trader2", 0);
+        CompletableFuture<Void> join = store.addParticipant(1, joined);
+        assertFalse(join.isDone());
+        release.countDown();
+        join.join();
+
+        CompetitionBoard board = load.join();
+        assertSame(board, store.get(1));
+        assertEquals(List.of(new LeaderboardEntry(1, "trader1", 100), joined), onShard(1, board::ranked));
+        assertEquals(List.of(joined), onShard(1, () -> store.shardFor(1).drainDeltas(1)));
+        List<LeaderboardEvent> events = logged();
+        assertEquals(1, events.size());
+        assertEquals(LeaderboardEvent.Type.JOIN, events.get(0).type());
+    }
+
+    @Test
+    void joinLoadsTheBoardAndSkipsParticipantsItAlreadyHas() throws Exception {
+        // The load ran after the join committed, so the board already has the participant
+        when(participantArchive.rows(1L)).thenReturn(List.of(row(1, "1.00"), row(2, "0.00")));
+        store.addParticipant(1, new LeaderboardEntry(2, "trader2", 0)).join();
+
+        CompetitionBoard board = store.get(1);
+        assertEquals(2, onShard(1, board::size));
+        assertEquals(List.of(), onShard(1, () -> store.shardFor(1).drainDeltas(1)));
+        assertEquals(List.of(), logged());
+    }
+}
@@ -0,0 +1,124 @@
+package com.innohive.backendjava.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the tree with a plain sorted set through random joins, score changes and departures, shaped like
+ * the per-metric trees {@link GlobalRanking} keeps: best score first, ties broken by name.
+ */
+class RankTreeTest {
+
+    private record Key(long score, String name) {
+        static final Comparator<Key> ORDER = Comparator.comparingLong(Key::score).reversed()
+                .thenComparing(Key::name);
+    }
+
+    private static void assertSameOrder(RankTree<Key> tree, TreeSet<Key> expected, Random random, String context) {
+        assertEquals(expected.size(), tree.size(), context);
+        List<Key> sorted = new ArrayList<>(expected);
+        int k = random.nextInt(sorted.size() + 5);
+        assertEquals(sorted.subList(0, Math.min(k, sorted.size())), tree.head(k), context + " head " + k);
+        for (int i = 0; i < 20 && !sorted.isEmpty(); i++) {
+            int index = random.nextInt(sorted.size());
+            assertEquals(index, tree.indexOf(sorted.get(index)), context);
+            assertEquals(sorted.get(index), tree.get(index), context);
+        }
+    }
+
+    @Test
+    void matchesASortedSetThroughRandomChanges() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            RankTree<Key> tree = new RankTree<>(Key.ORDER);
+            TreeSet<Key> expected = new TreeSet<>(Key.ORDER);
+            Map<String, Key> current = new HashMap<>();
+
+            for (int step = 0; step < 5000; step++) {
+                String context = "seed " + seed + " step " + step;
+                String name = "trader" + random.nextInt(600);
+                // Few distinct scores, so most comparisons fall through to the name
+                Key next = new Key(random.nextInt(50) - 25, name);
+                Key previous = current.get(name);
+                int action = random.nextInt(10);
+                if (previous != null && action < 2) {
+                    assertTrue(tree.remove(previous), context);
+                    expected.remove(previous);
+                    current.remove(name);
+                    assertEquals(-1, tree.indexOf(previous), context);
+                } else if (previous != null) {
+                    // A score change re-sorts just this trader
+                    assertTrue(tree.remove(previous), context);
+                    expected.remove(previous);
+                    tree.add(next);
+                    expected.add(next);
+                    current.put(name, next);
+                } else {
+                    assertFalse(tree.remove(next), context);
+                    tree.add(next);
+                    expected.add(next);
+                    current.put(name, next);
+                }
+                assertSameOrder(tree, expected, random, context);
+            }
+
+            List<Key> sorted = new ArrayList<>(expected);
+            for (int i = 0; i < sorted.size(); i++) {
+                assertEquals(i, tree.indexOf(sorted.get(i)), "seed " + seed);
+            }
+            assertEquals(sorted, tree.head(Integer.MAX_VALUE), "seed " + seed);
+        }
+    }
+
+    @Test
+    void handlesEmptyAndClearedTrees() {
+        RankTree<Key> tree = new RankTree<>(Key.ORDER);
+        Key alice = new Key(100, "alice");
+        assertEquals(0, tree.size());
+        assertEquals(List.of(), tree.head(3));
+        assertEquals(-1, tree.indexOf(alice));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(0));
+        assertFalse(tree.remove(alice));
+
+        tree.add(alice);
+        tree.add(new Key(100, "bob"));
+        tree.add(new Key(200, "carol"));
+        assertEquals(List.of(new Key(200, "carol"), alice), tree.head(2));
+        assertEquals(1, tree.indexOf(alice));
+        assertEquals(new Key(100, "bob"), tree.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(3));
+        assertEquals(List.of(), tree.head(0));
+
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertEquals(-1, tree.indexOf(alice));
+    }
+
+    @Test
+    void staysShallowOnSortedInsertions() {
+        // A plain binary search tree would degenerate into a list here; the recursive split and merge would
+        // then overflow the stack long before a million elements
+        RankTree<Key> tree = new RankTree<>(Key.ORDER);
+        int n = 1_000_000;
+        for (int i = 0; i < n; i++) {
+            tree.add(new Key(-i, "t"));
+        }
+        assertEquals(n, tree.size());
+        assertEquals(n - 1, tree.indexOf(new Key(-(n - 1), "t")));
+        assertTrue(tree.remove(new Key(-(n / 2), "t")));
+        assertEquals(n / 2, tree.indexOf(new Key(-(n / 2 + 1), "t")));
+        assertEquals(new Key(-(n / 2 + 1), "t"), tree.get(n / 2));
+    }
+}
@@ -0,0 +1,248 @@
+package com.innohive.backendjava.leaderboard;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * One row update per participant however often it changed, batches of {@code batch-size}, archived rows, the
+ * {@code max-pending} bound, and a failed flush retried without overwriting a newer ROI.
+ */
+class ScoreWriteBehindTest {
+
+    // Long enough that only shutdown drains, unless a test asks otherwise
+    private static final long NEVER = 60_000;
+
+    private final ParticipantArchive participantArchive = mock(ParticipantArchive.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Database database = new Database();
+
+    private ScoreWriteBehind writer(long flushMs, int batchSize, int maxPending) throws SQLException {
+        return new ScoreWriteBehind(database.dataSource(), participantArchive, meterRegistry, flushMs, batchSize,
+                maxPending);
+    }
+
+    private static LeaderboardEntry entry(long participantId, String roi) {
+        return new LeaderboardEntry(participantId, "p" + participantId, LeaderboardEntry.scale(new BigDecimal(roi)));
+    }
+
+    private static BigDecimal roi(String roi) {
+        return new BigDecimal(roi);
+    }
+
+    @Test
+    void writesOnlyTheLatestRoiPerParticipant() throws Exception {
+        database.live.put(1L, roi("0.00"));
+        database.live.put(2L, roi("0.00"));
+        ScoreWriteBehind writer = writer(NEVER, 500, 100);
+        for (int i = 1; i <= 10; i++) {
+            writer.write(List.of(entry(1, i + ".00")));
+        }
+        writer.write(List.of(entry(2, "7.50")));
+        assertEquals(0.02, writer.pressure(), 1e-9);
+
+        writer.shutdown();
+        assertEquals(roi("10.00"), database.live.get(1L));
+        assertEquals(roi("7.50"), database.live.get(2L));
+        assertEquals(List.of(2), database.liveBatches);
+        assertEquals(1, database.commits);
+        assertEquals(0.0, writer.pressure());
+        assertEquals(2.0, meterRegistry.counter("leaderboard.write-behind.written").count());
+    }
+
+    @Test
+    void splitsPendingChangesIntoBatches() throws Exception {
+        List<LeaderboardEntry> changed = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            database.live.put(id, roi("0.00"));
+            changed.add(entry(id, id + ".25"));
+        }
+        ScoreWriteBehind writer = writer(NEVER, 2, 100);
+        writer.write(changed);
+
+        writer.shutdown();
+        assertEquals(List.of(2, 2, 1), database.liveBatches);
+        assertEquals(3, database.commits);
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(roi(id + ".25"), database.live.get(id));
+        }
+    }
+
+    @Test
+    void updatesRowsArchivedWhileTheirWriteWasPending() throws Exception {
+        when(participantArchive.isEnabled()).thenReturn(true);
+        database.live.put(1L, roi("0.00"));
+        database.archived.put(2L, roi("0.00"));
+        ScoreWriteBehind writer = writer(NEVER, 500, 100);
+        // Participant 3 is gone entirely, as after its competition was deleted
+        writer.write(List.of(entry(1, "1.00"), entry(2, "2.00"), entry(3, "3.00")));
+
+        writer.shutdown();
+        assertEquals(roi("1.00"), database.live.get(1L));
+        assertEquals(roi("2.00"), database.archived.get(2L));
+        assertEquals(List.of(2), database.archivedBatches);
+        assertEquals(Map.of(1L, roi("1.00")), database.live);
+    }
+
+    @Test
+    void leavesTheArchiveAloneWhenItIsDisabled() throws Exception {
+        database.archived.put(2L, roi("0.00"));
+        ScoreWriteBehind writer = writer(NEVER, 500, 100);
+        writer.write(List.of(entry(2, "2.00")));
+
+        writer.shutdown();
+        assertEquals(roi("0.00"), database.archived.get(2L));
+        assertTrue(database.archivedBatches.isEmpty());
+        assertEquals(1, database.commits);
+    }
+
+    @Test
+    void dropsNewParticipantsPastMaxPending() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            database.live.put(id, roi("0.00"));
+        }
+        ScoreWriteBehind writer = writer(NEVER, 500, 2);
+        writer.write(List.of(entry(1, "1.00"), entry(2, "2.00"), entry(3, "3.00")));
+        assertEquals(1.0, writer.pressure());
+        // A participant already pending still takes its newer value
+        writer.write(List.of(entry(1, "1.50")));
+        assertEquals(1.0, meterRegistry.counter("leaderboard.write-behind.dropped").count());
+
+        writer.shutdown();
+        assertEquals(roi("1.50"), database.live.get(1L));
+        assertEquals(roi("2.00"), database.live.get(2L));
+        assertEquals(roi("0.00"), database.live.get(3L));
+        assertEquals(0.0, writer.pressure());
+    }
+
+    @Test
+    void retriesAFailedFlushWithoutOverwritingNewerValues() throws Exception {
+        database.live.put(1L, roi("0.00"));
+        database.live.put(2L, roi("0.00"));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch newerWritten = new CountDownLatch(1);
+        database.failNextCommit = () -> {
+            flushing.countDown();
+            newerWritten.await(5, TimeUnit.SECONDS);
+            throw new SQLException("connection reset");
+        };
+        ScoreWriteBehind writer = writer(20, 500, 100);
+        writer.write(List.of(entry(1, "1.00"), entry(2, "2.00")));
+
+        // While the first flush fails, participant 1 changes again
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        writer.write(List.of(entry(1, "5.00")));
+        newerWritten.countDown();
+
+        writer.shutdown();
+        assertEquals(roi("5.00"), database.live.get(1L));
+        assertEquals(roi("2.00"), database.live.get(2L));
+        assertEquals(1, database.rollbacks);
+        assertEquals(0.0, writer.pressure());
+    }
+
+    /**
+     * The two participant tables behind mocked JDBC. Updates are staged per connection and only land on commit,
+     * so a rolled-back batch leaves no trace.
+     */
+    private static final class Database {
+
+        interface Step {
+            void run() throws Exception;
+        }
+
+        final Map<Long, BigDecimal> live = new HashMap<>();
+        final Map<Long, BigDecimal> archived = new HashMap<>();
+        final List<Integer> liveBatches = new ArrayList<>();
+        final List<Integer> archivedBatches = new ArrayList<>();
+        int commits;
+        int rollbacks;
+        volatile Step failNextCommit;
+
+        DataSource dataSource() throws SQLException {
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenAnswer(invocation -> connection());
+            return dataSource;
+        }
+
+        private Connection connection() throws SQLException {
+            Connection connection = mock(Connection.class);
+            Map<Long, BigDecimal> stagedLive = new HashMap<>();
+            Map<Long, BigDecimal> stagedArchived = new HashMap<>();
+            when(connection.getAutoCommit()).thenReturn(true);
+            doAnswer(invocation -> null).when(connection).setAutoCommit(anyBoolean());
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                boolean toArchive = invocation.<String>getArgument(0).contains("participants_archive");
+                return toArchive
+                        ? statement(archived, stagedArchived, archivedBatches)
+                        : statement(live, stagedLive, liveBatches);
+            });
+            doAnswer(invocation -> {
+                Step failure = failNextCommit;
+                if (failure != null) {
+                    failNextCommit = null;
+                    failure.run();
+                }
+                live.putAll(stagedLive);
+                archived.putAll(stagedArchived);
+                commits++;
+                return null;
+            }).when(connection).commit();
+            doAnswer(invocation -> {
+                stagedLive.clear();
+                stagedArchived.clear();
+                rollbacks++;
+                return null;
+            }).when(connection).rollback();
+            return connection;
+        }
+
+        private static PreparedStatement statement(Map<Long, BigDecimal> table, Map<Long, BigDecimal> staged,
+                                                   List<Integer> batches) throws SQLException {
+            PreparedStatement statement = mock(PreparedStatement.class);
+            BigDecimal[] roi = new BigDecimal[1];
+            long[] id = new long[1];
+            List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>();
+            doAnswer(invocation -> roi[0] = invocation.getArgument(1))
+                    .when(statement).setBigDecimal(anyInt(), any());
+            doAnswer(invocation -> id[0] = invocation.getArgument(1)).when(statement).setLong(anyInt(), anyLong());
+            doAnswer(invocation -> rows.add(Map.entry(id[0], roi[0]))).when(statement).addBatch();
+            when(statement.executeBatch()).thenAnswer(invocation -> {
+                batches.add(rows.size());
+                int[] counts = new int[rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    Map.Entry<Long, BigDecimal> row = rows.get(i);
+                    if (table.containsKey(row.getKey())) {
+                        staged.put(row.getKey(), row.getValue());
+                        counts[i] = 1;
+                    }
+                }
+                return counts;
+            });
+            return statement;
+        }
+    }
+}
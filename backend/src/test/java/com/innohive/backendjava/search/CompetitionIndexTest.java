@@ -0,0 +1,246 @@
+package com.innohive.backendjava.search;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.model.Competition;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs random queries against the index and against a brute-force filter and sort over the same competitions.
+ * Dates lie whole hours away from now, so the status of every competition is the same for both.
+ */
+class CompetitionIndexTest {
+
+    private static final String[] WORDS = {"Gold", "Golden", "goal", "Cup", "cup", "Crypto", "FX", "fx-Sprint",
+            "Sprint", "2024", "Zürich", "Über", "Weekly", "weekend", "Alpha", "alpha-beta", "Ω-Omega"};
+
+    private final Random random = new Random(20240101);
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private List<Competition> competitions(int n) {
+        List<Competition> all = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Competition c = new Competition();
+            c.setId((long) (i * 3 + 1 + random.nextInt(3)));
+            if (random.nextInt(50) > 0) {
+                StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+                for (int w = random.nextInt(3); w > 0; w--) {
+                    name.append(random.nextBoolean() ? " " : " - ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                c.setName(name.toString());
+            }
+            c.setEntryFee(BigDecimal.valueOf(random.nextInt(40) * 25L + (random.nextBoolean() ? 0 : 1), 2));
+            c.setPrizePool(BigDecimal.valueOf(random.nextInt(2_000_000), 2));
+            int startHours = random.nextInt(24 * 60) - 24 * 30;
+            if (startHours == 0) {
+                startHours = 1;
+            }
+            int endHours = startHours + 1 + random.nextInt(24 * 10);
+            if (endHours == 0) {
+                endHours = 1;
+            }
+            c.setStartDate(now.plusHours(startHours));
+            c.setEndDate(now.plusHours(endHours));
+            all.add(c);
+        }
+        // The index must not depend on the order the repository returns
+        Collections.shuffle(all, random);
+        return all;
+    }
+
+    private static CompetitionIndex index(List<Competition> competitions) {
+        CompetitionRepository repository = mock(CompetitionRepository.class);
+        ParticipantArchive archive = mock(ParticipantArchive.class);
+        when(repository.findAll()).thenReturn(competitions);
+        when(archive.countAll()).thenReturn(Map.of());
+        CompetitionIndex index = new CompetitionIndex(repository, archive);
+        index.rebuild();
+        return index;
+    }
+
+    private String status(Competition c) {
+        if (!c.getEndDate().isAfter(now)) {
+            return "finished";
+        }
+        return c.getStartDate().isAfter(now) ? "not_started" : "active";
+    }
+
+    private static String lower(Competition c) {
+        return c.getName() != null ? c.getName().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static boolean nameMatches(Competition c, String prefix) {
+        String name = lower(c);
+        for (int at = 0; at < name.length(); at++) {
+            boolean wordStart = Character.isLetterOrDigit(name.charAt(at))
+                    && (at == 0 || !Character.isLetterOrDigit(name.charAt(at - 1)));
+            if (wordStart && name.startsWith(prefix, at)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean within(BigDecimal value, BigDecimal min, BigDecimal max) {
+        return (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+    }
+
+    private static boolean within(LocalDateTime value, LocalDateTime min, LocalDateTime max) {
+        return (min == null || !value.isBefore(min)) && (max == null || !value.isAfter(max));
+    }
+
+    private Comparator<Competition> order(CompetitionQuery.Sort sort) {
+        Comparator<Competition> byName = Comparator.comparing(CompetitionIndexTest::lower);
+        Comparator<Competition> primary = switch (sort) {
+            case STATUS -> Comparator.comparingInt((Competition c) -> switch (status(c)) {
+                case "active" -> 0;
+                case "not_started" -> 1;
+                default -> 2;
+            }).thenComparing(byName);
+            case NAME -> byName;
+            case ENTRY_FEE -> Comparator.comparing(Competition::getEntryFee);
+            case PRIZE_POOL -> Comparator.comparing(Competition::getPrizePool);
+            case START -> Comparator.comparing(Competition::getStartDate);
+            case END -> Comparator.comparing(Competition::getEndDate);
+        };
+        return primary.thenComparing(Competition::getId);
+    }
+
+    private List<Competition> bruteForce(List<Competition> all, CompetitionQuery q) {
+        String prefix = q.name() != null && !q.name().isBlank() ? q.name().strip().toLowerCase(Locale.ROOT) : null;
+        List<Competition> matches = new ArrayList<>(all.stream()
+                .filter(c -> q.status() == null || q.status().equals(status(c)))
+                .filter(c -> within(c.getEntryFee(), q.minEntryFee(), q.maxEntryFee()))
+                .filter(c -> within(c.getPrizePool(), q.minPrizePool(), q.maxPrizePool()))
+                .filter(c -> within(c.getStartDate(), q.startsAfter(), q.startsBefore()))
+                .filter(c -> within(c.getEndDate(), q.endsAfter(), q.endsBefore()))
+                .filter(c -> prefix == null || nameMatches(c, prefix))
+                .sorted(order(q.sort()))
+                .toList());
+        if (q.descending()) {
+            Collections.reverse(matches);
+        }
+        return matches;
+    }
+
+    // Half the time a value some competition has, so inclusive bounds are hit exactly
+    private <T> T bound(List<Competition> all, Function<Competition, T> field, T other) {
+        int roll = random.nextInt(4);
+        if (roll == 0) {
+            return field.apply(all.get(random.nextInt(all.size())));
+        }
+        return roll == 1 ? other : null;
+    }
+
+    private CompetitionQuery randomQuery(List<Competition> all) {
+        String[] statuses = {null, null, "active", "not_started", "finished"};
+        String name = null;
+        if (random.nextInt(3) == 0) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            name = word.substring(0, 1 + random.nextInt(word.length()));
+            if (random.nextInt(4) == 0) {
+                name = " " + name.toUpperCase(Locale.ROOT) + " ";
+            } else if (random.nextInt(6) == 0) {
+                // Across a word boundary
+                name = word + " " + WORDS[random.nextInt(WORDS.length)].substring(0, 1);
+            }
+        }
+        CompetitionQuery.Sort sort = CompetitionQuery.Sort.values()[random.nextInt(CompetitionQuery.Sort.values().length)];
+        int size = 1 + random.nextInt(25);
+        return new CompetitionQuery(
+                statuses[random.nextInt(statuses.length)],
+                bound(all, Competition::getEntryFee, new BigDecimal("2.505")),
+                bound(all, Competition::getEntryFee, new BigDecimal("7.499")),
+                bound(all, Competition::getPrizePool, new BigDecimal("5000.001")),
+                bound(all, Competition::getPrizePool, new BigDecimal("15000")),
+                bound(all, Competition::getStartDate, now.minusDays(3)),
+                bound(all, Competition::getStartDate, now.plusDays(3)),
+                bound(all, Competition::getEndDate, now),
+                bound(all, Competition::getEndDate, now.plusDays(20)),
+                name,
+                sort,
+                random.nextBoolean(),
+                random.nextInt(4) == 0 ? random.nextInt(40) : random.nextInt(3),
+                size);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomQueries() {
+        List<Competition> all = competitions(800);
+        CompetitionIndex index = index(all);
+        int sparse = 0;
+        int dense = 0;
+        for (int i = 0; i < 3000; i++) {
+            CompetitionQuery q = randomQuery(all);
+            List<Competition> expected = bruteForce(all, q);
+            CompetitionIndex.Result result = index.search(q);
+            String context = "query " + i + ": " + q;
+            assertEquals(expected.size(), result.total(), context);
+            int from = Math.min(expected.size(), q.page() * q.size());
+            List<Long> expectedIds = expected.subList(from, Math.min(expected.size(), from + q.size())).stream()
+                    .map(Competition::getId).toList();
+            assertEquals(expectedIds, result.competitions().stream().map(Competition::getId).toList(), context);
+            if (expected.size() * 8 < all.size()) {
+                sparse++;
+            } else {
+                dense++;
+            }
+        }
+        // Both paging strategies were exercised
+        assertTrue(sparse > 300 && dense > 300, "sparse " + sparse + ", dense " + dense);
+    }
+
+    @Test
+    void walksEveryPageOfEveryOrder() {
+        List<Competition> all = competitions(300);
+        CompetitionIndex index = index(all);
+        for (CompetitionQuery.Sort sort : CompetitionQuery.Sort.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                for (String status : new String[]{null, "active", "not_started", "finished"}) {
+                    CompetitionQuery first = new CompetitionQuery(status, null, null, null, null, null, null, null,
+                            null, null, sort, descending, 0, 7);
+                    List<Long> expected = bruteForce(all, first).stream().map(Competition::getId).toList();
+                    List<Long> paged = new ArrayList<>();
+                    for (int page = 0; page * 7 < expected.size() + 7; page++) {
+                        CompetitionQuery q = new CompetitionQuery(status, null, null, null, null, null, null, null,
+                                null, null, sort, descending, page, 7);
+                        index.search(q).competitions().forEach(c -> paged.add(c.getId()));
+                    }
+                    assertEquals(expected, paged, sort + " " + descending + " " + status);
+                }
+            }
+        }
+    }
+
+    @Test
+    void handlesEmptyIndexesAndUnknownStatuses() {
+        CompetitionIndex empty = index(List.of());
+        CompetitionQuery q = new CompetitionQuery("active", null, null, null, null, null, null, null, null, "gold",
+                CompetitionQuery.Sort.STATUS, false, 0, 10);
+        assertEquals(0, empty.search(q).total());
+        assertTrue(empty.search(q).competitions().isEmpty());
+
+        CompetitionIndex index = index(competitions(20));
+        CompetitionQuery unknown = new CompetitionQuery("paused", null, null, null, null, null, null, null, null,
+                null, CompetitionQuery.Sort.NAME, false, 0, 10);
+        assertThrows(IllegalArgumentException.class, () -> index.search(unknown));
+    }
+}
@@ -0,0 +1,195 @@
+package com.innohive.backendjava.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claims, completions and give-ups of flights, expiry after the TTL and least-recently-used eviction, and one
+ * owner per key however many threads claim it at once.
+ */
+class IdempotencyCacheTest {
+
+    private static final byte[] DIGEST = {1, 2, 3};
+
+    private static IdempotencyCache cache(long ttlMs, int maxEntries) {
+        return new IdempotencyCache(new SimpleMeterRegistry(), true, ttlMs, maxEntries, 16);
+    }
+
+    private static IdempotencyCache.Flight flight(String key) {
+        return new IdempotencyCache.Flight(key, DIGEST);
+    }
+
+    private static IdempotencyCache.StoredResponse response(int status, String body) {
+        return new IdempotencyCache.StoredResponse(status, Map.of(), body.getBytes());
+    }
+
+    @Test
+    void firstClaimOwnsTheKeyAndLaterOnesShareItsResponse() throws Exception {
+        IdempotencyCache cache = cache(60_000, 10);
+        IdempotencyCache.Flight original = flight("a");
+        assertNull(cache.claim(original));
+        assertSame(original, cache.claim(flight("a")));
+        assertNull(cache.claim(flight("b")));
+        assertEquals(2, cache.size());
+
+        IdempotencyCache.StoredResponse stored = response(200, "ok");
+        cache.complete(original, stored);
+        IdempotencyCache.Flight replayed = cache.claim(flight("a"));
+        assertSame(original, replayed);
+        assertSame(stored, replayed.response().get(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void sameBodyComparesDigests() {
+        IdempotencyCache.Flight original = flight("a");
+        assertTrue(original.sameBody(new IdempotencyCache.Flight("a", new byte[]{1, 2, 3})));
+        assertFalse(original.sameBody(new IdempotencyCache.Flight("a", new byte[]{1, 2, 4})));
+        assertFalse(original.sameBody(new IdempotencyCache.Flight("a", new byte[]{1, 2})));
+    }
+
+    @Test
+    void abandonFreesTheKeyAndFailsTheWaiters() {
+        IdempotencyCache cache = cache(60_000, 10);
+        IdempotencyCache.Flight original = flight("a");
+        cache.claim(original);
+        IdempotencyCache.Flight waiting = cache.claim(flight("a"));
+
+        cache.abandon(original);
+        assertThrows(CancellationException.class, () -> waiting.response().get());
+        assertEquals(0, cache.size());
+        IdempotencyCache.Flight retry = flight("a");
+        assertNull(cache.claim(retry));
+
+        // Giving up a flight that already answered changes nothing
+        cache.complete(retry, response(200, "ok"));
+        cache.abandon(retry);
+        assertSame(retry, cache.claim(flight("a")));
+        assertFalse(retry.response().isCompletedExceptionally());
+    }
+
+    @Test
+    void abandoningAStaleFlightKeepsItsSuccessor() {
+        IdempotencyCache cache = cache(60_000, 10);
+        IdempotencyCache.Flight first = flight("a");
+        cache.claim(first);
+        cache.abandon(first);
+        IdempotencyCache.Flight second = flight("a");
+        assertNull(cache.claim(second));
+        // A late give-up of the first flight must not free the key the second one owns
+        cache.abandon(first);
+        assertSame(second, cache.claim(flight("a")));
+    }
+
+    @Test
+    void serverErrorsAndLargeBodiesReachWaitersButAreNotKept() throws Exception {
+        IdempotencyCache cache = cache(60_000, 10);
+        for (IdempotencyCache.StoredResponse unkept : List.of(response(503, "down"),
+                response(200, "x".repeat(17)))) {
+            IdempotencyCache.Flight original = flight("a");
+            assertNull(cache.claim(original));
+            IdempotencyCache.Flight waiting = cache.claim(flight("a"));
+            cache.complete(original, unkept);
+            assertSame(unkept, waiting.response().get(0, TimeUnit.MILLISECONDS));
+            assertEquals(0, cache.size());
+        }
+        // A body exactly at the limit is kept
+        IdempotencyCache.Flight original = flight("a");
+        cache.claim(original);
+        cache.complete(original, response(200, "x".repeat(16)));
+        assertSame(original, cache.claim(flight("a")));
+    }
+
+    @Test
+    void storedResponsesExpireAfterTheTtl() throws Exception {
+        // The TTL is at least a second
+        IdempotencyCache cache = cache(1, 10);
+        IdempotencyCache.Flight running = flight("running");
+        IdempotencyCache.Flight done = flight("done");
+        cache.claim(running);
+        cache.claim(done);
+        cache.complete(done, response(200, "ok"));
+        assertSame(done, cache.claim(flight("done")));
+
+        Thread.sleep(1100);
+        // A running flight never expires; an expired one is replaced on claim and swept otherwise
+        assertSame(running, cache.claim(flight("running")));
+        cache.evictExpired();
+        assertEquals(1, cache.size());
+        IdempotencyCache.Flight again = flight("done");
+        assertNull(cache.claim(again));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedKey() {
+        IdempotencyCache cache = cache(60_000, 2);
+        IdempotencyCache.Flight a = flight("a");
+        cache.claim(a);
+        cache.claim(flight("b"));
+        // Touching a makes b the eldest
+        assertSame(a, cache.claim(flight("a")));
+        cache.claim(flight("c"));
+
+        assertEquals(2, cache.size());
+        assertSame(a, cache.claim(flight("a")));
+        assertNull(cache.claim(flight("b")));
+    }
+
+    @Test
+    void concurrentClaimsHaveOneOwner() throws Exception {
+        IdempotencyCache cache = cache(60_000, 100);
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                String key = "k" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<IdempotencyCache.Flight>> claims = new ArrayList<>();
+                List<IdempotencyCache.Flight> flights = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    IdempotencyCache.Flight f = flight(key);
+                    flights.add(f);
+                    claims.add(pool.submit(() -> {
+                        start.await();
+                        return cache.claim(f);
+                    }));
+                }
+                start.countDown();
+                IdempotencyCache.Flight owner = null;
+                List<IdempotencyCache.Flight> seen = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    IdempotencyCache.Flight existing = claims.get(t).get(5, TimeUnit.SECONDS);
+                    if (existing == null) {
+                        assertNull(owner, "round " + round + ": two owners");
+                        owner = flights.get(t);
+                    } else {
+                        seen.add(existing);
+                    }
+                }
+                assertTrue(owner != null, "round " + round + ": no owner");
+                for (IdempotencyCache.Flight existing : seen) {
+                    assertSame(owner, existing, "round " + round);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
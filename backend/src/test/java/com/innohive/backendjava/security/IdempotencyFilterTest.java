@@ -0,0 +1,287 @@
+package com.innohive.backendjava.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the filter on mock requests: an original held inside its handler by a latch, and duplicates that arrive
+ * meanwhile. A waiting duplicate must go async rather than block, and be answered by the original's response,
+ * by its own timeout, or by running itself after the original gave up.
+ */
+class IdempotencyFilterTest {
+
+    private static final long WAIT_MS = 5000;
+
+    private final IdempotencyCache cache = new IdempotencyCache(new SimpleMeterRegistry(), true, 60_000, 100, 1024);
+    private final IdempotencyFilter filter = new IdempotencyFilter(cache, new SimpleMeterRegistry(), WAIT_MS, 1024);
+    private final ExecutorService originals = Executors.newCachedThreadPool();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void stop() {
+        originals.shutdownNow();
+    }
+
+    private static MockHttpServletRequest join(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/competitions/1/join");
+        request.setRemoteAddr("10.0.0.1");
+        request.setAsyncSupported(true);
+        request.setContentType("application/json");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    // Echoes the body it was given, with the number of the run
+    private FilterChain handler(CountDownLatch release, boolean fail) {
+        return (request, response) -> {
+            int run = runs.incrementAndGet();
+            String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                throw new IllegalStateException("original failed");
+            }
+            ((HttpServletResponse) response).setStatus(201);
+            response.setContentType("text/plain");
+            response.getWriter().write("run " + run + ": " + body);
+        };
+    }
+
+    // Starts the original on its own thread and waits until it is inside the handler
+    private Future<MockHttpServletResponse> startOriginal(MockHttpServletRequest request, CountDownLatch release,
+                                                         boolean fail) throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        FilterChain chain = handler(release, fail);
+        Future<MockHttpServletResponse> original = originals.submit(() -> {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> {
+                entered.countDown();
+                chain.doFilter(req, res);
+            });
+            return response;
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return original;
+    }
+
+    @Test
+    void duplicateWaitsAsynchronouslyForTheOriginalsResponse() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<MockHttpServletResponse> original = startOriginal(join("k1", "{\"a\":1}"), release, false);
+
+        MockHttpServletRequest duplicate = join("k1", "{\"a\":1}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(duplicate, response, handler(new CountDownLatch(0), false));
+
+        // Returned at once, with the container thread free; nothing written yet
+        assertTrue(duplicate.isAsyncStarted());
+        assertEquals(WAIT_MS, duplicate.getAsyncContext().getTimeout());
+        assertEquals("", response.getContentAsString());
+
+        release.countDown();
+        assertEquals("run 1: {\"a\":1}", original.get(5, TimeUnit.SECONDS).getContentAsString());
+        assertFalse(duplicate.isAsyncStarted());
+        assertEquals(201, response.getStatus());
+        assertEquals("run 1: {\"a\":1}", response.getContentAsString());
+        assertEquals("true", response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void duplicateGets409WhenTheWaitTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<MockHttpServletResponse> original = startOriginal(join("k2", "{}"), release, false);
+
+        MockHttpServletRequest duplicate = join("k2", "{}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(duplicate, response, handler(new CountDownLatch(0), false));
+        MockAsyncContext async = (MockAsyncContext) duplicate.getAsyncContext();
+
+        // What the container does once the async timeout passes
+        for (AsyncListener listener : async.getListeners()) {
+            listener.onTimeout(new AsyncEvent(async));
+        }
+        assertEquals(409, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        String timedOut = response.getContentAsString();
+
+        // The original finishing later does not write over the answer
+        release.countDown();
+        assertEquals(201, original.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(409, response.getStatus());
+        assertEquals(timedOut, response.getContentAsString());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void duplicateRunsItselfWhenTheOriginalGivesUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<MockHttpServletResponse> original = startOriginal(join("k3", "{\"b\":2}"), release, true);
+
+        MockHttpServletRequest duplicate = join("k3", "{\"b\":2}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(duplicate, response, handler(new CountDownLatch(0), false));
+        MockAsyncContext async = (MockAsyncContext) duplicate.getAsyncContext();
+        CompletableFuture<Void> dispatched = new CompletableFuture<>();
+        async.addDispatchHandler(() -> dispatched.complete(null));
+
+        release.countDown();
+        Exception failure = assertThrows(Exception.class, () -> original.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException, failure.toString());
+        dispatched.get(5, TimeUnit.SECONDS);
+        assertEquals("/api/competitions/1/join", async.getDispatchedPath());
+
+        // The container dispatches the request again; its body was already read and must be served again
+        duplicate.setAsyncStarted(false);
+        duplicate.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(duplicate, response, handler(new CountDownLatch(0), false));
+        assertEquals(201, response.getStatus());
+        assertEquals("run 2: {\"b\":2}", response.getContentAsString());
+        assertEquals(2, runs.get());
+
+        // The retry now owns the key; the next duplicate gets its response
+        MockHttpServletResponse later = new MockHttpServletResponse();
+        filter.doFilter(join("k3", "{\"b\":2}"), later, handler(new CountDownLatch(0), false));
+        assertEquals("run 2: {\"b\":2}", later.getContentAsString());
+        assertEquals("true", later.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void duplicateOfAFinishedRequestIsAnsweredWithoutGoingAsync() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(join("k4", "{}"), first, handler(new CountDownLatch(0), false));
+        assertEquals(201, first.getStatus());
+
+        MockHttpServletRequest duplicate = join("k4", "{}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(duplicate, response, handler(new CountDownLatch(0), false));
+        assertFalse(duplicate.isAsyncStarted());
+        assertEquals("run 1: {}", response.getContentAsString());
+        assertEquals("true", response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRefused() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<MockHttpServletResponse> original = startOriginal(join("k5", "{\"a\":1}"), release, false);
+
+        // Refused while the original runs, and after it finished
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest other = join("k5", "{\"a\":2}");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(other, response, handler(new CountDownLatch(0), false));
+            assertFalse(other.isAsyncStarted());
+            assertEquals(422, response.getStatus());
+            release.countDown();
+            original.get(5, TimeUnit.SECONDS);
+        }
+
+        MockHttpServletRequest otherQuery = join("k5", "{\"a\":1}");
+        otherQuery.setQueryString("force=true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(otherQuery, response, handler(new CountDownLatch(0), false));
+        assertEquals(422, response.getStatus());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void formRequestsAreComparedByTheirParameters() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(form("k6", "a", "1", "b", "2"), first, handler(new CountDownLatch(0), false));
+        assertEquals(201, first.getStatus());
+
+        // Same parameters in another order replay; another value is a different request
+        MockHttpServletResponse same = new MockHttpServletResponse();
+        filter.doFilter(form("k6", "b", "2", "a", "1"), same, handler(new CountDownLatch(0), false));
+        assertEquals("true", same.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        MockHttpServletResponse different = new MockHttpServletResponse();
+        filter.doFilter(form("k6", "a", "1", "b", "3"), different, handler(new CountDownLatch(0), false));
+        assertEquals(422, different.getStatus());
+        assertEquals(1, runs.get());
+    }
+
+    private static MockHttpServletRequest form(String key, String... parameters) {
+        MockHttpServletRequest request = join(key, "");
+        request.setContentType("application/x-www-form-urlencoded");
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+
+    @Test
+    void refusesOversizedBodiesAndMalformedKeys() throws Exception {
+        MockHttpServletResponse tooLarge = new MockHttpServletResponse();
+        filter.doFilter(join("k7", "x".repeat(1025)), tooLarge, handler(new CountDownLatch(0), false));
+        assertEquals(413, tooLarge.getStatus());
+
+        MockHttpServletResponse atLimit = new MockHttpServletResponse();
+        filter.doFilter(join("k7", "x".repeat(1024)), atLimit, handler(new CountDownLatch(0), false));
+        assertEquals(201, atLimit.getStatus());
+
+        for (String key : new String[]{" ", "k".repeat(256)}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(join(key, "{}"), response, handler(new CountDownLatch(0), false));
+            assertEquals(400, response.getStatus());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void leavesOtherRequestsAlone() throws Exception {
+        MockHttpServletRequest read = join("k8", "");
+        read.setMethod("GET");
+        MockHttpServletRequest outsideApi = join("k8", "{}");
+        outsideApi.setRequestURI("/ws");
+        MockHttpServletRequest withoutKey = new MockHttpServletRequest("POST", "/api/competitions/1/join");
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{read, read, outsideApi, outsideApi,
+                withoutKey, withoutKey}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, handler(new CountDownLatch(0), false));
+            assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        }
+        assertEquals(6, runs.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void keysAreScopedToTheClient() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(join("k9", "{}"), first, handler(new CountDownLatch(0), false));
+        MockHttpServletRequest otherClient = join("k9", "{}");
+        otherClient.setRemoteAddr("10.0.0.2");
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(otherClient, second, handler(new CountDownLatch(0), false));
+        assertEquals("run 2: {}", second.getContentAsString());
+        assertNull(second.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+}
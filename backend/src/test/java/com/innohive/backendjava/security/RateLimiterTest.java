@@ -0,0 +1,124 @@
+package com.innohive.backendjava.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Burst size, refill, independence of budgets and clients, and exactly {@code capacity} grants when many threads
+ * race for the same bucket.
+ */
+class RateLimiterTest {
+
+    // Login: 5 at once, then one per 10 ms; join: 3 at once, then one a minute
+    private static RateLimiter limiter(boolean enabled) {
+        return new RateLimiter(enabled, 5, 6000, 3, 1, 100, 1, 2, 1);
+    }
+
+    private static int granted(RateLimiter limiter, RateLimitBudget budget, String client, int attempts) {
+        int granted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(budget, client) == 0) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+
+    @Test
+    void grantsTheBurstThenReportsTheWait() {
+        RateLimiter limiter = limiter(true);
+        assertEquals(3, granted(limiter, RateLimitBudget.JOIN, "user:alice", 10));
+        long wait = limiter.tryAcquire(RateLimitBudget.JOIN, "user:alice");
+        // One token a minute; most of that minute is still ahead
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(50) && wait <= TimeUnit.MINUTES.toNanos(1), "wait " + wait);
+        assertEquals(60, RateLimiter.retryAfterSeconds(wait), 1);
+    }
+
+    @Test
+    void budgetsAndClientsAreIndependent() {
+        RateLimiter limiter = limiter(true);
+        assertEquals(3, granted(limiter, RateLimitBudget.JOIN, "user:alice", 10));
+        assertEquals(3, granted(limiter, RateLimitBudget.JOIN, "user:bob", 10));
+        assertEquals(3, granted(limiter, RateLimitBudget.JOIN, "ip:10.0.0.1", 10));
+        assertEquals(5, granted(limiter, RateLimitBudget.LOGIN, "user:alice", 5));
+        assertEquals(2, granted(limiter, RateLimitBudget.SOCKET_CONNECT, "user:alice", 10));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() throws Exception {
+        RateLimiter limiter = limiter(true);
+        assertEquals(5, granted(limiter, RateLimitBudget.LOGIN, "ip:1", 5));
+        long wait = limiter.tryAcquire(RateLimitBudget.LOGIN, "ip:1");
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(10), "wait " + wait);
+
+        TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(0, limiter.tryAcquire(RateLimitBudget.LOGIN, "ip:1"));
+
+        // Idle long enough, the bucket is full again, but never holds more than the burst
+        Thread.sleep(80);
+        assertEquals(5, granted(limiter, RateLimitBudget.LOGIN, "ip:1", 10));
+    }
+
+    @Test
+    void evictingIdleBucketsKeepsExhaustedOnes() throws Exception {
+        RateLimiter limiter = limiter(true);
+        assertEquals(3, granted(limiter, RateLimitBudget.JOIN, "user:alice", 3));
+        assertEquals(5, granted(limiter, RateLimitBudget.LOGIN, "user:alice", 5));
+        Thread.sleep(80);
+        limiter.evictIdleBuckets();
+        assertTrue(limiter.tryAcquire(RateLimitBudget.JOIN, "user:alice") > 0);
+        assertEquals(5, granted(limiter, RateLimitBudget.LOGIN, "user:alice", 10));
+    }
+
+    @Test
+    void disabledLimiterGrantsEverything() {
+        assertEquals(1000, granted(limiter(false), RateLimitBudget.JOIN, "user:alice", 1000));
+    }
+
+    @Test
+    void racingThreadsShareOneBurst() throws Exception {
+        // 100 at once, then one a minute: the whole race fits inside the burst
+        RateLimiter limiter = limiter(true);
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String client = "ip:" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        return granted(limiter, RateLimitBudget.READ, client, 50);
+                    }));
+                }
+                start.countDown();
+                int total = 0;
+                for (Future<Integer> result : results) {
+                    total += result.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(100, total, "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void roundsRetryAfterUpToWholeSeconds() {
+        assertEquals(1, RateLimiter.retryAfterSeconds(0));
+        assertEquals(1, RateLimiter.retryAfterSeconds(1));
+        assertEquals(1, RateLimiter.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1)));
+        assertEquals(2, RateLimiter.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1) + 1));
+    }
+}
@@ -0,0 +1,285 @@
+package com.innohive.backendjava.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CopyValidationTest {
+
+    // As written by COPY participants (...) TO STDOUT WITH (FORMAT csv, HEADER true)
+    private static final String PARTICIPANTS_CSV = """
+            id,competition_id,user_id,joined_at,roi
+            1,1,1,2024-01-31 12:00:00.5+00,12.50
+            2,1,2,2024-02-01 08:30:00+00,-3.25
+            3,2,1,,
+            """;
+
+    // Quoted fields with separators, doubled quotes, line breaks and multi-byte text; an empty unquoted field is NULL
+    private static final String USERS_CSV = """
+            id,username,password,first_name,last_name\r
+            1,alice,$2a$10$abc,"Smith, Jr.","O""Neil"\r
+            2,bob,$2a$10$def,"two
+            lines",\r
+            3,zoë,$2a$10$ghi,Zoë,""\r
+            """;
+
+    private static long csv(TransferTable table, String content, ByteArrayOutputStream out) throws IOException {
+        return CopyValidation.csv(table, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), out);
+    }
+
+    private static String csvError(TransferTable table, String content) {
+        return assertThrows(IllegalArgumentException.class,
+                () -> csv(table, content, new ByteArrayOutputStream())).getMessage();
+    }
+
+    @Test
+    void passesCopyCsvThroughUnchanged() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, csv(TransferTable.PARTICIPANTS, PARTICIPANTS_CSV, out));
+        assertEquals(PARTICIPANTS_CSV, out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        assertEquals(3, csv(TransferTable.USERS, USERS_CSV, out));
+        assertEquals(USERS_CSV, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void acceptsALastRecordWithoutLineBreak() throws IOException {
+        String content = PARTICIPANTS_CSV.stripTrailing();
+        assertEquals(3, csv(TransferTable.PARTICIPANTS, content, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void checksRecordsSplitAcrossReadBuffers() throws IOException {
+        StringBuilder content = new StringBuilder("id,username,password,first_name,last_name\n");
+        int records = 3 * CopyValidation.BUFFER_BYTES / 40;
+        for (int i = 1; i <= records; i++) {
+            content.append(i).append(",user").append(i).append(",\"secret, ").append(i).append("\",First,Last\n");
+        }
+        // A few bytes per read, so records and quoted fields straddle read boundaries
+        InputStream trickle = new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        assertEquals(records, CopyValidation.csv(TransferTable.USERS, trickle, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void reportsTheLineOfAMalformedRecord() {
+        assertEquals("line 3: invalid roi: abc", csvError(TransferTable.PARTICIPANTS, """
+                id,competition_id,user_id,joined_at,roi
+                1,1,1,2024-01-31 12:00:00+00,1.00
+                2,1,2,2024-01-31 12:00:00+00,abc
+                """));
+        assertEquals("line 2: competition_id is required", csvError(TransferTable.PARTICIPANTS, """
+                id,competition_id,user_id,joined_at,roi
+                1,,1,,
+                """));
+        assertEquals("line 2: expected 5 fields, found 4", csvError(TransferTable.PARTICIPANTS, """
+                id,competition_id,user_id,joined_at,roi
+                1,1,1,2024-01-31 12:00:00+00
+                """));
+        assertEquals("line 2: expected 5 fields", csvError(TransferTable.PARTICIPANTS, """
+                id,competition_id,user_id,joined_at,roi
+                1,1,1,2024-01-31 12:00:00+00,1.00,extra
+                """));
+        assertEquals("line 2: quote inside an unquoted field", csvError(TransferTable.USERS, """
+                id,username,password,first_name,last_name
+                1,al"ice,x,,
+                """));
+        assertEquals("line 2: unexpected character after a closing quote", csvError(TransferTable.USERS, """
+                id,username,password,first_name,last_name
+                1,"alice"x,x,,
+                """));
+    }
+
+    @Test
+    void countsLinesInsideQuotedFields() {
+        // Record 1 spans lines 2 and 3, so the bad record is on line 4
+        assertEquals("line 4: username is longer than 50 characters", csvError(TransferTable.USERS, """
+                id,username,password,first_name,last_name
+                1,alice,x,"two
+                lines",
+                2,%s,x,,
+                """.formatted("b".repeat(51))));
+    }
+
+    @Test
+    void rejectsBadHeadersAndTruncatedFiles() {
+        assertEquals("line 1: missing header", csvError(TransferTable.USERS, ""));
+        assertEquals("line 1: header must be [id, username, password, first_name, last_name]",
+                csvError(TransferTable.USERS, "id,name,password,first_name,last_name\n"));
+        assertEquals("line 2: unterminated quoted field", csvError(TransferTable.USERS, """
+                id,username,password,first_name,last_name
+                1,alice,x,"open,
+                """.stripTrailing()));
+        assertEquals("line 2: field 4 is too long", csvError(TransferTable.USERS, """
+                id,username,password,first_name,last_name
+                1,alice,x,%s,
+                """.formatted("f".repeat(2000))));
+    }
+
+    /**
+     * Writes PostgreSQL's binary COPY format: signature, flags, header extension, tuples, then the -1 trailer.
+     */
+    private static final class BinaryCopy {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        BinaryCopy() throws IOException {
+            out.write(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0});
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+
+        BinaryCopy tuple(int fields) throws IOException {
+            out.writeShort(fields);
+            return this;
+        }
+
+        BinaryCopy bigint(long value) throws IOException {
+            out.writeInt(8);
+            out.writeLong(value);
+            return this;
+        }
+
+        // Microseconds since 2000-01-01, as for timestamp and timestamptz
+        BinaryCopy timestamp(long micros) throws IOException {
+            return bigint(micros);
+        }
+
+        BinaryCopy text(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+            return this;
+        }
+
+        // Base-10000 digits with the weight of the first one, as numeric_send writes them
+        BinaryCopy numeric(int weight, boolean negative, int scale, int... digits) throws IOException {
+            out.writeInt(8 + 2 * digits.length);
+            out.writeShort(digits.length);
+            out.writeShort(weight);
+            out.writeShort(negative ? 0x4000 : 0x0000);
+            out.writeShort(scale);
+            for (int digit : digits) {
+                out.writeShort(digit);
+            }
+            return this;
+        }
+
+        BinaryCopy nul() throws IOException {
+            out.writeInt(-1);
+            return this;
+        }
+
+        byte[] end() throws IOException {
+            out.writeShort(-1);
+            return bytes.toByteArray();
+        }
+
+        byte[] truncated() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static BinaryCopy participant(BinaryCopy copy, long id) throws IOException {
+        // 12.50: digits 12 and 5000, the first at 10000^0
+        return copy.tuple(5).bigint(id).bigint(1).bigint(id).timestamp(760_000_000_000_000L).numeric(0, false, 2, 12, 5000);
+    }
+
+    private static String binaryError(TransferTable table, byte[] file) {
+        return assertThrows(IllegalArgumentException.class,
+                () -> CopyValidation.binary(table, new ByteArrayInputStream(file), new ByteArrayOutputStream()))
+                .getMessage();
+    }
+
+    @Test
+    void passesBinaryCopyThroughUnchanged() throws IOException {
+        BinaryCopy copy = new BinaryCopy();
+        participant(copy, 1);
+        participant(copy, 2);
+        copy.tuple(5).bigint(3).bigint(1).bigint(3).nul().nul();
+        // -0.05 and 99999999.99, the largest numeric(10, 2)
+        copy.tuple(5).bigint(4).bigint(1).bigint(4).nul().numeric(-1, true, 2, 500);
+        copy.tuple(5).bigint(5).bigint(1).bigint(5).nul().numeric(1, false, 2, 9999, 9999, 9900);
+        byte[] file = copy.end();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(5, CopyValidation.binary(TransferTable.PARTICIPANTS, new ByteArrayInputStream(file), out));
+        assertArrayEquals(file, out.toByteArray());
+
+        byte[] users = new BinaryCopy().tuple(5).bigint(1).text("zoë").text("$2a$10$abc").text("Zoë").nul().end();
+        assertEquals(1, CopyValidation.binary(TransferTable.USERS, new ByteArrayInputStream(users),
+                new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void reportsTheTupleOfAMalformedRecord() throws IOException {
+        BinaryCopy fieldCount = participant(new BinaryCopy(), 1);
+        fieldCount.tuple(4).bigint(2).bigint(1).bigint(2).nul();
+        assertEquals("tuple 2: expected 5 fields, found 4", binaryError(TransferTable.PARTICIPANTS, fieldCount.end()));
+
+        BinaryCopy required = participant(participant(new BinaryCopy(), 1), 2);
+        required.tuple(5).bigint(3).nul().bigint(3).nul().nul();
+        assertEquals("tuple 3: competition_id is required", binaryError(TransferTable.PARTICIPANTS, required.end()));
+
+        BinaryCopy intWidth = new BinaryCopy().tuple(5);
+        intWidth.out.writeInt(4);
+        intWidth.out.writeInt(1);
+        intWidth.bigint(1).bigint(1).nul().nul();
+        assertEquals("tuple 1: id must be 8 bytes, found 4", binaryError(TransferTable.PARTICIPANTS, intWidth.end()));
+
+        // 100000000.00 needs a digit at 10000^2
+        BinaryCopy range = participant(new BinaryCopy(), 1);
+        range.tuple(5).bigint(2).bigint(1).bigint(2).nul().numeric(2, false, 2, 1);
+        assertEquals("tuple 2: roi out of range", binaryError(TransferTable.PARTICIPANTS, range.end()));
+
+        BinaryCopy sign = new BinaryCopy();
+        sign.tuple(5).bigint(1).bigint(1).bigint(1).nul();
+        sign.out.writeInt(8);
+        sign.out.writeShort(0);
+        sign.out.writeShort(0);
+        sign.out.writeShort(0xC000);
+        sign.out.writeShort(0);
+        assertEquals("tuple 1: invalid roi", binaryError(TransferTable.PARTICIPANTS, sign.end()));
+
+        BinaryCopy text = new BinaryCopy().tuple(5).bigint(1).text("é".repeat(51)).text("x").nul().nul();
+        assertEquals("tuple 1: username is longer than 50 characters", binaryError(TransferTable.USERS, text.end()));
+    }
+
+    @Test
+    void rejectsDamagedFiles() throws IOException {
+        assertEquals("not a binary COPY file",
+                binaryError(TransferTable.PARTICIPANTS, "id,competition_id\n".getBytes(StandardCharsets.UTF_8)));
+
+        BinaryCopy oids = new BinaryCopy();
+        byte[] withOids = oids.end();
+        withOids[11 + 1] = 1;
+        assertEquals("files with OIDs are not supported", binaryError(TransferTable.PARTICIPANTS, withOids));
+
+        BinaryCopy cut = participant(participant(new BinaryCopy(), 1), 2);
+        byte[] whole = cut.truncated();
+        assertEquals("binary COPY file is truncated after 2 tuples",
+                binaryError(TransferTable.PARTICIPANTS, whole));
+        assertEquals("binary COPY file is truncated after 1 tuples",
+                binaryError(TransferTable.PARTICIPANTS, Arrays.copyOf(whole, whole.length - 3)));
+
+        byte[] ended = participant(new BinaryCopy(), 1).end();
+        byte[] trailing = Arrays.copyOf(ended, ended.length + 1);
+        assertEquals("data after the end of the binary COPY file", binaryError(TransferTable.PARTICIPANTS, trailing));
+    }
+}
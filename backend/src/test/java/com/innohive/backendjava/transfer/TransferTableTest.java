@@ -0,0 +1,61 @@
+package com.innohive.backendjava.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransferTableTest {
+
+    private static TransferTable.Column column(TransferTable table, String name) {
+        return table.columns().stream().filter(c -> c.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void acceptsValuesAsPostgresWritesThem() {
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "id"), "9223372036854775807"));
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "roi"), "-12.50"));
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "roi"), "99999999.99"));
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "joined_at"), "2024-01-31 12:00:00.5+00"));
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "joined_at"), "2024-01-31 12:00:00+05:30"));
+        assertNull(TransferTable.check(column(TransferTable.PARTICIPANTS, "joined_at"), "2024-01-31T12:00:00Z"));
+        assertNull(TransferTable.check(column(TransferTable.COMPETITIONS, "start_date"), "2024-01-31 12:00:00"));
+        assertNull(TransferTable.check(column(TransferTable.COMPETITIONS, "start_date"), "2024-01-31T12:00:00.123456"));
+        assertNull(TransferTable.check(column(TransferTable.USERS, "username"), "a".repeat(50)));
+        // Characters, not UTF-16 units or bytes: 50 emoji fit a 50-character column
+        assertNull(TransferTable.check(column(TransferTable.USERS, "username"), "😀".repeat(50)));
+    }
+
+    @Test
+    void nullIsOnlyAllowedInOptionalColumns() {
+        assertNull(TransferTable.check(column(TransferTable.USERS, "first_name"), null));
+        assertEquals("username is required", TransferTable.check(column(TransferTable.USERS, "username"), null));
+        assertEquals("competition_id is required",
+                TransferTable.check(column(TransferTable.PARTICIPANTS, "competition_id"), null));
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertEquals("invalid id: 1.5", TransferTable.check(column(TransferTable.PARTICIPANTS, "id"), "1.5"));
+        assertEquals("invalid id: 9223372036854775808",
+                TransferTable.check(column(TransferTable.PARTICIPANTS, "id"), "9223372036854775808"));
+        assertEquals("invalid roi: 12,5", TransferTable.check(column(TransferTable.PARTICIPANTS, "roi"), "12,5"));
+        assertEquals("roi out of range: 100000000.00",
+                TransferTable.check(column(TransferTable.PARTICIPANTS, "roi"), "100000000.00"));
+        assertEquals("invalid joined_at: 2024-01-31 12:00:00",
+                TransferTable.check(column(TransferTable.PARTICIPANTS, "joined_at"), "2024-01-31 12:00:00"));
+        assertEquals("invalid start_date: 2024-02-30 12:00:00",
+                TransferTable.check(column(TransferTable.COMPETITIONS, "start_date"), "2024-02-30 12:00:00"));
+        assertEquals("username is longer than 50 characters",
+                TransferTable.check(column(TransferTable.USERS, "username"), "a".repeat(51)));
+    }
+
+    @Test
+    void parsesTableNames() {
+        assertEquals(TransferTable.USERS, TransferTable.of("Users"));
+        assertEquals("id, competition_id, user_id, joined_at, roi", TransferTable.PARTICIPANTS.columnList());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> TransferTable.of("orders"));
+        assertEquals("unknown table orders", e.getMessage());
+    }
+}
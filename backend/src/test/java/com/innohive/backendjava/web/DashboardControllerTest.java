@@ -0,0 +1,87 @@
+package com.innohive.backendjava.web;
+
+import com.innohive.backendjava.archive.ParticipantArchive;
+import com.innohive.backendjava.leaderboard.LeaderboardEventLog;
+import com.innohive.backendjava.leaderboard.LeaderboardStore;
+import com.innohive.backendjava.leaderboard.RankingPolicy;
+import com.innohive.backendjava.repository.CompetitionRepository;
+import com.innohive.backendjava.repository.LeaderboardRow;
+import com.innohive.backendjava.search.CompetitionIndex;
+import com.innohive.backendjava.search.CompetitionQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Joined standings come only from boards already in memory: a caller with a long history must neither cause a
+ * query per competition nor load those boards.
+ */
+class DashboardControllerTest {
+
+    private final CompetitionIndex competitionIndex = mock(CompetitionIndex.class);
+    private final ParticipantArchive participantArchive = mock(ParticipantArchive.class);
+    private final LeaderboardStore store = new LeaderboardStore(mock(CompetitionRepository.class), participantArchive,
+            new RankingPolicy(List.of(), 0, 10, 0.5, 5.0, 3),
+            new LeaderboardEventLog("unused", false, 1 << 20, 1, 1024, new SimpleMeterRegistry()), 2);
+    private final DashboardController controller = new DashboardController(competitionIndex, store,
+            participantArchive);
+
+    @AfterEach
+    void close() {
+        store.shutdown();
+    }
+
+    private static LeaderboardRow row(long participantId, String username, String roi) {
+        return new LeaderboardRow(participantId, username, null, null, new BigDecimal(roi), null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void readsJoinedStandingsOnlyFromBoardsInMemory() {
+        when(competitionIndex.search(any(CompetitionQuery.class))).thenReturn(new CompetitionIndex.Result(List.of(), 0));
+        when(participantArchive.rows(anyLong())).thenReturn(List.of());
+        when(participantArchive.rows(3L)).thenReturn(List.of(row(1, "alice", "4.00"), row(2, "bob", "9.00")));
+        store.loadAsync(3).join();
+
+        // Far more competitions than the dashboard lists
+        List<Long> history = LongStream.rangeClosed(1, 500).boxed().toList();
+        when(participantArchive.competitionIdsOf("alice")).thenReturn(history);
+
+        Map<String, Object> body = (Map<String, Object>) controller.dashboard(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of()), null, 5, 20).join().getBody();
+        List<Map<String, Object>> joined = (List<Map<String, Object>>) body.get("joined");
+
+        assertEquals(100, joined.size());
+        for (int i = 0; i < joined.size(); i++) {
+            Map<String, Object> standing = joined.get(i);
+            assertEquals(String.valueOf(history.get(i)), standing.get("competitionId"));
+            if (history.get(i) == 3L) {
+                assertEquals(2, standing.get("rank"));
+                assertEquals(2, standing.get("total"));
+                assertEquals(new BigDecimal("4.00"), standing.get("roi"));
+            } else {
+                assertNull(standing.get("rank"), standing.toString());
+            }
+        }
+        // Only the load above read the database; nothing else was loaded
+        verify(participantArchive, times(1)).rows(anyLong());
+        verify(participantArchive, never()).rows(1L);
+        assertNull(store.get(1));
+    }
+}
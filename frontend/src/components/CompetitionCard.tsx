@@ -1,4 +1,4 @@
-import { Competition } from "../services/api";
+import { Competition, CompetitionStanding, LeaderboardEntry } from "../services/api";
 import StatusCountdown from "./StatusCountdown";
 import { useNavigate } from "react-router-dom";
 
@@ -9,6 +9,8 @@ interface Props {
   isJoined: boolean;
   isActive: boolean;
   hasStarted: boolean;
+  standing?: CompetitionStanding;
+  leaders?: LeaderboardEntry[];
 }
 
 export default function CompetitionCard({
@@ -18,6 +20,8 @@ export default function CompetitionCard({
   isJoined,
   isActive,
   hasStarted,
+  standing,
+  leaders,
 }: Props) {
   const navigate = useNavigate();
   const firstPrize = Math.round(data.prizePool * 0.5);
@@ -85,6 +89,29 @@ export default function CompetitionCard({
         </div>
       </div>
 
+      {hasStarted && (leaders?.length || standing?.rank) ? (
+        <div className="flex flex-col gap-1 text-sm">
+          {leaders?.map((t, idx) => (
+            <div key={t.name} className="flex items-center justify-between">
+              <span className="menu-sub-title">
+                {idx + 1}. {t.name}
+              </span>
+              <span className={t.score >= 0 ? "text-green-400 font-medium" : "text-red-400 font-medium"}>
+                {t.score > 0 ? "+" : ""}
+                {t.score.toFixed(2)}%
+              </span>
+            </div>
+          ))}
+          {standing?.rank ? (
+            <div className="text-sky-400 font-medium">
+              Your rank: #{standing.rank}
+              {standing.approximate ? ` ±${standing.rankError}` : ""}
+              {standing.total ? ` of ${standing.total}` : ""}
+            </div>
+          ) : null}
+        </div>
+      ) : null}
+
       <div className="flex flex-col sm:flex-row sm:items-center sm:justify-between mt-3 gap-3">
         <div className="flex justify-start sm:justify-start">
           <StatusCountdown startAt={data.startAt} endAt={data.endAt} />
@@ -1,7 +1,7 @@
-import { FormEvent, useReducer, useState } from "react";
+import { FormEvent, useEffect, useReducer, useState } from "react";
 import { Link, useNavigate } from "react-router-dom";
 import toast from "react-hot-toast";
-import { register } from "../services/api";
+import { checkUsernameAvailable, register } from "../services/api";
 import { useAuth } from "../hooks/useAuth";
 import Loader from "./Loader";
 
@@ -60,6 +60,11 @@ function years() {
 
 const hasValue = (value: string) => value.trim().length > 0;
 
+// Wait for a pause in typing before asking the server about the username
+const USERNAME_CHECK_DELAY_MS = 300;
+
+type UsernameStatus = "idle" | "checking" | "available" | "taken";
+
 const passwordInfo = (value: string) => {
   const hasDigit = /[0-9]/.test(value);
   const hasUpper = /[A-Z]/.test(value);
@@ -97,6 +102,32 @@ export default function RegisterForm() {
   const [form, dispatch] = useReducer(reducer, initialState);
   const [loading, setLoading] = useState(false);
   const [submitted, setSubmitted] = useState(false);
+  const [usernameStatus, setUsernameStatus] = useState<UsernameStatus>("idle");
+
+  useEffect(() => {
+    const username = form.username.trim();
+    if (!username) {
+      setUsernameStatus("idle");
+      return;
+    }
+
+    let cancelled = false;
+    setUsernameStatus("checking");
+    const timer = setTimeout(async () => {
+      try {
+        const res = await checkUsernameAvailable(username);
+        if (!cancelled) setUsernameStatus(res.available ? "available" : "taken");
+      } catch {
+        // Rate limited or offline: leave the final say to the register call
+        if (!cancelled) setUsernameStatus("idle");
+      }
+    }, USERNAME_CHECK_DELAY_MS);
+
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [form.username]);
 
   const { strength: passwordStrength, isValid: isPasswordValid } = passwordInfo(
     form.password
@@ -104,7 +135,7 @@ export default function RegisterForm() {
 
   const isFirstNameValid = hasValue(form.firstName);
   const isLastNameValid = hasValue(form.lastName);
-  const isUsernameValid = hasValue(form.username);
+  const isUsernameValid = hasValue(form.username) && usernameStatus !== "taken";
   const isConfirmPasswordValid =
     hasValue(form.confirmPassword) && form.confirmPassword === form.password;
 
@@ -122,11 +153,16 @@ export default function RegisterForm() {
       return;
     }
 
-    if (!isUsernameValid) {
+    if (!hasValue(form.username)) {
       toast.error("Username is required");
       return;
     }
 
+    if (usernameStatus === "taken") {
+      toast.error("Username is already registered");
+      return;
+    }
+
     if (!isPasswordValid) {
       toast.error(
         "Password must contain at least one digit, one uppercase letter and one special character"
@@ -195,19 +231,35 @@ export default function RegisterForm() {
           />
         </div>
         {/* Email field removed as backend no longer uses email */}
-        <input
-          className={fieldClass(isUsernameValid, form.username, submitted)}
-          placeholder="Username"
-          maxLength={50}
-          value={form.username}
-          onChange={(e) =>
-            dispatch({
-              type: "UPDATE_FIELD",
-              field: "username",
-              value: e.target.value,
-            })
-          }
-        />
+        <div className="space-y-1">
+          <input
+            className={fieldClass(
+              isUsernameValid,
+              form.username,
+              submitted || usernameStatus === "taken"
+            )}
+            placeholder="Username"
+            maxLength={50}
+            value={form.username}
+            onChange={(e) =>
+              dispatch({
+                type: "UPDATE_FIELD",
+                field: "username",
+                value: e.target.value,
+              })
+            }
+          />
+          {usernameStatus === "taken" && (
+            <div className="text-xs font-semibold text-red-500">
+              Username is already registered
+            </div>
+          )}
+          {usernameStatus === "available" && (
+            <div className="text-xs font-semibold text-green-500">
+              Username is available
+            </div>
+          )}
+        </div>
         <div className="space-y-1">
           <input
             className={fieldClass(isPasswordValid, form.password, submitted)}
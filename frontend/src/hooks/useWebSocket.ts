@@ -1,5 +1,5 @@
 import { useEffect, useState } from "react";
-import { createWS, ScoreUpdate } from "../services/ws";
+import { createWS, deliveryRequest, prefersConflatedDelivery, ScoreUpdate } from "../services/ws";
 
 export type WebSocketStatus = "connecting" | "open" | "closed";
 
@@ -24,6 +24,9 @@ function ensureSocket() {
   };
 
   ws.onopen = () => {
+    if (prefersConflatedDelivery()) {
+      ws.send(deliveryRequest());
+    }
     broadcastStatus("open");
   };
 
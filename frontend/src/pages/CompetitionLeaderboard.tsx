@@ -1,6 +1,6 @@
 import { useCallback, useEffect, useState } from "react";
 import { useNavigate, useParams } from "react-router-dom";
-import { api } from "../services/api";
+import { api, CompetitionStats, fetchCompetitionStats } from "../services/api";
 import Leaderboard, { Trader } from "../components/Leaderboard";
 import Loader from "../components/Loader";
 import { closeSharedWebSocket, useWebSocket } from "../hooks/useWebSocket";
@@ -17,6 +17,7 @@ export default function CompetitionLeaderboard() {
   const navigate = useNavigate();
   const [data, setData] = useState<LeaderboardResponse | null>(null);
   const [traders, setTraders] = useState<Trader[]>([]);
+  const [stats, setStats] = useState<CompetitionStats | null>(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
 
@@ -47,6 +48,8 @@ export default function CompetitionLeaderboard() {
         );
         initialTraders.sort((a, b) => b.score - a.score);
         setTraders(initialTraders);
+        // Stats are optional extras; later score_update frames fill them in if this fails
+        fetchCompetitionStats(id).then(setStats).catch(() => {});
       } catch (e) {
         setError("Failed to load leaderboard");
       } finally {
@@ -69,6 +72,10 @@ export default function CompetitionLeaderboard() {
         setTraders(next);
       }
 
+      if (msg.type === "score_update" && msg.stats) {
+        setStats(msg.stats);
+      }
+
       if (msg.type === "score_update" && msg.updates) {
         setTraders((prev) => {
           const map = new Map(prev.map((t) => [t.name, t] as const));
@@ -123,6 +130,28 @@ export default function CompetitionLeaderboard() {
       <h1 className="text-2xl font-semibold menu-title text-center">
         {data.name} - Leaderboard
       </h1>
+      {stats && stats.participants > 0 && (
+        <div className="grid grid-cols-2 sm:grid-cols-4 gap-3 text-center">
+          <div className="card p-3">
+            <div className="text-xs opacity-70">Mean ROI</div>
+            <div className="font-semibold">{Number(stats.mean).toFixed(2)}%</div>
+          </div>
+          <div className="card p-3">
+            <div className="text-xs opacity-70">Median ROI{stats.approximate ? " (est.)" : ""}</div>
+            <div className="font-semibold">{Number(stats.median).toFixed(2)}%</div>
+          </div>
+          <div className="card p-3">
+            <div className="text-xs opacity-70">In profit</div>
+            <div className="font-semibold">{stats.inProfitPercent.toFixed(1)}%</div>
+          </div>
+          {stats.prizeCutoff !== null && (
+            <div className="card p-3">
+              <div className="text-xs opacity-70">Prize cutoff (top {stats.prizePlaces})</div>
+              <div className="font-semibold">{Number(stats.prizeCutoff).toFixed(2)}%</div>
+            </div>
+          )}
+        </div>
+      )}
       <Leaderboard traders={traders} />
     </div>
   );
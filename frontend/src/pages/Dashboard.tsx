@@ -1,19 +1,26 @@
-import { useEffect, useMemo, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import toast from "react-hot-toast";
 import {
   Competition,
-  fetchCompetitions,
+  CompetitionStanding,
+  Dashboard as DashboardData,
+  fetchDashboard,
+  searchCompetitions,
   joinCompetition,
-  fetchJoinedCompetitions,
 } from "../services/api";
 import CompetitionCard from "../components/CompetitionCard";
 import { useAuth } from "../hooks/useAuth";
 import Loader from "../components/Loader";
 
+const PAGE_SIZE = 20;
+
 export default function Dashboard() {
   const { username } = useAuth();
   const [competitions, setCompetitions] = useState<Competition[]>([]);
+  const [total, setTotal] = useState(0);
+  const [page, setPage] = useState(0);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [query, setQuery] = useState("");
   const [now, setNow] = useState(() => Date.now());
   const [statusFilter, setStatusFilter] = useState<
@@ -21,41 +28,91 @@ export default function Dashboard() {
   >("all");
   const [joiningId, setJoiningId] = useState<string | null>(null);
   const [joinedIds, setJoinedIds] = useState<string[]>([]);
+  const [standings, setStandings] = useState<Record<string, CompetitionStanding>>({});
+  const [leaderboards, setLeaderboards] = useState<DashboardData["leaderboards"]>({});
+  const skipInitialSearch = useRef(true);
   const [joinPopupId, setJoinPopupId] = useState<string | null>(null);
   const [joinPopupPhase, setJoinPopupPhase] = useState<
     "idle" | "progress" | "success"
   >("idle");
   const [joinProgress, setJoinProgress] = useState(0);
 
+  const searchParams = () => ({
+    q: query.trim() || undefined,
+    status: statusFilter === "all" ? undefined : statusFilter,
+    size: PAGE_SIZE,
+  });
+
+  // First paint: competitions, joined standings and top traders arrive in one response
   useEffect(() => {
+    if (!username) {
+      setJoinedIds([]);
+      setStandings({});
+      return;
+    }
+
+    let cancelled = false;
     (async () => {
       try {
-        const res = await fetchCompetitions();
+        const res = await fetchDashboard({ size: PAGE_SIZE, top: 3 });
+        if (cancelled) return;
         setCompetitions(res.competitions);
+        setTotal(res.total);
+        setPage(0);
+        setJoinedIds(res.joined.map((j) => j.competitionId));
+        setStandings(Object.fromEntries(res.joined.map((j) => [j.competitionId, j])));
+        setLeaderboards(res.leaderboards);
       } catch (e) {
-        toast.error("Failed to load competitions");
+        if (!cancelled) toast.error("Failed to load competitions");
       } finally {
-        setLoading(false);
+        if (!cancelled) setLoading(false);
       }
     })();
-  }, []);
+    return () => {
+      cancelled = true;
+    };
+  }, [username]);
 
+  // Filtering, ordering and paging happen on the server; typing is debounced
   useEffect(() => {
-    if (!username) {
-      setJoinedIds([]);
+    if (skipInitialSearch.current) {
+      skipInitialSearch.current = false;
       return;
     }
-
-    (async () => {
+    let cancelled = false;
+    const timer = setTimeout(async () => {
       try {
-        const res = await fetchJoinedCompetitions(username);
-        setJoinedIds(res.competitionIds || []);
+        const res = await searchCompetitions({ ...searchParams(), page: 0 });
+        if (cancelled) return;
+        setCompetitions(res.competitions);
+        setTotal(res.total);
+        setPage(0);
       } catch (e) {
-        // non-fatal: just log to console, app will behave as if not joined
-        console.error("Failed to load joined competitions", e);
+        if (!cancelled) toast.error("Failed to load competitions");
+      } finally {
+        if (!cancelled) setLoading(false);
       }
-    })();
-  }, [username]);
+    }, query ? 250 : 0);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [query, statusFilter]);
+
+  const loadMore = async () => {
+    if (loadingMore) return;
+    try {
+      setLoadingMore(true);
+      const res = await searchCompetitions({ ...searchParams(), page: page + 1 });
+      setCompetitions((prev) => [...prev, ...res.competitions]);
+      setTotal(res.total);
+      setPage(page + 1);
+    } catch (e) {
+      toast.error("Failed to load competitions");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   useEffect(() => {
     const id = setInterval(() => setNow(Date.now()), 1000);
@@ -115,39 +172,6 @@ export default function Dashboard() {
     return { label: `${labelPrefix} ${text}`, isActive: !isBeforeStart, hasStarted: !isBeforeStart };
   };
 
-  const filtered = useMemo(() => {
-    const q = query.toLowerCase();
-
-    const statusPriority: Record<"active" | "not_started" | "finished", number> = {
-      active: 0,
-      not_started: 1,
-      finished: 2,
-    };
-
-    return competitions
-      .map((c) => {
-        const { isActive, hasStarted } = formatCountdown(c.startAt, c.endAt);
-        const status: "active" | "not_started" | "finished" = isActive
-          ? "active"
-          : hasStarted
-          ? "finished"
-          : "not_started";
-        return { competition: c, status };
-      })
-      .filter(({ competition, status }) => {
-        if (!competition.name.toLowerCase().includes(q)) return false;
-        if (statusFilter === "all") return true;
-        return status === statusFilter;
-      })
-      .sort((a, b) => {
-        const pa = statusPriority[a.status];
-        const pb = statusPriority[b.status];
-        if (pa !== pb) return pa - pb;
-        return a.competition.name.localeCompare(b.competition.name);
-      })
-      .map((x) => x.competition);
-  }, [competitions, query, statusFilter, now]);
-
   const doJoin = async (id: string) => {
     if (!username) {
       toast.error("Please login");
@@ -235,7 +259,7 @@ export default function Dashboard() {
         </div>
       ) : (
         <div className="grid grid-cols-1 md:grid-cols-2 gap-6">
-          {filtered.map((c) => {
+          {competitions.map((c) => {
             const { isActive, hasStarted } = formatCountdown(c.startAt, c.endAt);
             return (
               <CompetitionCard
@@ -246,12 +270,22 @@ export default function Dashboard() {
                 isJoined={joinedIds.includes(c.id)}
                 isActive={isActive}
                 hasStarted={hasStarted}
+                standing={standings[c.id]}
+                leaders={leaderboards[c.id]?.top}
               />
             );
           })}
         </div>
       )}
 
+      {!loading && competitions.length < total && (
+        <div className="flex justify-center mt-6">
+          <button type="button" className="btn" onClick={loadMore} disabled={loadingMore}>
+            {loadingMore ? "Loading…" : `Load more (${total - competitions.length} left)`}
+          </button>
+        </div>
+      )}
+
       {joinPopupId && (
         <div className="fixed inset-0 z-40 flex items-center justify-center bg-black/60">
           <div className="card w-full max-w-sm p-6 text-center">
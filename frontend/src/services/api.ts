@@ -47,11 +47,90 @@ export async function register(
   return data as { token: string; username: string; firstName: string; lastName: string };
 }
 
+export async function checkUsernameAvailable(username: string) {
+  const { data } = await api.get('/api/auth/username-available', { params: { username } });
+  return data as { username: string; available: boolean };
+}
+
 export async function fetchCompetitions() {
   const { data } = await api.get('/api/competitions');
   return data as { competitions: Competition[] };
 }
 
+export interface CompetitionSearch {
+  q?: string;
+  status?: 'active' | 'not_started' | 'finished';
+  minEntryFee?: number;
+  maxEntryFee?: number;
+  minPrizePool?: number;
+  maxPrizePool?: number;
+  startsAfter?: string;
+  startsBefore?: string;
+  endsAfter?: string;
+  endsBefore?: string;
+  sort?: 'status' | 'name' | 'entryFee' | 'prizePool' | 'startAt' | 'endAt';
+  order?: 'asc' | 'desc';
+  page?: number;
+  size?: number;
+}
+
+export async function searchCompetitions(params: CompetitionSearch) {
+  const { data } = await api.get('/api/competitions/search', { params });
+  return data as { competitions: Competition[]; total: number; page: number; size: number };
+}
+
+export interface CompetitionStanding {
+  competitionId: string;
+  rank?: number;
+  total?: number;
+  approximate?: boolean;
+  rankError?: number;
+  topPercent?: number;
+  roi?: number;
+}
+
+export interface Dashboard {
+  competitions: Competition[];
+  total: number;
+  joined: CompetitionStanding[];
+  leaderboards: Record<string, { total: number; approximate: boolean; top: LeaderboardEntry[] }>;
+}
+
+// First paint of the dashboard in one request: first page, joined competitions with rank, top N per card
+export async function fetchDashboard(params: { size?: number; top?: number; leaderboards?: string[] } = {}) {
+  const { data } = await api.get('/api/dashboard', {
+    params: { ...params, leaderboards: params.leaderboards?.join(',') },
+  });
+  return data as Dashboard;
+}
+
+export interface CompetitionStats {
+  participants: number;
+  mean: number | null;
+  median: number | null;
+  inProfitPercent: number;
+  prizePlaces: number;
+  prizeCutoff: number | null;
+  approximate: boolean;
+  histogram: { from: number; to: number; count: number }[];
+}
+
+// Also pushed as `stats` on score_update frames whenever it changes
+export async function fetchCompetitionStats(competitionId: string) {
+  const { data } = await api.get(`/api/competitions/${competitionId}/stats`);
+  return (data as { competitionId: string; stats: CompetitionStats }).stats;
+}
+
+export interface GlobalStanding { rank: number; name: string; score: number; competitions: number }
+
+export type GlobalMetric = 'average' | 'best';
+
+// Also streamed as global_update frames after a {"type":"subscribe_global"} message
+export async function fetchGlobalRanking(metric: GlobalMetric = 'average', top = 10) {
+  const { data } = await api.get('/api/leaderboard/global', { params: { metric, top } });
+  return data as { metric: GlobalMetric; total: number; traders: GlobalStanding[] };
+}
+
 export async function joinCompetition(competitionId: string, username: string) {
   const { data } = await api.post(`/api/competitions/${competitionId}/join`);
   return data as { success: boolean; participants: number };
@@ -1,11 +1,56 @@
+import type { CompetitionStats, GlobalMetric } from './api';
+
 export interface ScoreUpdate {
-  type: 'score_update' | 'snapshot';
+  type: 'score_update' | 'snapshot' | 'status_update' | 'my_rank' | 'delivery' | 'global_update';
   competitionId: string;
   updates?: { name: string; score: number }[];
   traders?: { name: string; score: number }[];
+  activated?: string[];
+  finished?: string[];
+  rank?: number;
+  total?: number;
+  neighbors?: { name: string; score: number; rank: number }[];
+  // Set on very large competitions where only the top K is ranked exactly
+  approximate?: boolean;
+  rankError?: number;
+  topPercent?: number;
+  // Present on score_update when the competition's distribution changed
+  stats?: CompetitionStats;
+  // global_update: top traders across active competitions in `traders` (GlobalStanding), with no competitionId
+  metric?: GlobalMetric;
+  // Reply to a delivery request
+  mode?: 'stream' | 'conflated';
+  maxRate?: number;
+}
+
+// Slow or metered links ask the server for merged latest-value frames instead of one per tick
+export function prefersConflatedDelivery() {
+  const connection = typeof navigator !== 'undefined' ? (navigator as any).connection : undefined;
+  if (!connection) return false;
+  return Boolean(connection.saveData) || ['slow-2g', '2g', '3g'].includes(connection.effectiveType);
+}
+
+export function deliveryRequest(maxRate = 1) {
+  return JSON.stringify({ type: 'delivery', mode: 'conflated', maxRate });
+}
+
+// Expired tokens are not offered; the server would treat them as anonymous anyway
+function isExpired(token: string) {
+  try {
+    const payload = JSON.parse(atob(token.split('.')[1].replace(/-/g, '+').replace(/_/g, '/')));
+    return typeof payload.exp === 'number' && payload.exp * 1000 <= Date.now();
+  } catch {
+    return true;
+  }
 }
 
 export function createWS() {
-  const url = (import.meta as any).env.VITE_WS_URL || 'ws://localhost:4000';
-  return new WebSocket(url);
+  const url = new URL((import.meta as any).env.VITE_WS_URL || 'ws://localhost:4000');
+  // Identifies the user on the handshake so the server can push personal my_rank frames. Sent as a
+  // subprotocol rather than in the URL, so it never shows up in proxy or access logs
+  const token = typeof window !== 'undefined' ? localStorage.getItem('token') : null;
+  if (token && !isExpired(token)) {
+    return new WebSocket(url.toString(), ['bearer', token]);
+  }
+  return new WebSocket(url.toString());
 }